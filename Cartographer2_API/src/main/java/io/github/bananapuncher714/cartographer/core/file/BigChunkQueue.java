@@ -7,6 +7,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings;
 import io.github.bananapuncher714.cartographer.core.map.process.DataCache;
 import io.github.bananapuncher714.cartographer.core.map.process.MapDataCache;
 
@@ -36,6 +37,15 @@ public class BigChunkQueue {
 	public BigChunkQueue( Path saveFile, DataCache cache ) {
 	}
 	
+	/**
+	 * Set where to record how long reading and writing files takes.
+	 * 
+	 * @param timings
+	 * The timings of the minimap, or null to not record anything.
+	 */
+	public void setTimings( MinimapTimings timings ) {
+	}
+	
 	/**
 	 * Save the data as soon as possible, if not being already saved or loaded.
 	 * 
@@ -54,6 +54,7 @@ public class Minimap implements ChunkNotifier {
 	protected Set< WorldPixelProvider > worldPixelProviders = new HashSet< WorldPixelProvider >();
 	
 	protected MinimapLogger logger;
+	protected final MinimapTimings timings = null;
 
 	public Minimap( String id, MinimapPalette palette, DataCache cache, File saveDir, MapSettings settings ) {
 	}
@@ -88,6 +89,16 @@ public class Minimap implements ChunkNotifier {
 		return settings;
 	}
 	
+	/**
+	 * Get how long rendering and processing has been taking for this minimap.
+	 * 
+	 * @return
+	 * The timings, which are recorded to continuously.
+	 */
+	public MinimapTimings getTimings() {
+		return timings;
+	}
+	
 	public SimpleImage getOverlayImage() {
 		return null;
 	}
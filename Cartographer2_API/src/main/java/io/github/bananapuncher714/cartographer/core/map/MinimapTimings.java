@@ -0,0 +1,124 @@
+package io.github.bananapuncher714.cartographer.core.map;
+
+import java.util.Map;
+
+import io.github.bananapuncher714.cartographer.core.util.LatencyHistogram;
+
+/**
+ * How long each phase of rendering and processing has taken for a {@link Minimap}, along with how long each provider took.
+ * Can be recorded to from any thread.
+ */
+public class MinimapTimings {
+	public enum Phase {
+		/**
+		 * Gathering the cursors and pixels from the providers, on the main thread.
+		 */
+		PROVIDERS,
+		/**
+		 * Sampling the terrain under every pixel of a frame and mixing it with the layers above.
+		 */
+		TERRAIN,
+		/**
+		 * Building the map pixel layers and rasterizing the world pixels of a frame.
+		 */
+		COMPOSITING,
+		/**
+		 * Dithering the overlay, background or blacklisted image of a frame.
+		 */
+		DITHERING,
+		/**
+		 * Comparing a frame to the last one and sending it to a player.
+		 */
+		PACKET_SEND,
+		/**
+		 * Taking a snapshot of a chunk, on the main thread.
+		 */
+		CHUNK_SNAPSHOT,
+		/**
+		 * Turning a snapshot into map colors.
+		 */
+		CHUNK_PROCESS,
+		/**
+		 * Reading or writing a region file.
+		 */
+		REGION_IO;
+
+		/**
+		 * Get the name shown to players.
+		 * 
+		 * @return
+		 * The lowercase name, with dashes.
+		 */
+		public String getDisplayName() {
+			return null;
+		}
+	}
+
+	protected final Map< Phase, LatencyHistogram > histograms = null;
+	// Keyed by class name, so modules can be unloaded
+	protected final Map< String, LatencyHistogram > providers = null;
+	protected volatile long since;
+
+	public MinimapTimings() {
+	}
+
+	/**
+	 * Record how long a phase took, until now.
+	 * 
+	 * @param phase
+	 * The phase. Cannot be null.
+	 * @param start
+	 * When the phase started, from {@link System#nanoTime()}.
+	 */
+	public void record( Phase phase, long start ) {
+	}
+
+	/**
+	 * Record how long a provider took to provide its cursors or pixels, until now.
+	 * 
+	 * @param provider
+	 * The provider. Cannot be null.
+	 * @param start
+	 * When it was called, from {@link System#nanoTime()}.
+	 */
+	public void recordProvider( Object provider, long start ) {
+	}
+
+	/**
+	 * Get the durations recorded for a phase.
+	 * 
+	 * @param phase
+	 * The phase. Cannot be null.
+	 * @return
+	 * The histogram, in nanoseconds.
+	 */
+	public LatencyHistogram getHistogram( Phase phase ) {
+		return null;
+	}
+
+	/**
+	 * Get the durations recorded for each provider.
+	 * 
+	 * @return
+	 * An unmodifiable map of provider class names to histograms, in nanoseconds.
+	 */
+	public Map< String, LatencyHistogram > getProviderHistograms() {
+		return null;
+	}
+
+	/**
+	 * Get when recording started.
+	 * 
+	 * @return
+	 * The time in milliseconds when these timings were created or last reset.
+	 */
+	public long getSince() {
+		return 0;
+	}
+
+	/**
+	 * Clear every phase and provider.
+	 */
+	public void reset() {
+	}
+}
@@ -120,7 +120,7 @@ public class MinimapPalette {
 	 * Get the {@link CrossVersionMaterial} that are registered as transparent.
 	 * 
 	 * @return
-	 * The set of transparent {@link CrossVersionMaterial} for this palette.
+	 * An unmodifiable view of the transparent {@link CrossVersionMaterial} for this palette.
 	 */
 	public Set< CrossVersionMaterial > getTransparentBlocks() {
 		return null;
@@ -135,6 +135,15 @@ public class MinimapPalette {
 	public void addTransparentMaterial( CrossVersionMaterial material ) {
 	}
 	
+	/**
+	 * Stop treating a {@link CrossVersionMaterial} as transparent.
+	 * 
+	 * @param material
+	 * Cannot be null.
+	 */
+	public void removeTransparentMaterial( CrossVersionMaterial material ) {
+	}
+	
 	/**
 	 * Check if the material is listed as transparent by this palette.
 	 * 
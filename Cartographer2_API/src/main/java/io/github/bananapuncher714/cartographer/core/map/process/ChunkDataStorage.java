@@ -10,6 +10,23 @@ public interface ChunkDataStorage {
 	void store( ChunkLocation location, ChunkData data );
 	void remove( ChunkLocation location );
 	ChunkData get( ChunkLocation location );
+	
+	/**
+	 * Get the chunk data without creating a ChunkLocation, for lookups in hot loops.
+	 * 
+	 * @param world
+	 * The name of the world.
+	 * @param x
+	 * Chunk coordinate x value.
+	 * @param z
+	 * Chunk coordinate z value.
+	 * @return
+	 * The chunk data, or null if not present.
+	 */
+	default ChunkData get( String world, int x, int z ) {
+		return null;
+	}
+	
 	Collection< ChunkLocation > getLocations();
 	boolean contains( ChunkLocation location );
 	byte getColorAt( Location location );
@@ -14,6 +14,7 @@ import io.github.bananapuncher714.cartographer.core.file.BigChunk;
 import io.github.bananapuncher714.cartographer.core.file.BigChunkLocation;
 import io.github.bananapuncher714.cartographer.core.file.BigChunkQueue;
 import io.github.bananapuncher714.cartographer.core.map.MapSettings;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings;
 import io.github.bananapuncher714.cartographer.core.map.palette.MinimapPalette;
 
 /**
@@ -48,6 +49,10 @@ public class MapDataCache implements DataCache {
 	public void setFileQueue( BigChunkQueue queue ) {
 	}
 
+	@Override
+	public void setTimings( MinimapTimings timings ) {
+	}
+
 	@Override
 	public MapDataCache setNotifier( ChunkNotifier notifier ) {
 		return null;
@@ -98,6 +103,11 @@ public class MapDataCache implements DataCache {
 		return null;
 	}
 
+	@Override
+	public ChunkData getDataAt( String world, int x, int z ) {
+		return null;
+	}
+
 	@Override
 	public boolean containsDataAt( ChunkLocation location ) {
 		return false;
@@ -144,6 +154,10 @@ public class MapDataCache implements DataCache {
 	public void updateLocation( Location location, MinimapPalette palette ) {
 	}
 
+	@Override
+	public void updateColumns( ChunkLocation location, ChunkSnapshot snapshot, ChunkSnapshot north, long[] columns, MinimapPalette palette ) {
+	}
+
 	@Override
 	public void updateDataAt( ChunkLocation location, ChunkData data, boolean force ) {
 	}
@@ -28,6 +28,11 @@ public class SimpleChunkDataStorage implements ChunkDataStorage {
 		return null;
 	}
 	
+	@Override
+	public ChunkData get( String world, int x, int z ) {
+		return null;
+	}
+	
 	@Override
 	public Collection< ChunkLocation > getLocations() {
 		return null;
@@ -30,6 +30,11 @@ public class SimpleChunkProcessor implements ChunkDataProvider {
 		return null;
 	}
 	
+	@Override
+	public boolean process( ChunkSnapshot snapshot, ChunkSnapshot north, long[] columns, MinimapPalette palette, byte[] data ) {
+		return false;
+	}
+	
 	@Override
 	public int process( Location location, MinimapPalette palette ) {
 		return 0;
@@ -0,0 +1,66 @@
+package io.github.bananapuncher714.cartographer.core.util;
+
+/**
+ * A fixed size histogram of durations in nanoseconds, with log-linear buckets like an HDR histogram.
+ * Every power of two is split into 16 buckets, so percentiles are within about 6% of the real value.
+ * <p>
+ * Thread safe and lock free, recording a value is a few atomic increments.
+ */
+public class LatencyHistogram {
+	/**
+	 * Record a duration.
+	 * 
+	 * @param nanos
+	 * The duration in nanoseconds. Negative values are counted as 0.
+	 */
+	public void record( long nanos ) {
+	}
+
+	/**
+	 * Get how many durations have been recorded.
+	 * 
+	 * @return
+	 * The amount since created or last reset.
+	 */
+	public long getCount() {
+		return 0;
+	}
+
+	/**
+	 * Get the average duration.
+	 * 
+	 * @return
+	 * The mean in nanoseconds, or 0 if nothing has been recorded.
+	 */
+	public double getMean() {
+		return 0;
+	}
+
+	/**
+	 * Get the longest duration.
+	 * 
+	 * @return
+	 * The maximum in nanoseconds.
+	 */
+	public long getMax() {
+		return 0;
+	}
+
+	/**
+	 * Get the duration that a percentage of the recorded durations are at or below.
+	 * 
+	 * @param percentile
+	 * From 0 to 100.
+	 * @return
+	 * The upper bound of the bucket the percentile falls in, in nanoseconds, or 0 if nothing has been recorded.
+	 */
+	public long getPercentile( double percentile ) {
+		return 0;
+	}
+
+	/**
+	 * Clear everything that has been recorded. Durations recorded at the same time may or may not be kept.
+	 */
+	public void reset() {
+	}
+}
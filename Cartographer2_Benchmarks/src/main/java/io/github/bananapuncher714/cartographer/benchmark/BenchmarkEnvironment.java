@@ -0,0 +1,179 @@
+package io.github.bananapuncher714.cartographer.benchmark;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.function.BiFunction;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginLogger;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+
+import io.github.bananapuncher714.cartographer.core.Cartographer;
+import io.github.bananapuncher714.cartographer.core.CartographerSettings;
+import io.github.bananapuncher714.cartographer.core.api.GeneralUtil;
+import io.github.bananapuncher714.cartographer.core.api.PacketHandler;
+import io.github.bananapuncher714.cartographer.core.internal.Util_1_17;
+import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
+
+/**
+ * Stands in for a running server, so that the plugin's classes can be used on their own.
+ * Only what chunk processing and rendering touch does anything, everything else returns null, zero or false.
+ */
+public final class BenchmarkEnvironment {
+	public static final String WORLD_NAME = "world";
+	public static final int MIN_HEIGHT = -64;
+	public static final int MAX_HEIGHT = 320;
+
+	private static final Objenesis OBJENESIS = new ObjenesisStd();
+
+	private static World world;
+
+	private BenchmarkEnvironment() {
+	}
+
+	/**
+	 * Set up the server, the world and the plugin instance, if not done already.
+	 * 
+	 * @return
+	 * The only world.
+	 */
+	public static synchronized World install() {
+		if ( world != null ) {
+			return world;
+		}
+
+		world = stub( World.class, ( method, args ) -> {
+			switch ( method.getName() ) {
+			case "getName": return WORLD_NAME;
+			case "getMinHeight": return MIN_HEIGHT;
+			case "getMaxHeight": return MAX_HEIGHT;
+			default: return null;
+			}
+		} );
+
+		Logger logger = Logger.getLogger( "Benchmark" );
+		Bukkit.setServer( stub( Server.class, ( method, args ) -> {
+			switch ( method.getName() ) {
+			case "getLogger": return logger;
+			case "getName": return "Benchmark";
+			case "getVersion":
+			case "getBukkitVersion": return "benchmark";
+			case "getWorld": return world;
+			case "getWorlds": return Collections.singletonList( world );
+			default: return null;
+			}
+		} ) );
+
+		// Build the color lookup table up front, rather than matching colors slowly while it builds
+		JetpImageUtil.init();
+
+		GeneralUtil util = new Util_1_17();
+		PacketHandler handler = stub( PacketHandler.class, ( method, args ) -> method.getName().equals( "getUtil" ) ? util : null );
+		try {
+			// The plugin can only be constructed by a plugin class loader, so skip the constructor and fill in what JavaPlugin would
+			Cartographer plugin = allocate( Cartographer.class );
+			File dataFolder = new File( System.getProperty( "java.io.tmpdir" ), "Cartographer2" );
+			setField( JavaPlugin.class, plugin, "loader", new JavaPluginLoader( Bukkit.getServer() ) );
+			setField( JavaPlugin.class, plugin, "server", Bukkit.getServer() );
+			setField( JavaPlugin.class, plugin, "description", new PluginDescriptionFile( "Cartographer2", "benchmark", Cartographer.class.getName() ) );
+			setField( JavaPlugin.class, plugin, "dataFolder", dataFolder );
+			setField( JavaPlugin.class, plugin, "file", new File( dataFolder, "Cartographer2.jar" ) );
+			setField( JavaPlugin.class, plugin, "logger", new PluginLogger( plugin ) );
+			setField( Cartographer.class, null, "INSTANCE", plugin );
+			setField( Cartographer.class, plugin, "handler", handler );
+			setField( Cartographer.class, plugin, "settings", new CartographerSettings() );
+		} catch ( ReflectiveOperationException e ) {
+			throw new IllegalStateException( "Unable to stand in for the plugin!", e );
+		}
+
+		return world;
+	}
+
+	/**
+	 * Implement an interface with a handler, where anything it doesn't handle returns null, zero or false.
+	 * 
+	 * @param type
+	 * The interface to implement.
+	 * @param handler
+	 * Gets the method and arguments, and returns the result or null.
+	 * @return
+	 * An instance of the interface.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public static < T > T stub( Class< T > type, BiFunction< Method, Object[], Object > handler ) {
+		return ( T ) Proxy.newProxyInstance( type.getClassLoader(), new Class< ? >[] { type }, ( proxy, method, args ) -> {
+			if ( method.getDeclaringClass() == Object.class ) {
+				switch ( method.getName() ) {
+				case "equals": return proxy == args[ 0 ];
+				case "hashCode": return System.identityHashCode( proxy );
+				default: return type.getSimpleName() + " stub";
+				}
+			}
+			Object value = handler.apply( method, args );
+			return value != null ? value : getDefault( method.getReturnType() );
+		} );
+	}
+
+	/**
+	 * Set a field, even if it is private or final.
+	 * 
+	 * @param clazz
+	 * The class that declares the field.
+	 * @param instance
+	 * Null for static fields.
+	 * @param name
+	 * The name of the field.
+	 * @param value
+	 * The new value.
+	 * @throws ReflectiveOperationException
+	 * If the field doesn't exist.
+	 */
+	public static void setField( Class< ? > clazz, Object instance, String name, Object value ) throws ReflectiveOperationException {
+		Field field = clazz.getDeclaredField( name );
+		field.setAccessible( true );
+		field.set( instance, value );
+	}
+
+	/**
+	 * Create an object without calling any constructor.
+	 * 
+	 * @param clazz
+	 * The class to create.
+	 * @return
+	 * An instance with every field at its default value.
+	 */
+	public static < T > T allocate( Class< T > clazz ) {
+		return OBJENESIS.newInstance( clazz );
+	}
+
+	private static Object getDefault( Class< ? > type ) {
+		if ( type == boolean.class ) {
+			return false;
+		} else if ( type == char.class ) {
+			return ( char ) 0;
+		} else if ( type == byte.class ) {
+			return ( byte ) 0;
+		} else if ( type == short.class ) {
+			return ( short ) 0;
+		} else if ( type == int.class ) {
+			return 0;
+		} else if ( type == long.class ) {
+			return 0L;
+		} else if ( type == float.class ) {
+			return 0f;
+		} else if ( type == double.class ) {
+			return 0d;
+		}
+		return null;
+	}
+}
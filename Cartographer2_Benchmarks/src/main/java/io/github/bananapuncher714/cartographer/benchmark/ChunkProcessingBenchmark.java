@@ -0,0 +1,114 @@
+package io.github.bananapuncher714.cartographer.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.ChunkSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.bananapuncher714.cartographer.benchmark.SyntheticChunks.Terrain;
+import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
+import io.github.bananapuncher714.cartographer.core.map.palette.MinimapPalette;
+import io.github.bananapuncher714.cartographer.core.map.process.ChunkData;
+import io.github.bananapuncher714.cartographer.core.map.process.DataCache;
+import io.github.bananapuncher714.cartographer.core.map.process.SimpleChunkProcessor;
+
+/**
+ * How many chunks per second the default processor can turn into map colors, for a whole chunk and for a few block updates.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ChunkProcessingBenchmark {
+	private static final int SIZE = 8;
+
+	@Param( { "FLAT", "HILLS" } )
+	public Terrain terrain;
+
+	private SimpleChunkProcessor processor;
+	private MinimapPalette palette;
+	private ChunkSnapshot[] snapshots;
+	private ChunkSnapshot[] northSnapshots;
+	private long[] columns;
+	private byte[] data;
+
+	@Setup
+	public void setup() {
+		BenchmarkEnvironment.install();
+
+		// Include one extra row to the north, so every chunk can be shaded
+		Map< Long, ChunkSnapshot > grid = new HashMap< Long, ChunkSnapshot >();
+		snapshots = new ChunkSnapshot[ SIZE * SIZE ];
+		northSnapshots = new ChunkSnapshot[ SIZE * SIZE ];
+		for ( int z = -1; z < SIZE; z++ ) {
+			for ( int x = 0; x < SIZE; x++ ) {
+				grid.put( key( x, z ), SyntheticChunks.create( terrain, 0, x, z ) );
+			}
+		}
+		for ( int z = 0; z < SIZE; z++ ) {
+			for ( int x = 0; x < SIZE; x++ ) {
+				snapshots[ x + z * SIZE ] = grid.get( key( x, z ) );
+				northSnapshots[ x + z * SIZE ] = grid.get( key( x, z - 1 ) );
+			}
+		}
+
+		DataCache cache = BenchmarkEnvironment.stub( DataCache.class, ( method, args ) -> {
+			if ( method.getName().equals( "getChunkSnapshotAt" ) ) {
+				ChunkLocation location = ( ChunkLocation ) args[ 0 ];
+				return grid.get( key( location.getX(), location.getZ() ) );
+			}
+			return null;
+		} );
+
+		palette = SyntheticChunks.palette();
+		processor = new SimpleChunkProcessor( cache, palette );
+		data = new byte[ 256 ];
+
+		// A line of blocks placed across a chunk, as one physics event would mark it
+		columns = new long[ 4 ];
+		for ( int z = 7; z < 10; z++ ) {
+			for ( int x = 0; x < 16; x++ ) {
+				int index = x + ( z << 4 );
+				columns[ index >> 6 ] |= 1L << ( index & 63 );
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation( SIZE * SIZE )
+	public void processChunk( Blackhole blackhole ) {
+		for ( ChunkSnapshot snapshot : snapshots ) {
+			ChunkData processed = processor.process( snapshot );
+			blackhole.consume( processed );
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation( SIZE * SIZE )
+	public byte[] updateColumns() {
+		for ( int i = 0; i < snapshots.length; i++ ) {
+			processor.process( snapshots[ i ], northSnapshots[ i ], columns, palette, data );
+		}
+		return data;
+	}
+
+	private static long key( int x, int z ) {
+		return ( ( long ) x << 32 ) | ( z & 0xFFFFFFFFL );
+	}
+}
@@ -0,0 +1,103 @@
+package io.github.bananapuncher714.cartographer.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
+
+/**
+ * The color operations done for every pixel of every frame: matching colors to the map palette, dithering and compositing.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ColorBenchmark {
+	private static final int COLORS = 4096;
+	private static final int CANVAS_SIZE = 128 * 128;
+
+	private int[] colors;
+	private int[] overlays;
+	private int[] frame;
+	private int[] layer;
+	private int[] buffer;
+
+	@Setup
+	public void setup() {
+		// Only needs the map palette, which doesn't need a server
+		JetpImageUtil.init();
+		Random random = new Random( 714 );
+		colors = new int[ COLORS ];
+		overlays = new int[ COLORS ];
+		for ( int i = 0; i < COLORS; i++ ) {
+			colors[ i ] = 0xFF000000 | random.nextInt( 0xFFFFFF );
+			// A mix of transparent, translucent and opaque colors
+			overlays[ i ] = ( random.nextInt( 3 ) * 0x7F ) << 24 | random.nextInt( 0xFFFFFF );
+		}
+
+		// A smooth gradient, like an overlay image would have
+		frame = new int[ CANVAS_SIZE ];
+		for ( int y = 0; y < 128; y++ ) {
+			for ( int x = 0; x < 128; x++ ) {
+				frame[ x + ( y << 7 ) ] = 0xFF000000 | ( x * 2 ) << 16 | ( y * 2 ) << 8 | ( ( x + y ) & 0xFF );
+			}
+		}
+		buffer = new int[ CANVAS_SIZE ];
+
+		// Map pixels scattered over a mostly transparent layer
+		layer = new int[ CANVAS_SIZE ];
+		for ( int i = 0; i < CANVAS_SIZE; i++ ) {
+			layer[ i ] = overlays[ i % COLORS ] & ( random.nextInt( 4 ) == 0 ? 0xFFFFFFFF : 0xFFFFFF );
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation( COLORS )
+	public void getBestColor( Blackhole blackhole ) {
+		for ( int color : colors ) {
+			blackhole.consume( JetpImageUtil.getBestColor( color ) );
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation( COLORS )
+	public void overwriteColor( Blackhole blackhole ) {
+		for ( int i = 0; i < COLORS; i++ ) {
+			blackhole.consume( JetpImageUtil.overwriteColor( colors[ i ], overlays[ i ] ) );
+		}
+	}
+
+	@Benchmark
+	public int[] overwriteLayer() {
+		JetpImageUtil.overwriteColors( frame, layer, buffer );
+		return buffer;
+	}
+
+	@Benchmark
+	public int[] ditherFrame() {
+		// Dithering works in place, so start from the same frame each time
+		System.arraycopy( frame, 0, buffer, 0, CANVAS_SIZE );
+		JetpImageUtil.dither( buffer, 128 );
+		return buffer;
+	}
+
+	@Benchmark
+	public Object ditherFrameToPalette() {
+		return JetpImageUtil.dither2Minecraft( frame, 128 );
+	}
+}
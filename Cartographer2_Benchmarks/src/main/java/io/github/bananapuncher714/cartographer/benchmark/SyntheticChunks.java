@@ -0,0 +1,127 @@
+package io.github.bananapuncher714.cartographer.benchmark;
+
+import java.awt.Color;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+import io.github.bananapuncher714.cartographer.core.map.palette.MinimapPalette;
+import io.github.bananapuncher714.cartographer.core.util.CrossVersionMaterial;
+
+/**
+ * Procedurally generated chunk snapshots, so chunk processing can be measured without a world.
+ * The same seed and coordinates always give the same terrain.
+ */
+public final class SyntheticChunks {
+	public static final int SEA_LEVEL = 62;
+
+	private static final Map< Material, BlockData > BLOCK_DATA = new EnumMap< Material, BlockData >( Material.class );
+
+	public enum Terrain {
+		/**
+		 * Grass at one height, so every column hits the same section.
+		 */
+		FLAT,
+		/**
+		 * Hills, beaches, flowers and water of varying depth.
+		 */
+		HILLS
+	}
+
+	private SyntheticChunks() {
+	}
+
+	/**
+	 * Create a snapshot of a chunk.
+	 * 
+	 * @param terrain
+	 * The kind of terrain. Cannot be null.
+	 * @param seed
+	 * Offsets the terrain.
+	 * @param chunkX
+	 * Chunk x coordinate.
+	 * @param chunkZ
+	 * Chunk z coordinate.
+	 * @return
+	 * A snapshot in {@link BenchmarkEnvironment#WORLD_NAME}.
+	 */
+	public static ChunkSnapshot create( Terrain terrain, long seed, int chunkX, int chunkZ ) {
+		int[] heights = new int[ 256 ];
+		boolean[] flowers = new boolean[ 256 ];
+		int highest = SEA_LEVEL;
+		for ( int z = 0; z < 16; z++ ) {
+			for ( int x = 0; x < 16; x++ ) {
+				int index = x + ( z << 4 );
+				int blockX = ( chunkX << 4 ) + x;
+				int blockZ = ( chunkZ << 4 ) + z;
+				if ( terrain == Terrain.FLAT ) {
+					heights[ index ] = SEA_LEVEL + 2;
+				} else {
+					double offset = seed * 0.1;
+					heights[ index ] = SEA_LEVEL + ( int ) ( Math.sin( blockX * 0.05 + offset ) * 12 + Math.cos( blockZ * 0.07 - offset ) * 10 + Math.sin( ( blockX + blockZ ) * 0.2 ) * 3 );
+					flowers[ index ] = heights[ index ] > SEA_LEVEL + 1 && ( ( blockX * 31 + blockZ * 17 + seed ) & 15 ) == 0;
+				}
+				highest = Math.max( highest, heights[ index ] + 1 );
+			}
+		}
+		int top = highest;
+
+		return BenchmarkEnvironment.stub( ChunkSnapshot.class, ( method, args ) -> {
+			switch ( method.getName() ) {
+			case "getX": return chunkX;
+			case "getZ": return chunkZ;
+			case "getWorldName": return BenchmarkEnvironment.WORLD_NAME;
+			case "isSectionEmpty": return BenchmarkEnvironment.MIN_HEIGHT + ( ( int ) args[ 0 ] << 4 ) > top;
+			case "getBlockType": return getType( heights, flowers, ( int ) args[ 0 ], ( int ) args[ 1 ], ( int ) args[ 2 ] );
+			case "getBlockData": return getData( getType( heights, flowers, ( int ) args[ 0 ], ( int ) args[ 1 ], ( int ) args[ 2 ] ) );
+			default: return null;
+			}
+		} );
+	}
+
+	/**
+	 * Create a palette with colors for every block the terrain uses.
+	 * 
+	 * @return
+	 * A new palette.
+	 */
+	public static MinimapPalette palette() {
+		MinimapPalette palette = new MinimapPalette();
+		palette.setColor( new CrossVersionMaterial( Material.GRASS_BLOCK ), new Color( 127, 178, 56 ) );
+		palette.setColor( new CrossVersionMaterial( Material.SAND ), new Color( 247, 233, 163 ) );
+		palette.setColor( new CrossVersionMaterial( Material.STONE ), new Color( 112, 112, 112 ) );
+		palette.setColor( new CrossVersionMaterial( Material.WATER ), new Color( 64, 64, 255 ) );
+		palette.addTransparentMaterial( new CrossVersionMaterial( Material.AIR ) );
+		palette.addTransparentMaterial( new CrossVersionMaterial( Material.POPPY ) );
+		return palette;
+	}
+
+	private static Material getType( int[] heights, boolean[] flowers, int x, int y, int z ) {
+		int index = x + ( z << 4 );
+		int height = heights[ index ];
+		if ( y > height ) {
+			if ( y <= SEA_LEVEL ) {
+				return Material.WATER;
+			} else if ( y == height + 1 && flowers[ index ] ) {
+				return Material.POPPY;
+			}
+			return Material.AIR;
+		} else if ( y == height ) {
+			return height <= SEA_LEVEL + 1 ? Material.SAND : Material.GRASS_BLOCK;
+		}
+		return Material.STONE;
+	}
+
+	private static synchronized BlockData getData( Material material ) {
+		BlockData data = BLOCK_DATA.get( material );
+		if ( data == null ) {
+			// None of the blocks used can be waterlogged
+			data = BenchmarkEnvironment.stub( BlockData.class, ( method, args ) -> method.getName().equals( "getMaterial" ) ? material : null );
+			BLOCK_DATA.put( material, data );
+		}
+		return data;
+	}
+}
@@ -0,0 +1,132 @@
+package io.github.bananapuncher714.cartographer.core.renderer;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.bananapuncher714.cartographer.benchmark.BenchmarkEnvironment;
+import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
+import io.github.bananapuncher714.cartographer.core.api.WorldPixel;
+import io.github.bananapuncher714.cartographer.core.map.Minimap;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings;
+import io.github.bananapuncher714.cartographer.core.map.process.ChunkData;
+import io.github.bananapuncher714.cartographer.core.map.process.ChunkDataStorage;
+import io.github.bananapuncher714.cartographer.core.map.process.DataCache;
+import io.github.bananapuncher714.cartographer.core.map.process.MipMapChunkDataStorage;
+import io.github.bananapuncher714.cartographer.core.map.process.SimpleChunkDataStorage;
+import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
+
+/**
+ * How long one frame of a minimap takes to render, with every chunk already processed.
+ * Lives in the renderer package since the render task and its info are not public.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class RenderBenchmark {
+	// Enough chunks to cover the map at the largest scale
+	private static final int RADIUS = 32;
+	private static final int MIPMAP_LEVELS = 4;
+
+	@Param( { "0.5", "1", "4" } )
+	public double scale;
+
+	@Param( { "0", "256" } )
+	public int worldPixels;
+
+	@Param( { "true", "false" } )
+	public boolean rotating;
+
+	private DataCache cache;
+	private Minimap minimap;
+	private PlayerSetting setting;
+	private List< WorldPixel > pixels;
+	private int step;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		World world = BenchmarkEnvironment.install();
+
+		Random random = new Random( 714 );
+		int largest = JetpImageUtil.getLargestColorVal();
+		ChunkDataStorage storage = new MipMapChunkDataStorage( new SimpleChunkDataStorage(), MIPMAP_LEVELS );
+		for ( int x = -RADIUS; x <= RADIUS; x++ ) {
+			for ( int z = -RADIUS; z <= RADIUS; z++ ) {
+				byte[] data = new byte[ 256 ];
+				for ( int i = 0; i < data.length; i++ ) {
+					// Skip the transparent colors
+					data[ i ] = ( byte ) ( 4 + random.nextInt( largest - 3 ) );
+				}
+				storage.store( new ChunkLocation( world, x, z ), new ChunkData( data ) );
+			}
+		}
+
+		cache = BenchmarkEnvironment.stub( DataCache.class, ( method, args ) -> {
+			switch ( method.getName() ) {
+			case "getStorage": return storage;
+			case "getDataAt": return args.length == 3 ? storage.get( ( String ) args[ 0 ], ( int ) args[ 1 ], ( int ) args[ 2 ] ) : storage.get( ( ChunkLocation ) args[ 0 ] );
+			default: return null;
+			}
+		} );
+
+		// Only the id and timings are needed, the id to tell whether the terrain of the last frame can be reused
+		minimap = BenchmarkEnvironment.allocate( Minimap.class );
+		BenchmarkEnvironment.setField( Minimap.class, minimap, "id", "benchmark" );
+		BenchmarkEnvironment.setField( Minimap.class, minimap, "timings", new MinimapTimings() );
+
+		setting = new PlayerSetting( null, UUID.randomUUID(), "benchmark", new Location( world, 0, 64, 0 ) );
+		setting.rotating = rotating;
+		setting.zoomscale = scale;
+
+		pixels = new ArrayList< WorldPixel >();
+		for ( int i = 0; i < worldPixels; i++ ) {
+			WorldPixel pixel = new WorldPixel( world, random.nextInt( 256 ) - 128, random.nextInt( 256 ) - 128, new Color( random.nextInt( 0xFFFFFF ) | 0x80000000, true ) );
+			pixel.setWidth( 1 + random.nextInt( 8 ) );
+			pixel.setHeight( 1 + random.nextInt( 8 ) );
+			pixels.add( pixel );
+		}
+	}
+
+	@Benchmark
+	public RenderInfo renderFrame() {
+		// Walk in a square, so moving maps scroll a few pixels every frame
+		step = ( step + 1 ) & 0xFF;
+		setting.location.setX( step * 0.7 );
+		setting.location.setZ( step * 0.3 );
+		setting.location.setYaw( step * 1.4f );
+
+		RenderInfo info = new RenderInfo();
+		info.setting = setting;
+		info.uuid = setting.playerUUID;
+		info.map = minimap;
+		info.cache = cache;
+		// The task removes whatever is out of view, so it needs its own copy
+		info.worldPixels = new ArrayList< WorldPixel >( pixels );
+		info.mapPixels = Collections.emptyList();
+		info.worldCursors = Collections.emptyList();
+		info.mapCursors = Collections.emptyList();
+
+		return new FullRenderTask( info ).compute();
+	}
+}
@@ -5,14 +5,17 @@ import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 
 import org.bstats.bukkit.Metrics;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
@@ -36,6 +39,8 @@ import io.github.bananapuncher714.cartographer.core.map.palette.MinimapPalette;
 import io.github.bananapuncher714.cartographer.core.map.palette.PaletteManager;
 import io.github.bananapuncher714.cartographer.core.map.palette.PaletteManager.ColorType;
 import io.github.bananapuncher714.cartographer.core.map.process.ChunkLoadListener;
+import io.github.bananapuncher714.cartographer.core.map.process.ChunkProcessingScheduler;
+import io.github.bananapuncher714.cartographer.core.map.process.DirtyColumnQueue;
 import io.github.bananapuncher714.cartographer.core.renderer.CartographerRenderer;
 import io.github.bananapuncher714.cartographer.core.util.FileUtil;
 import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
@@ -49,6 +54,7 @@ public class Cartographer extends JavaPlugin {
 	private static File MAP_DIR;
 	private static File CACHE_DIR;
 	private static File LOCALE_DIR;
+	private static File LOOKUP_DIR;
 	
 	private static File README_FILE;
 	private static File CONFIG_FILE;
@@ -72,6 +78,7 @@ public class Cartographer extends JavaPlugin {
 	private CartographerSettings settings;
 	
 	private ForkJoinPool threadpool;
+	private ChunkProcessingScheduler chunkScheduler;
 	
 	// List of all running timers
 	private Set< BukkitTask > tasks = new HashSet< BukkitTask >();
@@ -112,13 +119,14 @@ public class Cartographer extends JavaPlugin {
 		MAP_DIR = new File( getDataFolder() + "/" + "maps/" );
 		CACHE_DIR = new File( getDataFolder() + "/" + "players/" );
 		LOCALE_DIR = new File( getDataFolder() + "/" + "locale/" );
+		LOOKUP_DIR = new File( getDataFolder() + "/" + "cache/" );
 		
 		README_FILE = new File( getDataFolder(), "README.md" );
 		CONFIG_FILE = new File( getDataFolder(), "config.yml" );
 		DATA_FILE = new File( getDataFolder(), "data.yml" );
 		LOCALE_README_FILE = new File( LOCALE_DIR, "README.md" );
 		
-		JetpImageUtil.init();
+		JetpImageUtil.init( LOOKUP_DIR );
 		
 		// Save the locale files
 		loadLocaleFiles();
@@ -192,6 +200,10 @@ public class Cartographer extends JavaPlugin {
 		if ( threadpool != null ) {
 			threadpool.shutdownNow();
 		}
+		
+		if ( chunkScheduler != null ) {
+			chunkScheduler.terminate();
+		}
 	}
 	
 	protected void onServerLoad() {
@@ -377,6 +389,7 @@ public class Cartographer extends JavaPlugin {
 		
 		settings.setBlockUpdateDelay( config.getInt( "block-update.tick-delay", 5 ) );
 		settings.setBlockUpdateAmount( config.getInt( "block-update.update-amount", 20 ) );
+		settings.setBlockUpdateTimeBudget( Math.max( 0, config.getDouble( "block-update.time-budget", 2 ) ) );
 
 		settings.setPreventDrop( config.getBoolean( "prevent-drop", true ) );
 		settings.setUseDropPacket( config.getBoolean( "use-drop-packet", true ) );
@@ -384,6 +397,7 @@ public class Cartographer extends JavaPlugin {
 		settings.setRendererMultithread( config.getBoolean( "renderer.multithread.enabled", true ) );
 		settings.setRendererThreadcount( config.getInt( "renderer.multithread.threadcount", 4 ) );
 		settings.setUseSubtasks( config.getBoolean( "renderer.use-subtasks", false ) );
+		settings.setPartialUpdates( config.getBoolean( "renderer.partial-updates", true ) );
 		
 		OVERLAY_IMAGE = new File( getDataFolder() + "/" + config.getString( "images.overlay", "overlay.gif" ) );
 		BACKGROUND_IMAGE = new File( getDataFolder() + "/" + config.getString( "images.background", "background.gif" ) );
@@ -396,6 +410,9 @@ public class Cartographer extends JavaPlugin {
 		
 		// Chunk load settings
 		settings.setChunkUpdateDelay( config.getInt( "chunk.update-delay", 10 ) );
+		settings.setChunkProcessingThreads( Math.max( 1, config.getInt( "chunk.processing.threads", 2 ) ) );
+		settings.setChunkProcessingQueueSize( Math.max( 1, config.getInt( "chunk.processing.queue-size", 1024 ) ) );
+		settings.setChunkIOThreads( Math.max( 1, config.getInt( "chunk.processing.io-threads", 2 ) ) );
 		ChunkLoadListener.INSTANCE.setForceLoad( config.getBoolean( "chunk.force-load", false ) );
 		ChunkLoadListener.INSTANCE.setCacheAmount( config.getInt( "chunk.cache-per-update", 50 ) );
 		ChunkLoadListener.INSTANCE.setLoadAmount( config.getInt( "chunk.load-per-update", 20 ) );
@@ -532,6 +549,29 @@ public class Cartographer extends JavaPlugin {
 			threadpool.shutdownNow();
 		}
 		threadpool = new ForkJoinPool( settings.getRendererThreadcount() );
+		
+		// Minimaps hold on to the scheduler's services, so keep the same one across reloads
+		if ( chunkScheduler == null ) {
+			chunkScheduler = new ChunkProcessingScheduler( settings.getChunkProcessingThreads(), settings.getChunkProcessingQueueSize(), settings.getChunkIOThreads() );
+		} else {
+			chunkScheduler.setParallelism( settings.getChunkProcessingThreads() );
+			chunkScheduler.setCapacity( settings.getChunkProcessingQueueSize() );
+			chunkScheduler.setIOThreads( settings.getChunkIOThreads() );
+		}
+		tasks.add( Bukkit.getScheduler().runTaskTimer( this, this::updateViewers, 1, 10 ) );
+	}
+	
+	private void updateViewers() {
+		List< Location > viewers = new ArrayList< Location >();
+		for ( Player player : Bukkit.getOnlinePlayers() ) {
+			for ( CartographerRenderer renderer : renderers.values() ) {
+				if ( renderer.isViewing( player.getUniqueId() ) ) {
+					viewers.add( player.getLocation() );
+					break;
+				}
+			}
+		}
+		chunkScheduler.setViewers( viewers );
 	}
 	
 	private void loggerInfo( String key, Object... params ) {
@@ -657,6 +697,20 @@ public class Cartographer extends JavaPlugin {
 		return threadpool;
 	}
 	
+	public ChunkProcessingScheduler getChunkScheduler() {
+		return chunkScheduler;
+	}
+	
+	/**
+	 * Get the block updates that are waiting to be sent to the minimaps. Must only be used on the main thread.
+	 * 
+	 * @return
+	 * The dirty columns of each chunk.
+	 */
+	public DirtyColumnQueue getBlockUpdateQueue() {
+		return playerListener.dirtyColumns;
+	}
+	
 	public static Cartographer getInstance() {
 		return INSTANCE;
 	}
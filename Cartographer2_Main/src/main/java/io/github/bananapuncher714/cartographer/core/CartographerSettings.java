@@ -15,10 +15,18 @@ public class CartographerSettings {
 	private Set< InventoryType > invalidInventoryTypes = new HashSet< InventoryType >();
 	
 	private int chunkUpdateDelay = 10;
+	// Threads shared by every minimap for processing chunks
+	private int chunkProcessingThreads = 2;
+	// How many chunks can wait to be processed
+	private int chunkProcessingQueueSize = 1024;
+	// Threads shared by every minimap for reading and writing files
+	private int chunkIOThreads = 2;
 	// How long in ticks to update blocks on the map
 	private int blockUpdateDelay = 10;
-	// How many blocks to update per update tick
+	// How many columns to update per update tick
 	private int blockUpdateAmount = 20;
+	// How long in milliseconds block updates can take per update tick
+	private double blockUpdateTimeBudget = 2;
 	// How long in ticks until the map can be updated again
 	private int renderDelay;
 	// How many blocks can be updated at most per tick
@@ -43,6 +51,8 @@ public class CartographerSettings {
 	private boolean rendererMultithread = true;
 	private int rendererThreadcount = 4;
 	private boolean useSubtasks = false;
+	// Only send the part of the map that changed since the last frame
+	private boolean partialUpdates = true;
 	
 	protected Set< Integer > getInvalidIds() {
 		return invalidIds;
@@ -112,6 +122,30 @@ public class CartographerSettings {
 		chunkUpdateDelay = delay;
 	}
 	
+	public int getChunkProcessingThreads() {
+		return chunkProcessingThreads;
+	}
+	
+	public void setChunkProcessingThreads( int threads ) {
+		chunkProcessingThreads = threads;
+	}
+	
+	public int getChunkProcessingQueueSize() {
+		return chunkProcessingQueueSize;
+	}
+	
+	public void setChunkProcessingQueueSize( int size ) {
+		chunkProcessingQueueSize = size;
+	}
+	
+	public int getChunkIOThreads() {
+		return chunkIOThreads;
+	}
+	
+	public void setChunkIOThreads( int threads ) {
+		chunkIOThreads = threads;
+	}
+	
 	public int getBlockUpdateDelay() {
 		return blockUpdateDelay;
 	}
@@ -128,6 +162,14 @@ public class CartographerSettings {
 		blockUpdateAmount = amount;
 	}
 	
+	public double getBlockUpdateTimeBudget() {
+		return blockUpdateTimeBudget;
+	}
+	
+	public void setBlockUpdateTimeBudget( double budget ) {
+		blockUpdateTimeBudget = budget;
+	}
+	
 	public SimpleImage getBackground() {
 		// TODO Specify that this is 128x128
 		return loadingBackground;
@@ -193,4 +235,12 @@ public class CartographerSettings {
 	public void setUseSubtasks( boolean useSubtasks ) {
 		this.useSubtasks = useSubtasks;
 	}
+
+	public boolean isPartialUpdates() {
+		return partialUpdates;
+	}
+
+	public void setPartialUpdates( boolean partialUpdates ) {
+		this.partialUpdates = partialUpdates;
+	}
 }
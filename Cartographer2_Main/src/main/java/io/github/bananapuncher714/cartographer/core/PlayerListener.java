@@ -1,11 +1,14 @@
 package io.github.bananapuncher714.cartographer.core;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -23,11 +26,12 @@ import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
 import io.github.bananapuncher714.cartographer.core.map.Minimap;
 import io.github.bananapuncher714.cartographer.core.map.menu.MapInteraction;
 import io.github.bananapuncher714.cartographer.core.map.menu.MapMenu;
+import io.github.bananapuncher714.cartographer.core.map.process.DirtyColumnQueue;
 import io.github.bananapuncher714.cartographer.core.renderer.CartographerRenderer;
 
 public class PlayerListener implements Listener {
 	protected Cartographer plugin;
-	protected Set< Location > updateSet = new HashSet< Location >();
+	protected DirtyColumnQueue dirtyColumns = new DirtyColumnQueue();
 	
 	protected PlayerListener( Cartographer plugin ) {
 		this.plugin = plugin;
@@ -37,15 +41,51 @@ public class PlayerListener implements Listener {
 		int updateAmount = plugin.getSettings().getBlockUpdateAmount();
 		
 		if ( updateAmount == 0 ) {
-			updateSet.clear();
-		} else {
-			Location[] updateArr = new Location[ Math.min( updateSet.size(), updateAmount ) ];
-			Iterator< Location > updateIterator = updateSet.iterator();
-			for ( int i = 0; i < updateArr.length && updateIterator.hasNext(); i++ ) {
-				updateArr[ i ] = updateIterator.next();
-				updateIterator.remove();
+			dirtyColumns.clear();
+			return;
+		}
+		
+		List< Minimap > minimaps = new ArrayList< Minimap >();
+		for ( Minimap minimap : plugin.getMapManager().getMinimaps().values() ) {
+			if ( minimap.getSettings().isAutoUpdate() ) {
+				minimaps.add( minimap );
 			}
-			updateMap( updateArr );
+		}
+		if ( minimaps.isEmpty() ) {
+			dirtyColumns.clear();
+			return;
+		}
+		
+		// A budget of 0 means there is no time limit
+		double budget = plugin.getSettings().getBlockUpdateTimeBudget();
+		long deadline = budget > 0 ? System.nanoTime() + ( long ) ( budget * 1_000_000 ) : Long.MAX_VALUE;
+		// Neighboring chunks tend to be dirty together, so share their snapshots
+		Map< ChunkLocation, ChunkSnapshot > snapshots = new HashMap< ChunkLocation, ChunkSnapshot >();
+		int updated = 0;
+		// Always get through at least one chunk, so the queue can't grow forever
+		while ( updated < updateAmount && !dirtyColumns.isEmpty() && ( updated == 0 || System.nanoTime() < deadline ) ) {
+			Entry< ChunkLocation, long[] > entry = dirtyColumns.poll();
+			ChunkLocation location = entry.getKey();
+			long[] columns = entry.getValue();
+			// Don't load locations that don't exist
+			if ( !location.isLoaded() || !isShown( minimaps, location.getWorldName() ) ) {
+				continue;
+			}
+			
+			ChunkSnapshot snapshot = getSnapshot( snapshots, location );
+			ChunkSnapshot north = null;
+			// The first row is shaded by the last row of the chunk to the north
+			if ( ( columns[ 0 ] & 0xFFFF ) != 0 ) {
+				ChunkLocation northLocation = new ChunkLocation( location.getWorld(), location.getX(), location.getZ() - 1 );
+				if ( northLocation.isLoaded() ) {
+					north = getSnapshot( snapshots, northLocation );
+				}
+			}
+			
+			for ( Minimap minimap : minimaps ) {
+				minimap.updateColumns( location, snapshot, north, columns );
+			}
+			updated += DirtyColumnQueue.count( columns );
 		}
 	}
 	
@@ -129,17 +169,14 @@ public class PlayerListener implements Listener {
 		}
 	}
 	
-	// This is probably the laggiest part of the plugin, mostly since the BlockPhysicsEvent fires a ton
-	// The more players, or the more stuff going on the more lag, but the solution is just to get a better computer
+	// The BlockPhysicsEvent fires a ton, so this only flips a bit for the column and leaves everything else to the next update
 	@EventHandler
 	private void onBlockPhysicsEvent( BlockPhysicsEvent event ) {
-		if ( Cartographer.getInstance().getHandler().getUtil().updateEvent( event ) ) {
-			Bukkit.getScheduler().runTask( plugin, new Runnable() {
-				@Override
-				public void run() {
-					addLocation( event.getBlock().getLocation() );
-				}
-			} );
+		// Only update if the map requests it
+		if ( plugin.getSettings().getBlockUpdateDelay() > 0 && Cartographer.getInstance().getHandler().getUtil().updateEvent( event ) ) {
+			// The block changes after the event, but the columns aren't read until the next update anyways
+			Block block = event.getBlock();
+			dirtyColumns.mark( block.getWorld(), block.getX(), block.getZ() );
 		}
 	}
 	
@@ -155,22 +192,21 @@ public class PlayerListener implements Listener {
 		plugin.getHandler().uninject( event.getPlayer() );
 	}
 	
-	private void addLocation( Location location ) {
-		// Only update if the map requests it
-		if ( plugin.getSettings().getBlockUpdateDelay() > 0 ) {
-			updateSet.add( new Location( location.getWorld(), location.getBlockX(), 0, location.getBlockZ() ) );
+	private boolean isShown( List< Minimap > minimaps, String world ) {
+		for ( Minimap minimap : minimaps ) {
+			if ( !minimap.getSettings().isBlacklisted( world ) ) {
+				return true;
+			}
 		}
+		return false;
 	}
 	
-	private void updateMap( Location... locations ) {
-		for ( Location location : locations ) {
-			ChunkLocation cLoc = new ChunkLocation( location );
-			// Don't load locations that don't exist
-			if ( cLoc.isLoaded() ) {
-				for ( Minimap minimap : plugin.getMapManager().getMinimaps().values() ) {
-						minimap.updateLocation( location );
-				}
-			}
+	private ChunkSnapshot getSnapshot( Map< ChunkLocation, ChunkSnapshot > snapshots, ChunkLocation location ) {
+		ChunkSnapshot snapshot = snapshots.get( location );
+		if ( snapshot == null ) {
+			snapshot = location.getChunk().getChunkSnapshot();
+			snapshots.put( location, snapshot );
 		}
+		return snapshot;
 	}
 }
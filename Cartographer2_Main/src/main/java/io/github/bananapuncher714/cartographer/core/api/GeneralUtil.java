@@ -10,6 +10,7 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.map.MapView;
 
+import io.github.bananapuncher714.cartographer.core.map.palette.CompiledPalette;
 import io.github.bananapuncher714.cartographer.core.util.CrossVersionMaterial;
 
 /**
@@ -138,6 +139,46 @@ public interface GeneralUtil {
 	 */
 	CrossVersionMaterial getBlockType( ChunkSnapshot snapshot, int x, int y, int z );
 	
+	/**
+	 * Get the height of the first block in a column, from the top down, that is either water or not transparent in the palette.
+	 * Empty sections of the snapshot are skipped entirely.
+	 * 
+	 * @param snapshot
+	 * Cannot be null.
+	 * @param x
+	 * Local x value from 0 to 15.
+	 * @param y
+	 * The y value to start at.
+	 * @param z
+	 * Local z value from 0 to 15.
+	 * @param palette
+	 * The palette that decides which blocks are transparent. Cannot be null.
+	 * @param min
+	 * The min y of the world.
+	 * @return
+	 * The y value of the block, or the min if there is none.
+	 */
+	default int getHighestYAt( ChunkSnapshot snapshot, int x, int y, int z, CompiledPalette palette, int min ) {
+		while ( y > min ) {
+			int section = ( y - min ) >> 4;
+			if ( snapshot.isSectionEmpty( section ) ) {
+				// Continue from the top of the section below
+				y = min + ( section << 4 ) - 1;
+				continue;
+			}
+			
+			if ( isWater( snapshot, x, y, z ) ) {
+				return y;
+			}
+			CrossVersionMaterial material = getBlockType( snapshot, x, y, z );
+			if ( !palette.isTransparent( material.material, material.durability ) ) {
+				return y;
+			}
+			y--;
+		}
+		return Math.max( y, min );
+	}
+	
 	/**
 	 * Get the material type of the item.
 	 * 
@@ -67,7 +67,31 @@ public interface PacketHandler {
 	 * @param uuids
 	 * An array of the UUID of players receiving this data.
 	 */
-	void sendDataTo( int id, byte[] data, MapCursor[] cursors, UUID... uuids );
+	default void sendDataTo( int id, byte[] data, MapCursor[] cursors, UUID... uuids ) {
+		sendDataTo( id, data, cursors, 0, 0, 128, 128, uuids );
+	}
+	
+	/**
+	 * Send a rectangular patch of map data to the client. Pixels outside of the patch are left untouched on the client.
+	 * 
+	 * @param id
+	 * The id of the Bukkit MapView.
+	 * @param data
+	 * An array of data with size of width * height, in rows. Can be null if width or height is 0.
+	 * @param cursors
+	 * An array of MapCursors on the map.
+	 * @param x
+	 * The left column of the patch, from 0 to 127.
+	 * @param y
+	 * The top row of the patch, from 0 to 127.
+	 * @param width
+	 * The width of the patch. A width of 0 only updates the cursors.
+	 * @param height
+	 * The height of the patch. A height of 0 only updates the cursors.
+	 * @param uuids
+	 * An array of the UUID of players receiving this data.
+	 */
+	void sendDataTo( int id, byte[] data, MapCursor[] cursors, int x, int y, int width, int height, UUID... uuids );
 	
 	/**
 	 * Get the vanilla MinimapPalette, per version.
@@ -5,6 +5,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.imageio.ImageIO;
 
@@ -30,6 +31,11 @@ public class SimpleImage {
 	private final int frameCount;
 	private final int totalTime;
 	
+	// Copies of each frame that are only made the first time they are needed, since they never change
+	private final AtomicReferenceArray< int[] > ditheredImages;
+	private final AtomicReferenceArray< byte[] > ditheredData;
+	private final AtomicReferenceArray< byte[] > matchedData;
+	
 	public SimpleImage( File file ) throws IOException {
 		Validate.notNull( file );
 		Validate.isTrue( file.exists() );
@@ -70,6 +76,9 @@ public class SimpleImage {
 			totalTime = 0;
 		}
 		
+		ditheredImages = new AtomicReferenceArray< int[] >( frameCount );
+		ditheredData = new AtomicReferenceArray< byte[] >( frameCount );
+		matchedData = new AtomicReferenceArray< byte[] >( frameCount );
 		time = System.currentTimeMillis();
 	}
 	
@@ -125,6 +134,9 @@ public class SimpleImage {
 			totalTime = 0;
 		}
 		
+		ditheredImages = new AtomicReferenceArray< int[] >( frameCount );
+		ditheredData = new AtomicReferenceArray< byte[] >( frameCount );
+		matchedData = new AtomicReferenceArray< byte[] >( frameCount );
 		time = System.currentTimeMillis();
 	}
 	
@@ -151,6 +163,9 @@ public class SimpleImage {
 		frameCount = 1;
 		
 		totalTime = 0;
+		ditheredImages = new AtomicReferenceArray< int[] >( frameCount );
+		ditheredData = new AtomicReferenceArray< byte[] >( frameCount );
+		matchedData = new AtomicReferenceArray< byte[] >( frameCount );
 		time = System.currentTimeMillis();
 	}
 	
@@ -183,6 +198,10 @@ public class SimpleImage {
 			data[ i ] = JetpImageUtil.getRGBArray( rescaledImg );
 			delays[ i ] = image.delays[ i ];
 		}
+		
+		ditheredImages = new AtomicReferenceArray< int[] >( frameCount );
+		ditheredData = new AtomicReferenceArray< byte[] >( frameCount );
+		matchedData = new AtomicReferenceArray< byte[] >( frameCount );
 	}
 	
 	/**
@@ -229,6 +248,96 @@ public class SimpleImage {
 		return data[ index ];
 	}
 	
+	/**
+	 * Get the ARGB buffer for the current image, dithered to the colors of the map palette.
+	 * 
+	 * @return
+	 * The same buffer every time for each frame, so it must not be modified.
+	 */
+	public int[] getDitheredImage() {
+		return getDitheredImage( getIndex() );
+	}
+	
+	/**
+	 * Get the ARGB buffer at the given index, dithered to the colors of the map palette.
+	 * 
+	 * @param index
+	 * The index of the buffer.
+	 * @return
+	 * The same buffer every time for each frame, so it must not be modified.
+	 */
+	public int[] getDitheredImage( int index ) {
+		int[] image = ditheredImages.get( index );
+		if ( image == null ) {
+			// Dithering the same frame twice at once gives the same result, so it doesn't matter which one is kept
+			image = data[ index ].clone();
+			JetpImageUtil.dither( image, width );
+			ditheredImages.set( index, image );
+		}
+		return image;
+	}
+	
+	/**
+	 * Get the map colors for the current image, dithered.
+	 * 
+	 * @return
+	 * The same colors every time for each frame, so they must not be modified. Mostly transparent pixels are transparent.
+	 */
+	public byte[] getDitheredData() {
+		return getDitheredData( getIndex() );
+	}
+	
+	/**
+	 * Get the map colors at the given index, dithered.
+	 * 
+	 * @param index
+	 * The index of the colors.
+	 * @return
+	 * The same colors every time for each frame, so they must not be modified. Mostly transparent pixels are transparent.
+	 */
+	public byte[] getDitheredData( int index ) {
+		byte[] colors = ditheredData.get( index );
+		if ( colors == null ) {
+			int[] image = data[ index ];
+			colors = JetpImageUtil.dither2Minecraft( image, width ).array();
+			// Copy over transparent pixels
+			for ( int i = 0; i < image.length; i++ ) {
+				if ( ( ( image[ i ] >>> 24 ) & 0xFF ) < 128 ) {
+					colors[ i ] = 1;
+				}
+			}
+			ditheredData.set( index, colors );
+		}
+		return colors;
+	}
+	
+	/**
+	 * Get the closest map colors for the current image.
+	 * 
+	 * @return
+	 * The same colors every time for each frame, so they must not be modified.
+	 */
+	public byte[] getMatchedData() {
+		return getMatchedData( getIndex() );
+	}
+	
+	/**
+	 * Get the closest map colors at the given index.
+	 * 
+	 * @param index
+	 * The index of the colors.
+	 * @return
+	 * The same colors every time for each frame, so they must not be modified.
+	 */
+	public byte[] getMatchedData( int index ) {
+		byte[] colors = matchedData.get( index );
+		if ( colors == null ) {
+			colors = JetpImageUtil.simplifyTransparent( data[ index ] );
+			matchedData.set( index, colors );
+		}
+		return colors;
+	}
+	
 	protected int getIndex() {
 		if ( totalTime == 0 ) {
 			return 0;
@@ -1,7 +1,13 @@
 package io.github.bananapuncher714.cartographer.core.command;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.bukkit.ChatColor;
@@ -22,6 +28,10 @@ import io.github.bananapuncher714.cartographer.core.command.validator.InputValid
 import io.github.bananapuncher714.cartographer.core.command.validator.InputValidatorMinimapFile;
 import io.github.bananapuncher714.cartographer.core.locale.LocaleConstants;
 import io.github.bananapuncher714.cartographer.core.map.Minimap;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings.Phase;
+import io.github.bananapuncher714.cartographer.core.map.process.ChunkProcessingScheduler;
+import io.github.bananapuncher714.cartographer.core.util.LatencyHistogram;
 
 /**
  * Base Cartographer command.
@@ -29,6 +39,10 @@ import io.github.bananapuncher714.cartographer.core.map.Minimap;
  * @author BananaPuncher714
  */
 public class CommandCartographer {
+	// How many of the slowest providers to show per minimap
+	private static final int TIMINGS_PROVIDERS = 5;
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+	
 	private Cartographer plugin;
 	private CommandSettings settingsCommand;
 	private CommandModule moduleCommand;
@@ -117,6 +131,20 @@ public class CommandCartographer {
 								.defaultTo( this::unload ) )
 						.whenUnknown( new CommandExecutableMessageLocale( LocaleConstants.COMMAND_MESSAGE_INVALID_MINIMAP ) )
 						.defaultTo( new CommandExecutableMessageLocale( LocaleConstants.COMMAND_CARTOGRAPHER_UNLOAD_USAGE ) ) )
+				.add( new SubCommand( "status" )
+						.addSenderValidator( new SenderValidatorPermission( "cartographer.status" ) )
+						.whenUnknown( new CommandExecutableMessageLocale( LocaleConstants.COMMAND_CARTOGRAPHER_STATUS_USAGE ) )
+						.defaultTo( this::status ) )
+				.add( new SubCommand( "timings" )
+						.addSenderValidator( new SenderValidatorPermission( "cartographer.timings" ) )
+						.add( new SubCommand( "reset" )
+								.whenUnknown( new CommandExecutableMessageLocale( LocaleConstants.COMMAND_CARTOGRAPHER_TIMINGS_USAGE ) )
+								.defaultTo( this::resetTimings ) )
+						.add( new SubCommand( new InputValidatorMinimap( plugin ) )
+								.whenUnknown( new CommandExecutableMessageLocale( LocaleConstants.COMMAND_CARTOGRAPHER_TIMINGS_USAGE ) )
+								.defaultTo( this::timings ) )
+						.whenUnknown( new CommandExecutableMessageLocale( LocaleConstants.COMMAND_MESSAGE_INVALID_MINIMAP ) )
+						.defaultTo( this::timings ) )
 				.add( new SubCommand( "help" )
 						.addSenderValidator( new SenderValidatorPermission( "cartographer.help" ) )
 						.whenUnknown( new CommandExecutableMessageLocale( LocaleConstants.COMMAND_CARTOGRAPHER_HELP_USAGE ) )
@@ -214,6 +242,65 @@ public class CommandCartographer {
 		plugin.getLocaleManager().translateAndSend( sender, LocaleConstants.COMMAND_CARTOGRAPHER_LOAD_SUCCESS, map.getId() );
 	}
 	
+	private void status( CommandSender sender, String[] args, CommandParameters parameters ) {
+		ChunkProcessingScheduler scheduler = plugin.getChunkScheduler();
+		plugin.getLocaleManager().translateAndSend( sender, LocaleConstants.COMMAND_CARTOGRAPHER_STATUS_PROCESSING, scheduler.getQueueSize(), scheduler.getCapacity(), scheduler.getActiveCount(), scheduler.getParallelism(), scheduler.getAverageWait() );
+		plugin.getLocaleManager().translateAndSend( sender, LocaleConstants.COMMAND_CARTOGRAPHER_STATUS_TOTALS, scheduler.getCompletedCount(), scheduler.getDroppedCount(), scheduler.getSupersededCount() );
+	}
+	
+	private void timings( CommandSender sender, String[] args, CommandParameters parameters ) {
+		// /cartographer timings [map]
+		Minimap map = parameters.getLast( Minimap.class );
+		Collection< Minimap > minimaps = map == null ? plugin.getMapManager().getMinimaps().values() : Collections.singleton( map );
+		if ( minimaps.isEmpty() ) {
+			plugin.getLocaleManager().translateAndSend( sender, LocaleConstants.COMMAND_CARTOGRAPHER_LIST_EMPTY );
+			return;
+		}
+		
+		for ( Minimap minimap : minimaps ) {
+			MinimapTimings timings = minimap.getTimings();
+			long seconds = ( System.currentTimeMillis() - timings.getSince() ) / 1000;
+			plugin.getLocaleManager().translateAndSend( sender, LocaleConstants.COMMAND_CARTOGRAPHER_TIMINGS_HEADER, minimap.getId(), seconds );
+			
+			boolean empty = true;
+			for ( Phase phase : Phase.values() ) {
+				LatencyHistogram histogram = timings.getHistogram( phase );
+				long count = histogram.getCount();
+				if ( count > 0 ) {
+					empty = false;
+					plugin.getLocaleManager().translateAndSend( sender, LocaleConstants.COMMAND_CARTOGRAPHER_TIMINGS_PHASE, phase.getDisplayName(), count,
+							histogram.getMean() / NANOS_PER_MILLI,
+							histogram.getPercentile( 50 ) / NANOS_PER_MILLI,
+							histogram.getPercentile( 99 ) / NANOS_PER_MILLI,
+							histogram.getMax() / NANOS_PER_MILLI );
+				}
+			}
+			
+			// Show whichever providers took the most time in total
+			List< Entry< String, LatencyHistogram > > providers = new ArrayList< Entry< String, LatencyHistogram > >( timings.getProviderHistograms().entrySet() );
+			providers.sort( Comparator.comparingDouble( ( Entry< String, LatencyHistogram > entry ) -> entry.getValue().getMean() * entry.getValue().getCount() ).reversed() );
+			for ( Entry< String, LatencyHistogram > entry : providers.subList( 0, Math.min( TIMINGS_PROVIDERS, providers.size() ) ) ) {
+				LatencyHistogram histogram = entry.getValue();
+				String name = entry.getKey().substring( entry.getKey().lastIndexOf( '.' ) + 1 );
+				plugin.getLocaleManager().translateAndSend( sender, LocaleConstants.COMMAND_CARTOGRAPHER_TIMINGS_PROVIDER, name, histogram.getCount(),
+						histogram.getMean() / NANOS_PER_MILLI,
+						histogram.getPercentile( 99 ) / NANOS_PER_MILLI,
+						histogram.getMax() / NANOS_PER_MILLI );
+			}
+			
+			if ( empty && providers.isEmpty() ) {
+				plugin.getLocaleManager().translateAndSend( sender, LocaleConstants.COMMAND_CARTOGRAPHER_TIMINGS_EMPTY, minimap.getId() );
+			}
+		}
+	}
+	
+	private void resetTimings( CommandSender sender, String[] args, CommandParameters parameters ) {
+		for ( Minimap minimap : plugin.getMapManager().getMinimaps().values() ) {
+			minimap.getTimings().reset();
+		}
+		plugin.getLocaleManager().translateAndSend( sender, LocaleConstants.COMMAND_CARTOGRAPHER_TIMINGS_RESET );
+	}
+	
 	private void help( CommandSender sender, String[] args, CommandParameters parameters ) {
 		for ( int i = 0; i < 20; i++ ) {
 			plugin.getLocaleManager().translateAndSend( sender, String.format( LocaleConstants.COMMAND_CARTOGRAPHER_HELP_FORMAT, i ) );
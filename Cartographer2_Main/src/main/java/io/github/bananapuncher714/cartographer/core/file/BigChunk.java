@@ -87,4 +87,30 @@ public class BigChunk implements Serializable {
 	public ChunkData[] getData() {
 		return chunks;
 	}
+	
+	/**
+	 * Remove every {@link ChunkData} that hasn't changed since it was read from or written to file.
+	 */
+	public void removeClean() {
+		for ( int i = 0; i < chunks.length; i++ ) {
+			if ( chunks[ i ] != null && !chunks[ i ].isDirty() ) {
+				chunks[ i ] = null;
+			}
+		}
+	}
+	
+	/**
+	 * Check if there is any {@link ChunkData} at all.
+	 * 
+	 * @return
+	 * True if every chunk is null.
+	 */
+	public boolean isEmpty() {
+		for ( ChunkData data : chunks ) {
+			if ( data != null ) {
+				return false;
+			}
+		}
+		return true;
+	}
 }
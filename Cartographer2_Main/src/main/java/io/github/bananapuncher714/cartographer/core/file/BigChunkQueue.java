@@ -1,23 +1,34 @@
 package io.github.bananapuncher714.cartographer.core.file;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 import org.apache.commons.lang.Validate;
 
+import io.github.bananapuncher714.cartographer.core.Cartographer;
 import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings.Phase;
 import io.github.bananapuncher714.cartographer.core.map.process.DataCache;
 import io.github.bananapuncher714.cartographer.core.map.process.MapDataCache;
 import io.github.bananapuncher714.cartographer.core.util.FileUtil;
@@ -28,14 +39,19 @@ import io.github.bananapuncher714.cartographer.core.util.FileUtil;
  * @author BananaPuncher714
  */
 public class BigChunkQueue {
-	protected final ExecutorService savingService = Executors.newFixedThreadPool( 2 );
-	protected final ExecutorService loadingService = Executors.newFixedThreadPool( 2 );
+	// How long to wait for everything to be saved when shutting down
+	protected static final long SHUTDOWN_TIMEOUT = TimeUnit.MINUTES.toNanos( 3 );
+	protected static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos( 5 );
+	
+	protected final ExecutorService service;
 	
 	protected Map< BigChunkLocation, Future< BigChunk > > loading = new ConcurrentHashMap< BigChunkLocation, Future< BigChunk > >();
 	protected Map< BigChunkLocation, Future< Boolean > > saving = new ConcurrentHashMap< BigChunkLocation, Future< Boolean > >();
 	
 	protected DataCache cache;
 	protected Path saveLocation;
+	protected final MappedRegionStore store = new MappedRegionStore();
+	protected volatile MinimapTimings timings;
 	
 	/**
 	 * Construct a BigChunkQueue from the arguments provided. 
@@ -46,10 +62,36 @@ public class BigChunkQueue {
 	 * The {@link MapDataCache} containing the data. Cannot be null.
 	 */
 	public BigChunkQueue( Path saveFile, DataCache cache ) {
+		this( saveFile, cache, Cartographer.getInstance().getChunkScheduler().getIOService() );
+	}
+	
+	/**
+	 * Construct a BigChunkQueue from the arguments provided. 
+	 * 
+	 * @param saveFile
+	 * The directory to save {@link BigChunk} in. Cannot be null.
+	 * @param cache
+	 * The {@link MapDataCache} containing the data. Cannot be null.
+	 * @param service
+	 * The executor to read and write files with, which may be shared. Cannot be null.
+	 */
+	public BigChunkQueue( Path saveFile, DataCache cache, ExecutorService service ) {
 		Validate.notNull( saveFile );
 		Validate.notNull( cache );
+		Validate.notNull( service );
 		saveLocation = saveFile;
 		this.cache = cache;
+		this.service = service;
+	}
+	
+	/**
+	 * Set where to record how long reading and writing files takes.
+	 * 
+	 * @param timings
+	 * The timings of the minimap, or null to not record anything.
+	 */
+	public void setTimings( MinimapTimings timings ) {
+		this.timings = timings;
 	}
 	
 	/**
@@ -68,29 +110,129 @@ public class BigChunkQueue {
 			return false;
 		}
 		Validate.notNull( data );
-		saving.put( coord, savingService.submit( new TaskChunkSave( getFileFor( coord ), data ) ) );
+		FutureTask< Boolean > task = new FutureTask< Boolean >( new TaskChunkSave( getFileFor( coord ), getLegacyFileFor( coord ), data ) );
+		saving.put( coord, task );
+		service.execute( task );
 		return true;
 	}
 	
 	/**
-	 * Shutdown loading and saving services, and finish saving what needs to be saved on the main thread.
+	 * Cancel any loading, and finish saving what needs to be saved. Anything that hasn't started saving yet is saved on this thread.
 	 * 
 	 * @return
 	 * If shutting down was successful.
 	 */
 	public boolean saveBlocking() {
-		loadingService.shutdown();
-		savingService.shutdown();
-		try {
-			savingService.awaitTermination( 3, TimeUnit.MINUTES );
-		} catch ( InterruptedException e ) {
-			e.printStackTrace();
-			return false;
+		boolean finished = finishSaving( System.nanoTime() + SHUTDOWN_TIMEOUT );
+		store.close();
+		
+		return finished;
+	}
+	
+	/**
+	 * Cancel any loading, finish saving what needs to be saved, and then save every region provided in parallel.
+	 * Each region is built right before it gets written, so only a few of them are held in memory at once,
+	 * and replaces its file atomically.
+	 * 
+	 * @param regions
+	 * The regions to save. Cannot be null.
+	 * @param builder
+	 * Builds the {@link BigChunk} to save for a region, and is called on the IO threads. May return null if there is nothing to save.
+	 * @param progress
+	 * Gets told how many regions have been saved so far every few seconds, on this thread. Can be null.
+	 * @return
+	 * If every region was saved.
+	 */
+	public boolean saveAll( Collection< BigChunkLocation > regions, Function< BigChunkLocation, BigChunk > builder, IntConsumer progress ) {
+		Validate.notNull( regions );
+		Validate.notNull( builder );
+		long deadline = System.nanoTime() + SHUTDOWN_TIMEOUT;
+		boolean success = finishSaving( deadline );
+		// Regions get replaced as a whole from here on, so none of them can stay mapped
+		store.close();
+		
+		// Keep the pool busy without building every region up front
+		int maxPending = service instanceof ThreadPoolExecutor ? ( ( ThreadPoolExecutor ) service ).getMaximumPoolSize() * 2 : 4;
+		CompletionService< Boolean > completion = new ExecutorCompletionService< Boolean >( service );
+		Iterator< BigChunkLocation > iterator = regions.iterator();
+		int pending = 0;
+		int saved = 0;
+		long lastReport = System.nanoTime();
+		while ( iterator.hasNext() || pending > 0 ) {
+			while ( iterator.hasNext() && pending < maxPending ) {
+				Callable< Boolean > task = new TaskRegionReplace( iterator.next(), builder );
+				try {
+					completion.submit( task );
+					pending++;
+				} catch ( RejectedExecutionException e ) {
+					// The pool has been shut down, so do it here instead
+					try {
+						task.call();
+					} catch ( Exception exception ) {
+						exception.printStackTrace();
+						success = false;
+					}
+					saved++;
+				}
+			}
+			
+			if ( pending > 0 ) {
+				try {
+					Future< Boolean > future = completion.poll( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+					if ( future == null ) {
+						return false;
+					}
+					pending--;
+					saved++;
+					future.get();
+				} catch ( InterruptedException e ) {
+					e.printStackTrace();
+					return false;
+				} catch ( ExecutionException e ) {
+					e.printStackTrace();
+					success = false;
+				}
+			}
+			
+			if ( progress != null && System.nanoTime() - lastReport > PROGRESS_INTERVAL ) {
+				progress.accept( saved );
+				lastReport = System.nanoTime();
+			}
+		}
+		
+		return success;
+	}
+	
+	/**
+	 * Cancel any loading, and wait for whatever is being saved.
+	 * 
+	 * @param deadline
+	 * The {@link System#nanoTime()} to stop waiting at.
+	 * @return
+	 * If everything finished in time.
+	 */
+	protected boolean finishSaving( long deadline ) {
+		for ( Future< BigChunk > future : loading.values() ) {
+			future.cancel( false );
 		}
-		List< Runnable > leftovers = savingService.shutdownNow();
-		for ( Runnable runnable : leftovers ) {
-			runnable.run();
+		
+		for ( Future< Boolean > future : saving.values() ) {
+			// The service is shared, so don't wait behind other minimaps
+			// Running a task that has already started does nothing
+			boolean queued = service instanceof ThreadPoolExecutor && ( ( ThreadPoolExecutor ) service ).remove( ( Runnable ) future );
+			if ( queued || service.isShutdown() ) {
+				( ( Runnable ) future ).run();
+			}
+			try {
+				future.get( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+			} catch ( InterruptedException | TimeoutException e ) {
+				e.printStackTrace();
+				return false;
+			} catch ( ExecutionException e ) {
+				e.printStackTrace();
+			}
 		}
+		saving.clear();
 		
 		return true;
 	}
@@ -104,10 +246,13 @@ public class BigChunkQueue {
 	public boolean load( BigChunkLocation coord ) {
 		Validate.notNull( coord );
 		// If the chunk is not being loaded or saved
-		boolean inUse = saving.containsKey( coord ) || loading.containsKey( coord );
-		if ( !inUse ) {
-			loading.put( coord, loadingService.submit( new TaskChunkLoad( getFileFor( coord ) ) ) );
-			return true;
+		if ( !saving.containsKey( coord ) ) {
+			FutureTask< BigChunk > task = new FutureTask< BigChunk >( new TaskChunkLoad( getFileFor( coord ), getLegacyFileFor( coord ) ) );
+			// Can be called from more than one thread at once
+			if ( loading.putIfAbsent( coord, task ) == null ) {
+				service.execute( task );
+				return true;
+			}
 		}
 		return false;
 	}
@@ -172,13 +317,33 @@ public class BigChunkQueue {
 	 * @param coord
 	 * The coordinate of the {@link BigChunkLocation}, cannot be null.
 	 * @return
-	 * Normally stored in 'base/world/x/z/' form.
+	 * Normally stored in 'base/world/x/z.c2r' form.
 	 */
 	protected Path getFileFor( BigChunkLocation coord ) {
+		Validate.notNull( coord );
+		return Paths.get( saveLocation + "/" + coord.getWorld().getName() + "/" + coord.getX() + "/" + coord.getZ() + RegionFile.EXTENSION );
+	}
+	
+	/**
+	 * Get the file that the {@link BigChunkLocation} was serialized to before {@link RegionFile} existed.
+	 * 
+	 * @param coord
+	 * The coordinate of the {@link BigChunkLocation}, cannot be null.
+	 * @return
+	 * Stored in 'base/world/x/z' form.
+	 */
+	protected Path getLegacyFileFor( BigChunkLocation coord ) {
 		Validate.notNull( coord );
 		return Paths.get( saveLocation + "/" + coord.getWorld().getName() + "/" + coord.getX() + "/" + coord.getZ() );
 	}
 	
+	private void record( long start ) {
+		MinimapTimings timings = this.timings;
+		if ( timings != null ) {
+			timings.record( Phase.REGION_IO, start );
+		}
+	}
+	
 	/**
 	 * Responsible for saving chunks.
 	 * 
@@ -186,6 +351,7 @@ public class BigChunkQueue {
 	 */
 	protected class TaskChunkSave implements Callable< Boolean > {
 		protected final Path saveFile;
+		protected final Path legacyFile;
 		protected final BigChunk chunk;
 		
 		/**
@@ -193,33 +359,82 @@ public class BigChunkQueue {
 		 * 
 		 * @param saveFile
 		 * Cannot be null.
+		 * @param legacyFile
+		 * The serialized file, which gets merged and removed. Cannot be null.
 		 * @param chunk
 		 * Cannot be null.
 		 */
-		TaskChunkSave( Path saveFile, BigChunk chunk ) {
+		TaskChunkSave( Path saveFile, Path legacyFile, BigChunk chunk ) {
 			Validate.notNull( chunk );
 			Validate.notNull( saveFile );
+			Validate.notNull( legacyFile );
 			this.saveFile = saveFile;
+			this.legacyFile = legacyFile;
 			this.chunk = chunk;
 		}
 		
 		@Override
 		public Boolean call() throws Exception {
-			// First check if the file exists previously
-			if ( Files.isRegularFile( saveFile ) ) {
-				// If so, merge the chunks
-				BigChunk onDisk = FileUtil.readObject( BigChunk.class, saveFile.toFile() );
-				
-				for ( int i = 0; i < chunk.getData().length; i++ ) {
-					if ( chunk.getData()[ i ] == null ) {
-						// Only save the data if the chunk we need to save doesn't contain the chunk data
-						// Either it's something, or null
-						chunk.getData()[ i ] = onDisk.getData()[ i ];
+			long start = System.nanoTime();
+			try {
+				// Regions are updated in place, so only a serialized file needs to be merged
+				BigChunk onDisk = readLegacyRegion( legacyFile );
+				if ( onDisk != null ) {
+					for ( int i = 0; i < chunk.getData().length; i++ ) {
+						if ( chunk.getData()[ i ] == null ) {
+							// Only save the data if the chunk we need to save doesn't contain the chunk data
+							// Either it's something, or null
+							chunk.getData()[ i ] = onDisk.getData()[ i ];
+						}
+					}
+				}
+				store.write( saveFile, chunk );
+				Files.deleteIfExists( legacyFile );
+				return true;
+			} finally {
+				record( start );
+			}
+		}
+	}
+	
+	/**
+	 * Responsible for saving whole regions when shutting down.
+	 */
+	protected class TaskRegionReplace implements Callable< Boolean > {
+		protected final BigChunkLocation coord;
+		protected final Function< BigChunkLocation, BigChunk > builder;
+		
+		TaskRegionReplace( BigChunkLocation coord, Function< BigChunkLocation, BigChunk > builder ) {
+			Validate.notNull( coord );
+			Validate.notNull( builder );
+			this.coord = coord;
+			this.builder = builder;
+		}
+		
+		@Override
+		public Boolean call() throws Exception {
+			BigChunk chunk = builder.apply( coord );
+			if ( chunk == null ) {
+				return false;
+			}
+			
+			long start = System.nanoTime();
+			try {
+				Path legacyFile = getLegacyFileFor( coord );
+				BigChunk legacy = readLegacyRegion( legacyFile );
+				if ( legacy != null ) {
+					for ( int i = 0; i < chunk.getData().length; i++ ) {
+						if ( chunk.getData()[ i ] == null ) {
+							chunk.getData()[ i ] = legacy.getData()[ i ];
+						}
 					}
 				}
+				store.replace( getFileFor( coord ), chunk );
+				Files.deleteIfExists( legacyFile );
+				return true;
+			} finally {
+				record( start );
 			}
-			FileUtil.writeObject( chunk, saveFile.toFile() );
-			return true;
 		}
 	}
 	
@@ -230,33 +445,67 @@ public class BigChunkQueue {
 	 */
 	protected class TaskChunkLoad implements Callable< BigChunk > {
 		protected final Path file;
+		protected final Path legacyFile;
 		
 		/**
 		 * Load a BigChunk from the file provided.
 		 * 
 		 * @param file
 		 * Cannot be null.
+		 * @param legacyFile
+		 * The serialized file, which gets converted if present. Cannot be null.
 		 */
-		TaskChunkLoad( Path file ) {
+		TaskChunkLoad( Path file, Path legacyFile ) {
 			Validate.notNull( file );
+			Validate.notNull( legacyFile );
 			this.file = file;
+			this.legacyFile = legacyFile;
 		}
 		
 		@Override
 		public BigChunk call() throws Exception {
-			if ( Files.isRegularFile( file ) ) {
-				try {
-					return FileUtil.readObject( BigChunk.class, file.toFile() );
-				} catch ( Exception exception ) {
-					// Delete the file if there was a problem reading it.
-					// Should probably catch the exception and log it, but will do that later.
-					// TODO Fix this?
-//					exception.printStackTrace();
-					Files.delete( file );
-					return null;
+			long start = System.nanoTime();
+			try {
+				if ( Files.isRegularFile( file ) ) {
+					try {
+						return store.read( file );
+					} catch ( Exception exception ) {
+						// Delete the file if there was a problem reading it.
+						store.release( file );
+						Files.delete( file );
+					}
+				}
+			
+				BigChunk chunk = readLegacyRegion( legacyFile );
+				if ( chunk != null ) {
+					// Convert it to a region so the serialized file never needs to be read again
+					store.write( file, chunk );
+					Files.delete( legacyFile );
 				}
+				return chunk;
+			} finally {
+				record( start );
+			}
+		}
+	}
+	
+	/**
+	 * Read a {@link BigChunk} that was serialized before {@link RegionFile} existed.
+	 * Deletes the file if it cannot be read.
+	 * 
+	 * @param legacyFile
+	 * The serialized {@link BigChunk}.
+	 * @return
+	 * Null if it does not exist or could not be read.
+	 */
+	protected static BigChunk readLegacyRegion( Path legacyFile ) throws IOException {
+		if ( Files.isRegularFile( legacyFile ) ) {
+			try {
+				return FileUtil.readObject( BigChunk.class, legacyFile.toFile() );
+			} catch ( Exception exception ) {
+				Files.delete( legacyFile );
 			}
-			return null;
 		}
+		return null;
 	}
 }
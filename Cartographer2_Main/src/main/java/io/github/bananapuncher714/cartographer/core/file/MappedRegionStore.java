@@ -0,0 +1,211 @@
+package io.github.bananapuncher714.cartographer.core.file;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang.Validate;
+
+import io.github.bananapuncher714.cartographer.core.map.process.ChunkData;
+
+/**
+ * Keeps recently used {@link RegionFile} regions memory mapped, so that saving a chunk only writes its own slot.
+ */
+public class MappedRegionStore {
+	/**
+	 * The default maximum amount of regions that stay mapped at once.
+	 */
+	public static final int DEFAULT_MAX_MAPPED = 64;
+
+	protected final int maxMapped;
+	protected final Map< Path, MappedByteBuffer > regions;
+
+	public MappedRegionStore() {
+		this( DEFAULT_MAX_MAPPED );
+	}
+
+	public MappedRegionStore( int maxMapped ) {
+		Validate.isTrue( maxMapped > 0, "Must be able to map at least 1 region!" );
+		this.maxMapped = maxMapped;
+		regions = new LinkedHashMap< Path, MappedByteBuffer >( 16, 0.75f, true ) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Entry< Path, MappedByteBuffer > eldest ) {
+				if ( size() > MappedRegionStore.this.maxMapped ) {
+					eldest.getValue().force();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Read a region.
+	 * 
+	 * @param file
+	 * Cannot be null.
+	 * @return
+	 * Null if the file does not exist.
+	 * @throws IOException
+	 * If the file could not be read or is not a valid region.
+	 */
+	public BigChunk read( Path file ) throws IOException {
+		Validate.notNull( file );
+		MappedByteBuffer buffer = getRegion( file, false, 0, 0 );
+		if ( buffer == null ) {
+			return null;
+		}
+		synchronized ( buffer ) {
+			return RegionFile.readChunks( buffer );
+		}
+	}
+
+	/**
+	 * Write the chunks that are present in the BigChunk, leaving the rest of the region untouched.
+	 * 
+	 * @param file
+	 * Cannot be null. Will be created if it does not exist.
+	 * @param chunk
+	 * Cannot be null.
+	 * @throws IOException
+	 * If the file could not be written.
+	 */
+	public void write( Path file, BigChunk chunk ) throws IOException {
+		Validate.notNull( file );
+		Validate.notNull( chunk );
+		MappedByteBuffer buffer = getRegion( file, true, chunk.x, chunk.z );
+		ChunkData[] data = chunk.getData();
+		synchronized ( buffer ) {
+			for ( int i = 0; i < data.length; i++ ) {
+				if ( data[ i ] != null ) {
+					RegionFile.writeSlot( buffer, i, data[ i ].getData() );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replace a region as a whole, keeping whatever chunks are on file but missing from the BigChunk.
+	 * Unlike {@link #write(Path, BigChunk)}, the file is swapped out atomically, so it is never left half written.
+	 * Nothing else should read or write the region meanwhile.
+	 * 
+	 * @param file
+	 * Cannot be null. Will be created if it does not exist.
+	 * @param chunk
+	 * Cannot be null. Gets filled in with the chunks on file.
+	 * @throws IOException
+	 * If the file could not be written.
+	 */
+	public void replace( Path file, BigChunk chunk ) throws IOException {
+		Validate.notNull( file );
+		Validate.notNull( chunk );
+		release( file );
+		
+		BigChunk existing = null;
+		try {
+			existing = RegionFile.read( file );
+		} catch ( IOException e ) {
+			// Not readable, so there is nothing worth keeping
+		}
+		if ( existing != null ) {
+			ChunkData[] data = chunk.getData();
+			for ( int i = 0; i < data.length; i++ ) {
+				if ( data[ i ] == null ) {
+					data[ i ] = existing.getData()[ i ];
+				}
+			}
+		}
+		
+		try {
+			RegionFile.write( chunk, file );
+		} catch ( AccessDeniedException e ) {
+			// Windows won't replace a file that was mapped until the buffer is collected
+			Files.deleteIfExists( file.resolveSibling( file.getFileName() + RegionFile.TEMP_EXTENSION ) );
+			write( file, chunk );
+		}
+	}
+
+	/**
+	 * Stop mapping a region, such as before deleting it.
+	 * 
+	 * @param file
+	 * Cannot be null.
+	 */
+	public void release( Path file ) {
+		Validate.notNull( file );
+		MappedByteBuffer buffer;
+		synchronized ( regions ) {
+			buffer = regions.remove( file.toAbsolutePath() );
+		}
+		if ( buffer != null ) {
+			buffer.force();
+		}
+	}
+
+	/**
+	 * Flush every mapped region to disk and stop mapping them.
+	 */
+	public void close() {
+		synchronized ( regions ) {
+			for ( MappedByteBuffer buffer : regions.values() ) {
+				buffer.force();
+			}
+			regions.clear();
+		}
+	}
+
+	protected MappedByteBuffer getRegion( Path file, boolean create, int x, int z ) throws IOException {
+		Path key = file.toAbsolutePath();
+		synchronized ( regions ) {
+			MappedByteBuffer buffer = regions.get( key );
+			if ( buffer == null ) {
+				buffer = map( key, create, x, z );
+				if ( buffer != null ) {
+					regions.put( key, buffer );
+				}
+			}
+			return buffer;
+		}
+	}
+
+	private static MappedByteBuffer map( Path file, boolean create, int x, int z ) throws IOException {
+		boolean exists = Files.isRegularFile( file );
+		if ( !exists && !create ) {
+			return null;
+		}
+
+		MappedByteBuffer buffer;
+		if ( exists ) {
+			if ( Files.size( file ) != RegionFile.FILE_SIZE ) {
+				throw new IOException( "Region is " + Files.size( file ) + " bytes instead of " + RegionFile.FILE_SIZE + "!" );
+			}
+			try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE ) ) {
+				buffer = channel.map( MapMode.READ_WRITE, 0, RegionFile.FILE_SIZE );
+			}
+			
+			int version = RegionFile.getVersion( buffer );
+			if ( version != RegionFile.VERSION ) {
+				throw new IOException( "Unsupported region version " + version + "!" );
+			}
+		} else {
+			Files.createDirectories( file.getParent() );
+			// Mapping grows the file without writing to it, so only the slots that get saved take up space
+			try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.SPARSE ) ) {
+				buffer = channel.map( MapMode.READ_WRITE, 0, RegionFile.FILE_SIZE );
+			}
+			RegionFile.writeHeader( buffer, x, z );
+		}
+
+		return buffer;
+	}
+}
@@ -0,0 +1,265 @@
+package io.github.bananapuncher714.cartographer.core.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.lang.Validate;
+
+import io.github.bananapuncher714.cartographer.core.map.process.ChunkData;
+
+/**
+ * Binary format for storing a {@link BigChunk}.
+ * <p>
+ * The layout is as follows, in big endian:
+ * <ul>
+ * <li>Magic number and format version</li>
+ * <li>The BigChunk x and z coordinates</li>
+ * <li>A bitmap of which of the 256 chunks are present</li>
+ * <li>256 fixed size slots of raw chunk data, so that each one can be updated in place</li>
+ * </ul>
+ * Every region is {@link #FILE_SIZE} bytes long. The slots of missing chunks are left as holes where the file system supports sparse files.
+ */
+public final class RegionFile {
+	/**
+	 * The file extension for regions in this format.
+	 */
+	public static final String EXTENSION = ".c2r";
+	/**
+	 * Appended to a region while it is being written.
+	 */
+	public static final String TEMP_EXTENSION = ".tmp";
+
+	public static final int MAGIC = 0x43325247;
+	public static final int VERSION = 1;
+
+	protected static final int SLOTS = BigChunk.WIDTH * BigChunk.WIDTH;
+	protected static final int CHUNK_SIZE = ChunkData.CHUNK_WIDTH * ChunkData.CHUNK_WIDTH;
+	protected static final int BITMAP_SIZE = SLOTS / 8;
+	
+	protected static final int VERSION_OFFSET = 4;
+	protected static final int COORDINATE_OFFSET = 8;
+	protected static final int BITMAP_OFFSET = 16;
+	protected static final int DATA_OFFSET = 64;
+	/**
+	 * The size of every region file in the current version.
+	 */
+	public static final int FILE_SIZE = DATA_OFFSET + SLOTS * CHUNK_SIZE;
+
+	private RegionFile() {
+	}
+	
+	/**
+	 * Get where the data of a chunk is stored.
+	 * 
+	 * @param slot
+	 * The index of the chunk in the {@link BigChunk}.
+	 * @return
+	 * The offset from the start of the file.
+	 */
+	public static int getSlotOffset( int slot ) {
+		return DATA_OFFSET + slot * CHUNK_SIZE;
+	}
+
+	/**
+	 * Write the BigChunk to the file provided, replacing whatever was there before.
+	 * The region is written to a temporary file first and then moved over the old one, so it is never left half written.
+	 * 
+	 * @param chunk
+	 * Cannot be null.
+	 * @param file
+	 * Cannot be null. Parent directories will be created.
+	 * @throws IOException
+	 * If the file could not be written.
+	 */
+	public static void write( BigChunk chunk, Path file ) throws IOException {
+		Validate.notNull( chunk );
+		Validate.notNull( file );
+
+		Files.createDirectories( file.toAbsolutePath().getParent() );
+		Path temp = file.resolveSibling( file.getFileName() + TEMP_EXTENSION );
+		Files.deleteIfExists( temp );
+		// Sparse only applies to new files, and lets the slots of missing chunks take up no space
+		try ( FileChannel channel = FileChannel.open( temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.SPARSE ) ) {
+			ByteBuffer header = ByteBuffer.allocate( DATA_OFFSET );
+			writeHeader( header, chunk.x, chunk.z );
+			
+			ChunkData[] data = chunk.getData();
+			for ( int i = 0; i < SLOTS; i++ ) {
+				if ( data[ i ] != null ) {
+					markPresent( header, i );
+					writeFully( channel, ByteBuffer.wrap( data[ i ].getData(), 0, CHUNK_SIZE ), getSlotOffset( i ) );
+				}
+			}
+			writeFully( channel, header, 0 );
+			
+			// Extend the file to its full size without writing the missing slots
+			if ( channel.size() < FILE_SIZE ) {
+				writeFully( channel, ByteBuffer.allocate( 1 ), FILE_SIZE - 1 );
+			}
+			channel.force( true );
+		}
+		
+		try {
+			Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+		} catch ( AtomicMoveNotSupportedException e ) {
+			Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING );
+		}
+	}
+
+	private static void writeFully( FileChannel channel, ByteBuffer buffer, long position ) throws IOException {
+		while ( buffer.hasRemaining() ) {
+			position += channel.write( buffer, position );
+		}
+	}
+
+	/**
+	 * Read a BigChunk from the file provided.
+	 * 
+	 * @param file
+	 * Cannot be null.
+	 * @return
+	 * Null if the file does not exist.
+	 * @throws IOException
+	 * If the file could not be read or is not a valid region.
+	 */
+	public static BigChunk read( Path file ) throws IOException {
+		Validate.notNull( file );
+		if ( !Files.isRegularFile( file ) ) {
+			return null;
+		}
+		return decode( Files.readAllBytes( file ) );
+	}
+
+	/**
+	 * Encode a BigChunk.
+	 * 
+	 * @param chunk
+	 * Cannot be null.
+	 * @return
+	 * The encoded region.
+	 */
+	public static byte[] encode( BigChunk chunk ) {
+		ByteBuffer buffer = ByteBuffer.allocate( FILE_SIZE );
+		writeHeader( buffer, chunk.x, chunk.z );
+		
+		ChunkData[] data = chunk.getData();
+		for ( int i = 0; i < SLOTS; i++ ) {
+			if ( data[ i ] != null ) {
+				writeSlot( buffer, i, data[ i ].getData() );
+			}
+		}
+
+		return buffer.array();
+	}
+	
+	/**
+	 * Write the magic number, version and coordinates, and clear the bitmap.
+	 * 
+	 * @param buffer
+	 * A buffer of at least {@link #DATA_OFFSET} bytes.
+	 * @param x
+	 * The BigChunk x coordinate.
+	 * @param z
+	 * The BigChunk z coordinate.
+	 */
+	public static void writeHeader( ByteBuffer buffer, int x, int z ) {
+		buffer.putInt( 0, MAGIC );
+		buffer.putInt( VERSION_OFFSET, VERSION );
+		buffer.putInt( COORDINATE_OFFSET, x );
+		buffer.putInt( COORDINATE_OFFSET + 4, z );
+		for ( int i = 0; i < BITMAP_SIZE; i++ ) {
+			buffer.put( BITMAP_OFFSET + i, ( byte ) 0 );
+		}
+	}
+	
+	/**
+	 * Write the data of a single chunk and mark it as present.
+	 * 
+	 * @param buffer
+	 * A buffer of at least {@link #FILE_SIZE} bytes.
+	 * @param slot
+	 * The index of the chunk in the {@link BigChunk}.
+	 * @param data
+	 * The raw chunk data.
+	 */
+	public static void writeSlot( ByteBuffer buffer, int slot, byte[] data ) {
+		ByteBuffer view = buffer.duplicate();
+		view.position( getSlotOffset( slot ) );
+		view.put( data, 0, CHUNK_SIZE );
+		
+		markPresent( buffer, slot );
+	}
+	
+	private static void markPresent( ByteBuffer buffer, int slot ) {
+		int bitmapIndex = BITMAP_OFFSET + ( slot >> 3 );
+		buffer.put( bitmapIndex, ( byte ) ( buffer.get( bitmapIndex ) | ( 1 << ( slot & 7 ) ) ) );
+	}
+	
+	/**
+	 * Read the chunks that are present.
+	 * 
+	 * @param buffer
+	 * A buffer in the current version.
+	 * @return
+	 * The BigChunk.
+	 */
+	public static BigChunk readChunks( ByteBuffer buffer ) {
+		BigChunk chunk = new BigChunk( buffer.getInt( COORDINATE_OFFSET ), buffer.getInt( COORDINATE_OFFSET + 4 ) );
+		ChunkData[] data = chunk.getData();
+		ByteBuffer view = buffer.duplicate();
+		for ( int i = 0; i < SLOTS; i++ ) {
+			if ( ( buffer.get( BITMAP_OFFSET + ( i >> 3 ) ) & ( 1 << ( i & 7 ) ) ) != 0 ) {
+				byte[] raw = new byte[ CHUNK_SIZE ];
+				view.position( getSlotOffset( i ) );
+				view.get( raw );
+				data[ i ] = new ChunkData( raw );
+			}
+		}
+		return chunk;
+	}
+	
+	/**
+	 * Get the version of an encoded region.
+	 * 
+	 * @param buffer
+	 * The encoded region.
+	 * @return
+	 * The version, or -1 if it is not a region.
+	 */
+	public static int getVersion( ByteBuffer buffer ) {
+		if ( buffer.limit() < COORDINATE_OFFSET || buffer.getInt( 0 ) != MAGIC ) {
+			return -1;
+		}
+		return buffer.getInt( VERSION_OFFSET );
+	}
+
+	/**
+	 * Decode a BigChunk.
+	 * 
+	 * @param bytes
+	 * The encoded region.
+	 * @return
+	 * The BigChunk.
+	 * @throws IOException
+	 * If the data is not a valid region.
+	 */
+	public static BigChunk decode( byte[] bytes ) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap( bytes );
+		int version = getVersion( buffer );
+		if ( version == -1 ) {
+			throw new IOException( "Not a region file!" );
+		} else if ( version == VERSION ) {
+			if ( bytes.length < FILE_SIZE ) {
+				throw new IOException( "Region is too short!" );
+			}
+			return readChunks( buffer );
+		}
+		throw new IOException( "Unsupported region version " + version + "!" );
+	}
+}
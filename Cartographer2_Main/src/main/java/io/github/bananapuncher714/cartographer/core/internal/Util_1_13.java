@@ -1,5 +1,7 @@
 package io.github.bananapuncher714.cartographer.core.internal;
 
+import java.util.BitSet;
+
 import org.apache.commons.lang.Validate;
 import org.bukkit.Bukkit;
 import org.bukkit.ChunkSnapshot;
@@ -18,9 +20,24 @@ import org.bukkit.inventory.meta.MapMeta;
 import org.bukkit.map.MapView;
 
 import io.github.bananapuncher714.cartographer.core.api.GeneralUtil;
+import io.github.bananapuncher714.cartographer.core.map.palette.CompiledPalette;
 import io.github.bananapuncher714.cartographer.core.util.CrossVersionMaterial;
 
 public class Util_1_13 implements GeneralUtil {
+	// Indexed by material ordinal so the column scan doesn't need to create any block data
+	private static final BitSet WATER = new BitSet();
+	private static final BitSet WATERLOGGABLE = new BitSet();
+	
+	static {
+		for ( Material material : new Material[] { Material.WATER, Material.SEAGRASS, Material.TALL_SEAGRASS, Material.KELP_PLANT, Material.KELP } ) {
+			WATER.set( material.ordinal() );
+		}
+		for ( Material material : Material.values() ) {
+			if ( material.isBlock() && !material.isLegacy() && material.createBlockData() instanceof Waterlogged ) {
+				WATERLOGGABLE.set( material.ordinal() );
+			}
+		}
+	}
 
 	@Override
 	public MapView getMapViewFrom( ItemStack item ) {
@@ -102,6 +119,29 @@ public class Util_1_13 implements GeneralUtil {
 		return new CrossVersionMaterial( snapshot.getBlockType( x, y, z ) );
 	}
 
+	@Override
+	public int getHighestYAt( ChunkSnapshot snapshot, int x, int y, int z, CompiledPalette palette, int min ) {
+		while ( y > min ) {
+			int section = ( y - min ) >> 4;
+			if ( snapshot.isSectionEmpty( section ) ) {
+				y = min + ( section << 4 ) - 1;
+				continue;
+			}
+			
+			Material material = snapshot.getBlockType( x, y, z );
+			int ordinal = material.ordinal();
+			if ( WATER.get( ordinal ) ) {
+				return y;
+			} else if ( WATERLOGGABLE.get( ordinal ) && ( ( Waterlogged ) snapshot.getBlockData( x, y, z ) ).isWaterlogged() ) {
+				return y;
+			} else if ( !palette.isTransparent( material, 0 ) ) {
+				return y;
+			}
+			y--;
+		}
+		return Math.max( y, min );
+	}
+
 	@Override
 	public CrossVersionMaterial getItemType( ItemStack item ) {
 		Validate.notNull( item );
@@ -67,6 +67,15 @@ public final class LocaleConstants {
 	public static final String COMMAND_CARTOGRAPHER_LOAD_SUCCESS = "core.command.cartographer.load.success";
 	public static final String COMMAND_CARTOGRAPHER_UNLOAD_USAGE = "core.command.cartographer.unload.usage";
 	public static final String COMMAND_CARTOGRAPHER_UNLOAD_SUCCESS = "core.command.cartographer.unload.success";
+	public static final String COMMAND_CARTOGRAPHER_STATUS_USAGE = "core.command.cartographer.status.usage";
+	public static final String COMMAND_CARTOGRAPHER_STATUS_PROCESSING = "core.command.cartographer.status.processing";
+	public static final String COMMAND_CARTOGRAPHER_STATUS_TOTALS = "core.command.cartographer.status.totals";
+	public static final String COMMAND_CARTOGRAPHER_TIMINGS_USAGE = "core.command.cartographer.timings.usage";
+	public static final String COMMAND_CARTOGRAPHER_TIMINGS_HEADER = "core.command.cartographer.timings.header";
+	public static final String COMMAND_CARTOGRAPHER_TIMINGS_PHASE = "core.command.cartographer.timings.phase";
+	public static final String COMMAND_CARTOGRAPHER_TIMINGS_PROVIDER = "core.command.cartographer.timings.provider";
+	public static final String COMMAND_CARTOGRAPHER_TIMINGS_EMPTY = "core.command.cartographer.timings.empty";
+	public static final String COMMAND_CARTOGRAPHER_TIMINGS_RESET = "core.command.cartographer.timings.reset";
 	public static final String COMMAND_CARTOGRAPHER_HELP_USAGE = "core.command.cartographer.help.usage";
 	public static final String COMMAND_CARTOGRAPHER_HELP_FORMAT = "core.command.cartographer.help.help-%d";
 	
@@ -144,4 +153,8 @@ public final class LocaleConstants {
 	public static final String MINIMAP_LOADED_OVERLAY = "core.minimap.loaded-overlay";
 	public static final String MINIMAP_LOADED_BACKGROUND = "core.minimap.loaded-background";
 	public static final String MINIMAP_LOADED_DISABLED = "core.minimap.loaded-disabled";
+	public static final String MINIMAP_SAVING = "core.minimap.saving-regions";
+	public static final String MINIMAP_SAVING_PROGRESS = "core.minimap.saving-progress";
+	public static final String MINIMAP_SAVED = "core.minimap.saved-regions";
+	public static final String MINIMAP_SAVING_FAILED = "core.minimap.saving-failed";
 }
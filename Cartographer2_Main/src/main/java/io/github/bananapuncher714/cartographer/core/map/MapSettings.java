@@ -12,6 +12,8 @@ import io.github.bananapuncher714.cartographer.core.Cartographer;
 import io.github.bananapuncher714.cartographer.core.api.BooleanOption;
 import io.github.bananapuncher714.cartographer.core.api.ZoomScale;
 import io.github.bananapuncher714.cartographer.core.map.palette.MinimapPalette;
+import io.github.bananapuncher714.cartographer.core.map.process.ChunkStorageType;
+import io.github.bananapuncher714.cartographer.core.map.process.MipMapChunkDataStorage;
 import io.github.bananapuncher714.cartographer.core.util.FailSafe;
 
 /**
@@ -49,6 +51,11 @@ public class MapSettings {
 	
 	protected boolean reloadChunks = true;
 	protected int chunkScanLimit = 20_000;
+	protected ChunkStorageType storageType = ChunkStorageType.HEAP;
+	// Megabytes of chunk data to keep in memory, or 0 for no limit
+	protected int memoryLimit = 64;
+	// Keep reduced levels of detail for zooming out
+	protected boolean mipMaps = false;
 	
 	// Default palette
 	protected MinimapPalette palette;
@@ -88,6 +95,9 @@ public class MapSettings {
 		
 		reloadChunks = config.getBoolean( "chunks.reload-chunks", true );
 		chunkScanLimit = config.getInt( "chunks.chunk-scan-limit", 20_000 );
+		storageType = FailSafe.getEnum( ChunkStorageType.class, config.getString( "chunks.storage", "HEAP" ).toUpperCase().replace( '-', '_' ) );
+		memoryLimit = Math.max( 0, config.getInt( "chunks.memory-limit", 64 ) );
+		mipMaps = config.getBoolean( "chunks.mipmaps", false );
 		
 		palette = Cartographer.getInstance().getPaletteManager().construct( config.getStringList( "palettes" ) );
 	}
@@ -212,6 +222,44 @@ public class MapSettings {
 		this.chunkScanLimit = chunkScanLimit;
 	}
 
+	public ChunkStorageType getStorageType() {
+		return storageType;
+	}
+
+	public void setStorageType( ChunkStorageType storageType ) {
+		this.storageType = storageType;
+	}
+
+	public boolean isMipMaps() {
+		return mipMaps;
+	}
+
+	public void setMipMaps( boolean mipMaps ) {
+		this.mipMaps = mipMaps;
+	}
+
+	/**
+	 * Get how many levels of detail are needed for the farthest allowed zoom.
+	 * 
+	 * @return
+	 * 1 for a zoom of 2 blocks per pixel, 2 for 4, and so on.
+	 */
+	public int getMipMapLevels() {
+		int levels = 0;
+		while ( levels < MipMapChunkDataStorage.MAX_LEVELS && 2 << levels <= getFarthestZoom() ) {
+			levels++;
+		}
+		return levels;
+	}
+
+	public int getMemoryLimit() {
+		return memoryLimit;
+	}
+
+	public void setMemoryLimit( int memoryLimit ) {
+		this.memoryLimit = memoryLimit;
+	}
+
 	public MinimapPalette getPalette() {
 		return palette;
 	}
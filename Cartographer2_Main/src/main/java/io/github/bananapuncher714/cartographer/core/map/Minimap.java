@@ -4,11 +4,15 @@ import java.awt.Image;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.logging.Level;
@@ -18,6 +22,7 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.lang.Validate;
 import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.map.MapCursor;
@@ -44,6 +49,9 @@ import io.github.bananapuncher714.cartographer.core.map.palette.MinimapPalette;
 import io.github.bananapuncher714.cartographer.core.map.process.ChunkData;
 import io.github.bananapuncher714.cartographer.core.map.process.ChunkNotifier;
 import io.github.bananapuncher714.cartographer.core.map.process.DataCache;
+import io.github.bananapuncher714.cartographer.core.map.process.DirtyColumnQueue;
+import io.github.bananapuncher714.cartographer.core.map.process.MapDataCache;
+import io.github.bananapuncher714.cartographer.core.map.process.MipMapChunkDataStorage;
 import io.github.bananapuncher714.cartographer.core.renderer.PlayerSetting;
 
 public class Minimap implements ChunkNotifier {
@@ -70,6 +78,7 @@ public class Minimap implements ChunkNotifier {
 	protected Set< WorldPixelProvider > worldPixelProviders = new HashSet< WorldPixelProvider >();
 	
 	protected MinimapLogger logger;
+	protected final MinimapTimings timings = new MinimapTimings();
 
 	private Set< ChunkLocation > cachedLocations = new HashSet< ChunkLocation >();
 	
@@ -87,6 +96,8 @@ public class Minimap implements ChunkNotifier {
 		
 		cache.setFileQueue( queue );
 		cache.setNotifier( this );
+		cache.setTimings( timings );
+		queue.setTimings( timings );
 		
 		logger = new MinimapLogger( this );
 		
@@ -108,7 +119,13 @@ public class Minimap implements ChunkNotifier {
 			logger.infoTr( LocaleConstants.MINIMAP_WORLD_BLACKLIST, String.join( ", ", settings.blacklistedWorlds ) );
 		}
 		
-//		cache.setChunkDataStorage( new MipMapChunkDataStorage( 4 ) );
+		if ( cache.getStorage() instanceof MipMapChunkDataStorage ) {
+			try {
+				( ( MipMapChunkDataStorage ) cache.getStorage() ).load( Paths.get( saveDir + "/" + "mipmaps" ) );
+			} catch ( IOException e ) {
+				e.printStackTrace();
+			}
+		}
 		
 		// Show at least the player, if nothing else
 		registerProvider( new DefaultPlayerCursorProvider() );
@@ -205,9 +222,9 @@ public class Minimap implements ChunkNotifier {
 					chunks.put( bigLoc, chunk );
 				}
 				
-				// Add the current location and add to queue
+				// Add the current location and add to queue, unless it's the same as what's on file
 				ChunkData data = cache.getDataAt( location );
-				if ( data != null ) {
+				if ( data != null && data.isDirty() ) {
 					chunk.set( location, data );
 				}
 			}
@@ -215,9 +232,9 @@ public class Minimap implements ChunkNotifier {
 
 		for ( BigChunkLocation loc : chunks.keySet() ) {
 			BigChunk chunk = chunks.get( loc );
-			// Attempt to save the chunk
+			// Attempt to save the chunk, if anything changed at all
 			// If it doesn't for some reason, then don't do anything
-			if ( queue.save( loc, chunk ) ) {
+			if ( chunk.isEmpty() || queue.save( loc, chunk ) ) {
 				for ( int x = 0; x < 16; x++ ) {
 					for ( int z = 0; z < 16; z++ ) {
 						ChunkLocation location = new ChunkLocation( loc.getWorld(), ( loc.getX() << 4 ) + x, ( loc.getZ() << 4 ) + z );
@@ -250,6 +267,16 @@ public class Minimap implements ChunkNotifier {
 		return settings;
 	}
 	
+	/**
+	 * Get how long rendering and processing has been taking for this minimap.
+	 * 
+	 * @return
+	 * The timings, which are recorded to continuously.
+	 */
+	public MinimapTimings getTimings() {
+		return timings;
+	}
+	
 	public SimpleImage getOverlayImage() {
 		return overlay == null ? Cartographer.getInstance().getSettings().getOverlay() : overlay;
 	}
@@ -291,7 +318,9 @@ public class Minimap implements ChunkNotifier {
 	public Collection< MapPixel > getPixelsFor( Player player, PlayerSetting setting ) {
 		Set< MapPixel > pixels = new TreeSet< MapPixel >();
 		for ( MapPixelProvider provider : pixelProviders ) {
+			long start = System.nanoTime();
 			Collection< MapPixel > cursorCollection = provider.getMapPixels( player, this, setting );
+			timings.recordProvider( provider, start );
 			if ( cursorCollection != null ) {
 				pixels.addAll( cursorCollection );
 			}
@@ -302,7 +331,9 @@ public class Minimap implements ChunkNotifier {
 	public Collection< WorldPixel > getWorldPixelsFor( Player player, PlayerSetting setting ) {
 		Set< WorldPixel > pixels = new TreeSet< WorldPixel >();
 		for ( WorldPixelProvider provider : worldPixelProviders ) {
+			long start = System.nanoTime();
 			Collection< WorldPixel > cursorCollection = provider.getWorldPixels( player, this, setting );
+			timings.recordProvider( provider, start );
 			if ( cursorCollection != null ) {
 				pixels.addAll( cursorCollection );
 			}
@@ -313,7 +344,9 @@ public class Minimap implements ChunkNotifier {
 	public Collection< WorldCursor > getCursorsFor( Player player, PlayerSetting setting ) {
 		Set< WorldCursor > cursors = new HashSet< WorldCursor >();
 		for ( WorldCursorProvider provider : cursorProviders ) {
+			long start = System.nanoTime();
 			Collection< WorldCursor > cursorCollection = provider.getCursors( player, this, setting );
+			timings.recordProvider( provider, start );
 			if ( cursorCollection != null ) {
 				cursors.addAll( cursorCollection );
 			}
@@ -324,7 +357,9 @@ public class Minimap implements ChunkNotifier {
 	public Collection< MapCursor > getLocalCursorsFor( Player player, PlayerSetting setting ) {
 		Set< MapCursor > cursors = new HashSet< MapCursor >();
 		for ( MapCursorProvider provider : localCursorProviders ) {
+			long start = System.nanoTime();
 			Collection< MapCursor > cursorCollection = provider.getCursors( player, this, setting );
+			timings.recordProvider( provider, start );
 			if ( cursorCollection != null ) {
 				cursors.addAll( cursorCollection );
 			}
@@ -431,25 +466,112 @@ public class Minimap implements ChunkNotifier {
 		cache.updateLocation( location, event.getPalette() );
 	}
 	
+	/**
+	 * Update some columns of a loaded chunk. The columns are recalculated asynchronously.
+	 * 
+	 * @param location
+	 * The location of the chunk. Cannot be null.
+	 * @param snapshot
+	 * An up to date snapshot of the chunk. Cannot be null.
+	 * @param north
+	 * A snapshot of the chunk to the north, may be null if it isn't loaded.
+	 * @param columns
+	 * A 256 bit mask of the columns to update, where column x, z is bit x + z * 16. Must not be changed afterwards.
+	 */
+	public void updateColumns( ChunkLocation location, ChunkSnapshot snapshot, ChunkSnapshot north, long[] columns ) {
+		if ( settings.isBlacklisted( location.getWorldName() ) ) {
+			return;
+		}
+		
+		// Only bother with an event per block if something is listening
+		if ( MapUpdateBlockEvent.getHandlerList().getRegisteredListeners().length == 0 ) {
+			cache.updateColumns( location, snapshot, north, columns, palette );
+			return;
+		}
+		
+		// Listeners can pick a different palette for each block
+		Map< MinimapPalette, long[] > palettes = new HashMap< MinimapPalette, long[] >();
+		int x = location.getX() << 4;
+		int z = location.getZ() << 4;
+		for ( int i = 0; i < 256; i++ ) {
+			if ( DirtyColumnQueue.isSet( columns, i ) ) {
+				MapUpdateBlockEvent event = new MapUpdateBlockEvent( this, new Location( location.getWorld(), x + ( i & 0xF ), 0, z + ( i >> 4 ) ), palette );
+				event.callEvent();
+				
+				long[] paletteColumns = palettes.get( event.getPalette() );
+				if ( paletteColumns == null ) {
+					paletteColumns = new long[ 4 ];
+					palettes.put( event.getPalette(), paletteColumns );
+				}
+				paletteColumns[ i >> 6 ] |= 1L << ( i & 63 );
+			}
+		}
+		
+		for ( Entry< MinimapPalette, long[] > entry : palettes.entrySet() ) {
+			cache.updateColumns( location, snapshot, north, entry.getValue(), entry.getKey() );
+		}
+	}
+	
 	public void terminate() {
 		cache.terminate();
 		
-		Map< BigChunkLocation, BigChunk > chunks = new HashMap< BigChunkLocation, BigChunk >();
+		// Only group the locations here, the regions themselves get built on the IO threads as they are saved
+		Map< BigChunkLocation, List< ChunkLocation > > regions = new HashMap< BigChunkLocation, List< ChunkLocation > >();
+		Set< BigChunkLocation > stored = new HashSet< BigChunkLocation >();
 		for ( ChunkLocation location : cache.getStorage().getLocations() ) {
+			BigChunkLocation bigLoc = new BigChunkLocation( location );
+			stored.add( bigLoc );
+			// Clean chunks are already on file
 			ChunkData data = cache.getStorage().get( location );
+			if ( data != null && data.isDirty() ) {
+				List< ChunkLocation > locations = regions.get( bigLoc );
+				if ( locations == null ) {
+					locations = new ArrayList< ChunkLocation >();
+					regions.put( bigLoc, locations );
+				}
+				locations.add( location );
+			}
+		}
+		// Evicted regions that couldn't be queued while the same region was busy
+		Map< BigChunkLocation, BigChunk > evicted = cache instanceof MapDataCache ? ( ( MapDataCache ) cache ).getEvicted() : Collections.emptyMap();
+		for ( BigChunkLocation bigLoc : evicted.keySet() ) {
+			if ( !regions.containsKey( bigLoc ) ) {
+				regions.put( bigLoc, new ArrayList< ChunkLocation >() );
+			}
+		}
+		stored.removeAll( regions.keySet() );
+		int unchanged = stored.size();
+		
+		int total = regions.size();
+		logger.infoTr( LocaleConstants.MINIMAP_SAVING, total, unchanged );
+		long start = System.currentTimeMillis();
+		boolean saved = queue.saveAll( regions.keySet(), bigLoc -> {
+			BigChunk chunk = evicted.get( bigLoc );
+			if ( chunk == null ) {
+				chunk = new BigChunk( bigLoc.getX(), bigLoc.getZ() );
+			}
+			// Whatever is still stored is newer than what was evicted
+			for ( ChunkLocation location : regions.get( bigLoc ) ) {
+				ChunkData data = cache.getStorage().get( location );
 				if ( data != null ) {
-				BigChunkLocation bigLoc = new BigChunkLocation( location );
-				BigChunk chunk = chunks.containsKey( bigLoc ) ? chunks.get( bigLoc ) : new BigChunk( location );
-				chunk.set( location, data );
-				chunks.put( bigLoc, chunk );
+					chunk.set( location, data );
+				}
 			}
+			return chunk;
+		}, count -> logger.infoTr( LocaleConstants.MINIMAP_SAVING_PROGRESS, count, total ) );
+		if ( saved ) {
+			logger.infoTr( LocaleConstants.MINIMAP_SAVED, total, System.currentTimeMillis() - start );
+		} else {
+			logger.warningTr( LocaleConstants.MINIMAP_SAVING_FAILED );
 		}
 		
-		for ( BigChunkLocation loc : chunks.keySet() ) {
-			BigChunk chunk = chunks.get( loc );
-			queue.save( loc, chunk );
+		if ( cache.getStorage() instanceof MipMapChunkDataStorage ) {
+			try {
+				( ( MipMapChunkDataStorage ) cache.getStorage() ).save( Paths.get( saveFile + "/" + "mipmaps" ) );
+			} catch ( IOException e ) {
+				e.printStackTrace();
+			}
 		}
-		queue.saveBlocking();
 	}
 	
 	@Override
@@ -0,0 +1,124 @@
+package io.github.bananapuncher714.cartographer.core.map.palette;
+
+import java.awt.Color;
+import java.util.BitSet;
+
+import org.bukkit.Material;
+
+import io.github.bananapuncher714.cartographer.core.util.CrossVersionMaterial;
+import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
+
+/**
+ * A read only form of a {@link MinimapPalette}, indexed by material ordinal and data value so that lookups are only array accesses.
+ * The map colors are precomputed for every shade that chunk processing uses.
+ */
+public class CompiledPalette {
+	/**
+	 * The color as is.
+	 */
+	public static final int SHADE_NORMAL = 0;
+	/**
+	 * The color darkened by 10 percent.
+	 */
+	public static final int SHADE_DARK = 1;
+	/**
+	 * The color darkened by 30 percent.
+	 */
+	public static final int SHADE_DARKER = 2;
+
+	private static final int[] SHADE_PERCENTS = { 0, -10, -30 };
+	private static final int SHADES = SHADE_PERCENTS.length;
+
+	// Data values from 0 to 15 are compiled, anything else goes through the palette
+	private static final int DATA_POWER = 4;
+	private static final int DATA_MASK = ( 1 << DATA_POWER ) - 1;
+
+	private final MinimapPalette palette;
+	private final int[] rgb;
+	private final BitSet transparent;
+	private final byte[] colors;
+
+	protected CompiledPalette( MinimapPalette palette ) {
+		this.palette = palette;
+
+		Material[] materials = Material.values();
+		int size = materials.length << DATA_POWER;
+		rgb = new int[ size ];
+		transparent = new BitSet( size );
+		colors = new byte[ size * SHADES ];
+		for ( Material material : materials ) {
+			for ( int data = 0; data <= DATA_MASK; data++ ) {
+				int index = ( material.ordinal() << DATA_POWER ) | data;
+				CrossVersionMaterial key = new CrossVersionMaterial( material, data );
+				int color = palette.getRGB( key );
+				rgb[ index ] = color;
+				transparent.set( index, palette.isTransparent( key ) );
+				for ( int shade = 0; shade < SHADES; shade++ ) {
+					colors[ index * SHADES + shade ] = shade( color, shade );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the ARGB color of a material, as {@link MinimapPalette#getRGB(CrossVersionMaterial)} would.
+	 * 
+	 * @param material
+	 * Cannot be null.
+	 * @param data
+	 * The data value.
+	 * @return
+	 * An ARGB integer.
+	 */
+	public int getRGB( Material material, int data ) {
+		if ( material == null || ( data & ~DATA_MASK ) != 0 ) {
+			return palette.getRGB( new CrossVersionMaterial( material, data ) );
+		}
+		return rgb[ ( material.ordinal() << DATA_POWER ) | data ];
+	}
+
+	/**
+	 * Check if a material is transparent, as {@link MinimapPalette#isTransparent(CrossVersionMaterial)} would.
+	 * 
+	 * @param material
+	 * Cannot be null.
+	 * @param data
+	 * The data value.
+	 * @return
+	 * If the material is transparent.
+	 */
+	public boolean isTransparent( Material material, int data ) {
+		if ( material == null || ( data & ~DATA_MASK ) != 0 ) {
+			return palette.isTransparent( new CrossVersionMaterial( material, data ) );
+		}
+		return transparent.get( ( material.ordinal() << DATA_POWER ) | data );
+	}
+
+	/**
+	 * Get the map color of a material.
+	 * 
+	 * @param material
+	 * Cannot be null.
+	 * @param data
+	 * The data value.
+	 * @param shade
+	 * One of {@link #SHADE_NORMAL}, {@link #SHADE_DARK} or {@link #SHADE_DARKER}.
+	 * @return
+	 * The byte representing the color as defined by MapPalette.
+	 */
+	public byte getColor( Material material, int data, int shade ) {
+		if ( material == null || ( data & ~DATA_MASK ) != 0 ) {
+			return shade( palette.getRGB( new CrossVersionMaterial( material, data ) ), shade );
+		}
+		return colors[ ( ( material.ordinal() << DATA_POWER ) | data ) * SHADES + shade ];
+	}
+
+	public MinimapPalette getPalette() {
+		return palette;
+	}
+
+	private static byte shade( int rgb, int shade ) {
+		Color color = JetpImageUtil.brightenColor( new Color( rgb, true ), SHADE_PERCENTS[ shade ] );
+		return JetpImageUtil.getBestColorIncludingTransparent( color.getRGB() );
+	}
+}
@@ -1,6 +1,7 @@
 package io.github.bananapuncher714.cartographer.core.map.palette;
 
 import java.awt.Color;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -21,6 +22,8 @@ public class MinimapPalette {
 	private int defColor;
 	private Map< CrossVersionMaterial, Integer > colors = new HashMap< CrossVersionMaterial, Integer >();
 	private Set< CrossVersionMaterial > transparentBlocks = new HashSet< CrossVersionMaterial >();
+	// Rebuilt whenever it is needed after a change
+	private volatile CompiledPalette compiled;
 
 	/**
 	 * Construct a MinimapPalette with transparent black as the default color.
@@ -101,6 +104,22 @@ public class MinimapPalette {
 		}
 	}
 	
+	/**
+	 * Get this palette in a form that only needs array lookups, for processing lots of blocks.
+	 * Changes made through this palette's methods are reflected the next time this is called.
+	 * 
+	 * @return
+	 * A CompiledPalette of the current colors.
+	 */
+	public CompiledPalette compile() {
+		CompiledPalette palette = compiled;
+		if ( palette == null ) {
+			palette = new CompiledPalette( this );
+			compiled = palette;
+		}
+		return palette;
+	}
+	
 	/**
 	 * Set the color of a {@link CrossVersionMaterial}.
 	 * 
@@ -125,6 +144,7 @@ public class MinimapPalette {
 	public void setColor( CrossVersionMaterial material, int argb ) {
 		Validate.notNull( material );
 		colors.put( material, argb );
+		compiled = null;
 	}
 	
 	/**
@@ -152,10 +172,10 @@ public class MinimapPalette {
 	 * Get the {@link CrossVersionMaterial} that are registered as transparent.
 	 * 
 	 * @return
-	 * The set of transparent {@link CrossVersionMaterial} for this palette.
+	 * An unmodifiable view of the transparent {@link CrossVersionMaterial} for this palette.
 	 */
 	public Set< CrossVersionMaterial > getTransparentBlocks() {
-		return transparentBlocks;
+		return Collections.unmodifiableSet( transparentBlocks );
 	}
 	
 	/**
@@ -167,6 +187,19 @@ public class MinimapPalette {
 	public void addTransparentMaterial( CrossVersionMaterial material ) {
 		Validate.notNull( material );
 		transparentBlocks.add( material );
+		compiled = null;
+	}
+	
+	/**
+	 * Stop treating a {@link CrossVersionMaterial} as transparent.
+	 * 
+	 * @param material
+	 * Cannot be null.
+	 */
+	public void removeTransparentMaterial( CrossVersionMaterial material ) {
+		Validate.notNull( material );
+		transparentBlocks.remove( material );
+		compiled = null;
 	}
 	
 	/**
@@ -189,6 +222,7 @@ public class MinimapPalette {
 	 */
 	public void setDefaultColor( int argb ) {
 		defColor = argb;
+		compiled = null;
 	}
 	
 	/**
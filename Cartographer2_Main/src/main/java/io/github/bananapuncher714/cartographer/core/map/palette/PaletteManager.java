@@ -80,11 +80,11 @@ public class PaletteManager {
 			
 			for ( CrossVersionMaterial material : template.getMaterials() ) {
 				palette.setColor( material, template.getRGB( material ) );
-				palette.getTransparentBlocks().remove( material );
+				palette.removeTransparentMaterial( material );
 			}
 			
 			for ( CrossVersionMaterial material : template.getTransparentBlocks() ) {
-				palette.getTransparentBlocks().add( material );
+				palette.addTransparentMaterial( material );
 			}
 		}
 		return palette;
@@ -0,0 +1,214 @@
+package io.github.bananapuncher714.cartographer.core.map.process;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang.Validate;
+
+import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
+import io.github.bananapuncher714.cartographer.core.file.BigChunk;
+import io.github.bananapuncher714.cartographer.core.file.BigChunkLocation;
+import io.github.bananapuncher714.cartographer.core.util.LongObjectMap;
+
+/**
+ * A {@link SimpleChunkDataStorage} that holds a limited amount of memory.
+ * <p>
+ * Chunks are evicted a {@link BigChunk} at a time with the CLOCK algorithm, where every read marks the BigChunk as recently used.
+ * Evicted chunks are kept until they are collected with {@link #pollEvicted()}, so that they can be written back to file.
+ */
+public class BoundedChunkDataStorage extends SimpleChunkDataStorage {
+	/**
+	 * A rough estimate of the heap used by a single stored chunk, including the maps that hold it.
+	 */
+	public static final int BYTES_PER_CHUNK = 400;
+
+	protected final int maxChunks;
+
+	// Keyed by world name, then by the BigChunk coordinates
+	protected final Map< String, LongObjectMap< Region > > regions = new ConcurrentHashMap< String, LongObjectMap< Region > >();
+	protected final List< Region > clock = new ArrayList< Region >();
+	protected int hand = 0;
+	protected int size = 0;
+
+	protected final Map< BigChunkLocation, BigChunk > evicted = new HashMap< BigChunkLocation, BigChunk >();
+
+	protected final LongAdder hits = new LongAdder();
+	protected final LongAdder misses = new LongAdder();
+	protected final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Construct a storage that holds at most the amount of bytes provided.
+	 * 
+	 * @param maxBytes
+	 * Must be enough to hold at least one {@link BigChunk}.
+	 */
+	public BoundedChunkDataStorage( long maxBytes ) {
+		Validate.isTrue( maxBytes >= ( long ) BYTES_PER_CHUNK * BigChunk.WIDTH * BigChunk.WIDTH, "Must be able to hold at least one BigChunk!" );
+		maxChunks = ( int ) Math.min( Integer.MAX_VALUE, maxBytes / BYTES_PER_CHUNK );
+	}
+
+	@Override
+	public synchronized void store( ChunkLocation location, ChunkData chunkData ) {
+		boolean added = !data.containsKey( location );
+		super.store( location, chunkData );
+
+		Region region = getRegion( location.getWorldName(), location.getX() >> 4, location.getZ() >> 4, true );
+		region.referenced = true;
+		if ( added ) {
+			region.count++;
+			size++;
+
+			if ( size > maxChunks ) {
+				evict( region );
+			}
+		}
+	}
+
+	@Override
+	public synchronized void remove( ChunkLocation location ) {
+		if ( !data.containsKey( location ) ) {
+			return;
+		}
+		super.remove( location );
+
+		Region region = getRegion( location.getWorldName(), location.getX() >> 4, location.getZ() >> 4, false );
+		if ( region != null ) {
+			size--;
+			if ( --region.count == 0 ) {
+				removeRegion( region );
+			}
+		}
+	}
+
+	@Override
+	public ChunkData get( String world, int x, int z ) {
+		ChunkData chunkData = super.get( world, x, z );
+		if ( chunkData == null ) {
+			misses.increment();
+		} else {
+			hits.increment();
+			Region region = getRegion( world, x >> 4, z >> 4, false );
+			if ( region != null ) {
+				region.referenced = true;
+			}
+		}
+		return chunkData;
+	}
+
+	/**
+	 * Collect the chunks that have been evicted since the last call.
+	 * 
+	 * @return
+	 * The evicted chunks, which are no longer in this storage.
+	 */
+	public synchronized Map< BigChunkLocation, BigChunk > pollEvicted() {
+		Map< BigChunkLocation, BigChunk > polled = new HashMap< BigChunkLocation, BigChunk >( evicted );
+		evicted.clear();
+		return polled;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public int getMaxChunks() {
+		return maxChunks;
+	}
+
+	public synchronized int getSize() {
+		return size;
+	}
+
+	private void evict( Region keep ) {
+		// Each region gets at most 2 passes, the first one to clear the reference bit and the second one to evict it
+		for ( int checked = 0; size > maxChunks && clock.size() > 1 && checked <= clock.size() << 1; checked++ ) {
+			if ( hand >= clock.size() ) {
+				hand = 0;
+			}
+			Region region = clock.get( hand );
+			if ( region == keep || region.referenced ) {
+				region.referenced = false;
+				hand++;
+			} else {
+				evictRegion( region );
+				checked = 0;
+			}
+		}
+	}
+
+	private void evictRegion( Region region ) {
+		BigChunkLocation location = region.location;
+		BigChunk chunk = evicted.computeIfAbsent( location, loc -> new BigChunk( loc.getX(), loc.getZ() ) );
+
+		int cx = location.getX() << 4;
+		int cz = location.getZ() << 4;
+		for ( int z = 0; z < BigChunk.WIDTH; z++ ) {
+			for ( int x = 0; x < BigChunk.WIDTH; x++ ) {
+				ChunkLocation chunkLocation = new ChunkLocation( region.world, cx + x, cz + z );
+				ChunkData chunkData = data.get( chunkLocation );
+				if ( chunkData != null ) {
+					chunk.set( chunkLocation, chunkData );
+					super.remove( chunkLocation );
+				}
+			}
+		}
+
+		size -= region.count;
+		removeRegion( region );
+		evictions.increment();
+	}
+
+	private Region getRegion( String world, int x, int z, boolean create ) {
+		LongObjectMap< Region > worldRegions = regions.get( world );
+		if ( worldRegions == null ) {
+			if ( !create ) {
+				return null;
+			}
+			worldRegions = regions.computeIfAbsent( world, name -> new LongObjectMap< Region >() );
+		}
+		Region region = worldRegions.get( x, z );
+		if ( region == null && create ) {
+			region = new Region( world, new BigChunkLocation( world, x, z ) );
+			worldRegions.put( x, z, region );
+			clock.add( region );
+		}
+		return region;
+	}
+
+	private void removeRegion( Region region ) {
+		LongObjectMap< Region > worldRegions = regions.get( region.world );
+		if ( worldRegions != null ) {
+			worldRegions.remove( LongObjectMap.key( region.location.getX(), region.location.getZ() ) );
+		}
+
+		int index = clock.indexOf( region );
+		clock.remove( index );
+		if ( index < hand ) {
+			hand--;
+		}
+	}
+
+	private static class Region {
+		private final String world;
+		private final BigChunkLocation location;
+		private volatile boolean referenced;
+		private int count;
+
+		private Region( String world, BigChunkLocation location ) {
+			this.world = world;
+			this.location = location;
+		}
+	}
+}
@@ -25,6 +25,9 @@ public final class ChunkData implements Serializable {
 	
 	protected boolean colored = false;
 	
+	// Whether this has changed since it was read from or written to file
+	protected transient volatile boolean dirty = true;
+	
 	/**
 	 * Construct a ChunkData with the color data provided.
 	 * 
@@ -46,6 +49,27 @@ public final class ChunkData implements Serializable {
 		return data;
 	}
 	
+	/**
+	 * Check if the data has changed since it was read from or written to file.
+	 * 
+	 * @return
+	 * True for new data, until marked otherwise.
+	 */
+	public boolean isDirty() {
+		return dirty;
+	}
+	
+	/**
+	 * Mark whether the data has changed since it was read from or written to file.
+	 * The data is mutable, so anything that changes it must mark it as dirty.
+	 * 
+	 * @param dirty
+	 * If it has changed.
+	 */
+	public void setDirty( boolean dirty ) {
+		this.dirty = dirty;
+	}
+	
 	/**
 	 * Get the data at the coordinates specified.
 	 * 
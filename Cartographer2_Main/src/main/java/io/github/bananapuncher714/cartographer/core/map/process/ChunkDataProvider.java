@@ -21,6 +21,38 @@ public interface ChunkDataProvider {
 	 */
 	ChunkData process( ChunkSnapshot snapshot );
 	
+	/**
+	 * Recalculate some of the columns of a chunk in place. May be ran asynchronously.
+	 * By default the whole chunk is processed again and only the requested columns are copied over.
+	 * 
+	 * @param snapshot
+	 * A non-null, up to date snapshot of the chunk.
+	 * @param north
+	 * A snapshot of the chunk to the north, for shading the first row. May be null if it isn't loaded.
+	 * @param columns
+	 * A 256 bit mask of the columns to recalculate, where column x, z is bit x + z * 16. Cannot be null.
+	 * @param palette
+	 * The palette to use. Cannot be null.
+	 * @param data
+	 * The colors of the chunk, which get updated. Cannot be null.
+	 * @return
+	 * If the columns were recalculated. If not, the data is left as it is and the columns should be tried again later.
+	 */
+	default boolean process( ChunkSnapshot snapshot, ChunkSnapshot north, long[] columns, MinimapPalette palette, byte[] data ) {
+		ChunkData processed = process( snapshot );
+		if ( processed == null ) {
+			return false;
+		}
+		
+		byte[] colors = processed.getData();
+		for ( int i = 0; i < data.length; i++ ) {
+			if ( DirtyColumnQueue.isSet( columns, i ) ) {
+				data[ i ] = colors[ i ];
+			}
+		}
+		return true;
+	}
+	
 	/**
 	 * Get the color at a particular location, should be called from the main thread.
 	 * 
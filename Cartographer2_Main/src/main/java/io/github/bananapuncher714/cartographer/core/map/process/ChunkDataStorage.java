@@ -10,8 +10,56 @@ public interface ChunkDataStorage {
 	void store( ChunkLocation location, ChunkData data );
 	void remove( ChunkLocation location );
 	ChunkData get( ChunkLocation location );
+	
+	/**
+	 * Get the chunk data without creating a ChunkLocation, for lookups in hot loops.
+	 * 
+	 * @param world
+	 * The name of the world.
+	 * @param x
+	 * Chunk coordinate x value.
+	 * @param z
+	 * Chunk coordinate z value.
+	 * @return
+	 * The chunk data, or null if not present.
+	 */
+	default ChunkData get( String world, int x, int z ) {
+		return get( new ChunkLocation( world, x, z ) );
+	}
+	
 	Collection< ChunkLocation > getLocations();
 	boolean contains( ChunkLocation location );
 	byte getColorAt( Location location );
 	byte getColorAt( Location location, double scale );
+	
+	/**
+	 * Get the level of detail to use when rendering at a scale.
+	 * 
+	 * @param scale
+	 * The amount of blocks per pixel.
+	 * @return
+	 * 0 for full detail, otherwise how many times the detail is halved.
+	 */
+	default int getLevel( double scale ) {
+		return 0;
+	}
+	
+	/**
+	 * Get the color of a block at a level of detail, without creating any objects.
+	 * 
+	 * @param world
+	 * The name of the world.
+	 * @param blockX
+	 * Block x coordinate.
+	 * @param blockZ
+	 * Block z coordinate.
+	 * @param level
+	 * The level of detail from {@link #getLevel(double)}.
+	 * @return
+	 * The color, or 0 if nothing is known about the area.
+	 */
+	default byte getColorAt( String world, int blockX, int blockZ, int level ) {
+		ChunkData data = get( world, blockX >> 4, blockZ >> 4 );
+		return data == null ? 0 : data.getDataAt( blockX & 0xF, blockZ & 0xF );
+	}
 }
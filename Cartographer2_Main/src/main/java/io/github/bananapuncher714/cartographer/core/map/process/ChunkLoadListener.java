@@ -1,10 +1,16 @@
 package io.github.bananapuncher714.cartographer.core.map.process;
 
-import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -17,29 +23,45 @@ import io.github.bananapuncher714.cartographer.core.map.Minimap;
 
 /**
  * A listener to load chunks and register/unregister chunk snapshots for minimaps.
+ * <p>
+ * Queued chunks are handled closest to the players looking at minimaps first, with chunks that have waited longer getting a head start.
+ * Chunks that can't be loaded yet wait on the side until they are loaded naturally, and are dropped once no viewer is close enough to need them.
  * 
  * @author BananaPuncher714
  */
 public enum ChunkLoadListener implements Listener {
 	INSTANCE;
 	
-	private final Queue< ChunkLocation > loading = new ArrayDeque< ChunkLocation >();
-	private final Set< ChunkLocation > checkSet = new HashSet< ChunkLocation >();
-	private final Set< ChunkLocation > beingLoaded = new HashSet< ChunkLocation >();
+	// How many chunks closer a chunk is treated as, for every second it has waited
+	private static final double AGE_WEIGHT = 1;
+	// How often the priorities are recalculated as viewers move around
+	private static final long REBUILD_INTERVAL = TimeUnit.MILLISECONDS.toNanos( 500 );
+	// How long a chunk stays queued at least, in case the viewers haven't been updated yet
+	private static final long DROP_GRACE = TimeUnit.SECONDS.toNanos( 5 );
+	
+	private final long epoch = System.nanoTime();
+	
+	// Everything that is queued, so it can be checked from any thread
+	private final Map< ChunkLocation, QueuedChunk > queued = new ConcurrentHashMap< ChunkLocation, QueuedChunk >();
+	// Chunks that have been queued since the last update
+	private final Queue< QueuedChunk > incoming = new ConcurrentLinkedQueue< QueuedChunk >();
+	private final Set< ChunkLocation > beingLoaded = ConcurrentHashMap.newKeySet();
+	
+	// Only used on the main thread
+	private PriorityQueue< QueuedChunk > loading = new PriorityQueue< QueuedChunk >();
+	private final Set< QueuedChunk > waiting = new HashSet< QueuedChunk >();
+	private long lastRebuild = System.nanoTime();
 	
 	private boolean isForceLoad = false;
 	private int cacheAmount = 50;
 	private int loadAmount = 10;
 	private int generateAmount = 1;
 	
-	private final ReentrantLock lock = new ReentrantLock();
-	
 	@EventHandler
 	private void onChunkLoadEvent( ChunkLoadEvent event ) {
 		// Capture this chunk and pass it off to the minimaps for processing
 		ChunkLocation location = new ChunkLocation( event.getChunk() );
 
-		INSTANCE.lock.lock();
 		// Remove it from the being loaded queue
 		beingLoaded.remove( location );
 		
@@ -50,69 +72,148 @@ public enum ChunkLoadListener implements Listener {
 				minimap.getDataCache().registerSnapshot( location );
 			}
 			
-			if ( checkSet.remove( location ) ) {
-				loading.remove( location );
+			QueuedChunk chunk = queued.remove( location );
+			if ( chunk != null ) {
+				chunk.removed = true;
 			}
 		} else {
 			// We can load it again later, since it was probably loaded in naturally
-			loading.add( location );
-			checkSet.add( location );
+			QueuedChunk chunk = new QueuedChunk( location );
+			QueuedChunk existing = queued.putIfAbsent( location, chunk );
+			if ( existing == null ) {
+				incoming.add( chunk );
+			} else if ( waiting.remove( existing ) ) {
+				// It was waiting for this
+				existing.priority = getPriority( existing );
+				loading.add( existing );
+			}
 		}
-		INSTANCE.lock.unlock();
 	}
 	
 	@EventHandler
 	private void onChunkUnloadEvent( ChunkUnloadEvent event  ) {
-		INSTANCE.lock.lock();
 		ChunkLocation location = new ChunkLocation( event.getChunk() );
 		for ( Minimap minimap : Cartographer.getInstance().getMapManager().getMinimaps().values() ) {
 			minimap.getDataCache().unregisterSnapshot( location );
 		}
 		// Somehow it's already loaded, but says it's still being loaded?
 		beingLoaded.remove( location );
-		INSTANCE.lock.unlock();
 	}
 	
 	/**
-	 * Update every so often to load new chunks.
+	 * Update every so often to load new chunks. Must be called on the main thread.
 	 */
 	public void update() {
 		if ( Cartographer.getInstance().isServerOverloaded() ) {
 			return;
 		}
 		
+		for ( QueuedChunk chunk = incoming.poll(); chunk != null; chunk = incoming.poll() ) {
+			if ( !chunk.removed ) {
+				chunk.priority = getPriority( chunk );
+				loading.add( chunk );
+			}
+		}
+		
+		if ( System.nanoTime() - lastRebuild >= REBUILD_INTERVAL ) {
+			rebuild();
+		}
+		
 		double percentage = 0;
-		INSTANCE.lock.lock();
-		int looped = 0;
-		while ( percentage < 1 && !loading.isEmpty() && looped++ < loading.size() ) {
-			ChunkLocation location = loading.peek();
+		while ( percentage < 1 && !loading.isEmpty() ) {
+			QueuedChunk chunk = loading.poll();
+			if ( chunk.removed ) {
+				continue;
+			}
+			ChunkLocation location = chunk.location;
 			
 			if ( location.isLoaded() ) {
+				// Only remove if successfully loaded
+				remove( chunk );
+				beingLoaded.remove( location );
+				
 				for ( Minimap minimap : Cartographer.getInstance().getMapManager().getMinimaps().values() ) {
 					minimap.getDataCache().registerSnapshot( location );
 				}
 				percentage += 1.0 / cacheAmount;
-				beingLoaded.remove( location );
-				
-				// Only remove if successfully loaded
-				loading.remove();
-				checkSet.remove( location );
 			} else if ( isForceLoad ) {
 				percentage += 1.0 / ( location.exists() ? loadAmount : generateAmount );
+				remove( chunk );
 				// Add it to the list of locations being loaded and force load it
 				beingLoaded.add( location );
 				location.getChunk();
-				
-				loading.remove();
-				checkSet.remove( location );
 			} else {
 				// Don't keep the loop stalled forever
 				percentage += .0004;
-				// Rotate chunks to the back of the queue
-				loading.add( loading.poll() );
+				// Wait until it gets loaded naturally
+				waiting.add( chunk );
+			}
+		}
+	}
+	
+	// Recalculate the priorities, and drop whatever nobody needs anymore
+	private void rebuild() {
+		long now = System.nanoTime();
+		lastRebuild = now;
+		long range = getViewRange();
+		long rangeSquared = range * range;
+		
+		List< QueuedChunk > chunks = new ArrayList< QueuedChunk >( loading.size() );
+		for ( QueuedChunk chunk : loading ) {
+			if ( !chunk.removed && !isDroppable( chunk, now, rangeSquared ) ) {
+				chunk.priority = getPriority( chunk );
+				chunks.add( chunk );
 			}
 		}
-		INSTANCE.lock.unlock();
+		for ( Iterator< QueuedChunk > iterator = waiting.iterator(); iterator.hasNext(); ) {
+			QueuedChunk chunk = iterator.next();
+			if ( chunk.removed || isDroppable( chunk, now, rangeSquared ) ) {
+				iterator.remove();
+			} else if ( isForceLoad || chunk.location.isLoaded() ) {
+				// Missed the load event, or it can be force loaded now
+				iterator.remove();
+				chunk.priority = getPriority( chunk );
+				chunks.add( chunk );
+			}
+		}
+		loading = new PriorityQueue< QueuedChunk >( chunks );
+	}
+	
+	// Loaded chunks are always kept, so chunks loaded naturally still get mapped
+	private boolean isDroppable( QueuedChunk chunk, long now, long rangeSquared ) {
+		if ( now - chunk.queued < DROP_GRACE || chunk.location.isLoaded() ) {
+			return false;
+		}
+		
+		ChunkProcessingScheduler scheduler = Cartographer.getInstance().getChunkScheduler();
+		if ( scheduler.getViewerDistance( chunk.location ) <= rangeSquared ) {
+			return false;
+		}
+		
+		remove( chunk );
+		return true;
+	}
+	
+	private void remove( QueuedChunk chunk ) {
+		chunk.removed = true;
+		queued.remove( chunk.location, chunk );
+	}
+	
+	private double getPriority( QueuedChunk chunk ) {
+		long distance = Cartographer.getInstance().getChunkScheduler().getViewerDistance( chunk.location );
+		// Without anyone around, only the age matters
+		double closest = distance == Long.MAX_VALUE ? getViewRange() : Math.sqrt( distance );
+		return closest + ( chunk.queued - epoch ) / 1_000_000_000.0 * AGE_WEIGHT;
+	}
+	
+	// How far in chunks a minimap can see at its farthest zoom
+	private long getViewRange() {
+		double farthest = 0;
+		for ( Minimap minimap : Cartographer.getInstance().getMapManager().getMinimaps().values() ) {
+			farthest = Math.max( farthest, minimap.getSettings().getFarthestZoom() );
+		}
+		// Same as the visible player range of the data cache
+		return ( long ) ( ( 91 * farthest + farthest * 2 ) / 16 ) + 1;
 	}
 	
 	/**
@@ -124,34 +225,27 @@ public enum ChunkLoadListener implements Listener {
 	 * Whether or not it is being queued for loading.
 	 */
 	public static boolean isQueued( ChunkLocation location ) {
-		INSTANCE.lock.lock();
-		boolean contains = INSTANCE.checkSet.contains( location );
-		INSTANCE.lock.unlock();
-		return contains;
+		return INSTANCE.queued.containsKey( location );
 	}
 	
 	/**
-	 * Add the given location to the load queue.
+	 * Add the given location to the load queue. Can be called from any thread.
 	 * 
 	 * @param location
 	 * A {@link ChunkLocation} that needs loading.
 	 */
 	public static void queueChunk( ChunkLocation location ) {
 		// Only queue the chunk if it isn't already queued or being loaded
-		INSTANCE.lock.lock();
-		boolean required = !( INSTANCE.checkSet.contains( location ) || INSTANCE.beingLoaded.contains( location ) );
-		if ( required ) {
-			INSTANCE.loading.add( location );
-			INSTANCE.checkSet.add( location );
+		if ( !INSTANCE.beingLoaded.contains( location ) ) {
+			QueuedChunk chunk = new QueuedChunk( location );
+			if ( INSTANCE.queued.putIfAbsent( location, chunk ) == null ) {
+				INSTANCE.incoming.add( chunk );
+			}
 		}
-		INSTANCE.lock.unlock();
 	}
 	
 	public static boolean isLoading( ChunkLocation location ) {
-		INSTANCE.lock.lock();
-		boolean isLoading = INSTANCE.beingLoaded.contains( location );
-		INSTANCE.lock.unlock();
-		return isLoading;
+		return INSTANCE.beingLoaded.contains( location );
 	}
 	
 	/**
@@ -161,10 +255,7 @@ public enum ChunkLoadListener implements Listener {
 	 * The current set of chunks.
 	 */
 	public Set< ChunkLocation > getChunks() {
-		INSTANCE.lock.lock();
-		Set< ChunkLocation > locations = new HashSet< ChunkLocation >( checkSet );
-		INSTANCE.lock.unlock();
-		return locations;
+		return new HashSet< ChunkLocation >( queued.keySet() );
 	}
 
 	public boolean isForceLoad() {
@@ -198,4 +289,21 @@ public enum ChunkLoadListener implements Listener {
 	public void setGenerateAmount( int generateAmount ) {
 		this.generateAmount = generateAmount;
 	}
+	
+	private static class QueuedChunk implements Comparable< QueuedChunk > {
+		private final ChunkLocation location;
+		private final long queued = System.nanoTime();
+		// Lower is sooner
+		private double priority;
+		private volatile boolean removed;
+		
+		private QueuedChunk( ChunkLocation location ) {
+			this.location = location;
+		}
+		
+		@Override
+		public int compareTo( QueuedChunk other ) {
+			return Double.compare( priority, other.priority );
+		}
+	}
 }
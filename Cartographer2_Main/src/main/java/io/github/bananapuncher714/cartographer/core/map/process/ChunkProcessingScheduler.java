@@ -0,0 +1,360 @@
+package io.github.bananapuncher714.cartographer.core.map.process;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.Location;
+
+import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
+
+/**
+ * Processes chunks for every minimap on one shared pool of threads, and provides a shared pool for reading and writing files.
+ * <p>
+ * Waiting chunks are processed in order of their distance to the closest viewer, and only so many can wait at once.
+ * When the queue is full, whichever chunk is farthest from every viewer is dropped. Cancelled work is removed from the queue right away,
+ * so a chunk that has been superseded by a newer snapshot doesn't take up room.
+ */
+public class ChunkProcessingScheduler {
+	// How much each new sample affects the average wait
+	private static final double WAIT_WEIGHT = 0.05;
+
+	protected final ThreadPoolExecutor processingService;
+	protected final ThreadPoolExecutor ioService;
+	protected volatile int capacity;
+
+	protected volatile Viewers viewers = new Viewers( new Location[ 0 ] );
+
+	private final AtomicLong order = new AtomicLong();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder superseded = new LongAdder();
+	private final Object waitLock = new Object();
+	// In nanoseconds
+	private double averageWait;
+
+	/**
+	 * Create a scheduler and start its threads.
+	 * 
+	 * @param threads
+	 * How many chunks can be processed at once. Must be positive.
+	 * @param capacity
+	 * How many chunks can wait to be processed. Must be positive.
+	 * @param ioThreads
+	 * How many files can be read or written at once. Must be positive.
+	 */
+	public ChunkProcessingScheduler( int threads, int capacity, int ioThreads ) {
+		Validate.isTrue( threads > 0, "Threads must be positive!" );
+		Validate.isTrue( capacity > 0, "Capacity must be positive!" );
+		Validate.isTrue( ioThreads > 0, "IO threads must be positive!" );
+		this.capacity = capacity;
+
+		// The queue never rejects anything, so the pools never grow past their core size
+		processingService = new ThreadPoolExecutor( threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue< Runnable >(), new NamedThreadFactory( "Cartographer2 Chunk Processor" ) );
+		ioService = new ThreadPoolExecutor( ioThreads, ioThreads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue< Runnable >(), new NamedThreadFactory( "Cartographer2 Chunk IO" ) );
+		// Make sure every task goes through the queue, so it can be reordered or removed
+		processingService.prestartAllCoreThreads();
+	}
+
+	/**
+	 * Queue a chunk to be processed.
+	 * 
+	 * @param location
+	 * The location of the chunk, used to decide its priority. Cannot be null.
+	 * @param task
+	 * Produces the chunk data. Cannot be null.
+	 * @return
+	 * A future with the chunk data, which gets cancelled if it is dropped later on, or null if it was dropped straight away.
+	 */
+	public synchronized Future< ChunkData > submit( ChunkLocation location, Callable< ChunkData > task ) {
+		Validate.notNull( location );
+		Validate.notNull( task );
+		Task queued = new Task( task, getViewerDistance( location ), order.getAndIncrement() );
+
+		if ( processingService.getQueue().size() >= capacity ) {
+			// Find whatever is farthest from the viewers to make room
+			Task farthest = null;
+			for ( Runnable runnable : processingService.getQueue() ) {
+				Task other = ( Task ) runnable;
+				if ( farthest == null || other.compareTo( farthest ) > 0 ) {
+					farthest = other;
+				}
+			}
+
+			if ( farthest == null || queued.compareTo( farthest ) > 0 ) {
+				dropped.increment();
+				return null;
+			}
+
+			if ( processingService.remove( farthest ) ) {
+				dropped.increment();
+				farthest.cancel( false );
+			}
+		}
+
+		try {
+			processingService.execute( queued );
+		} catch ( RejectedExecutionException e ) {
+			// Shut down
+			return null;
+		}
+		return queued;
+	}
+
+	/**
+	 * Set where the players that are looking at minimaps are, so chunks near them are processed first.
+	 * Should be called on the main thread every so often.
+	 * 
+	 * @param locations
+	 * The locations of the viewers. Cannot be null.
+	 */
+	public void setViewers( Collection< Location > locations ) {
+		Validate.notNull( locations );
+		viewers = new Viewers( locations.toArray( new Location[ locations.size() ] ) );
+	}
+
+	/**
+	 * Change how many chunks can be processed at once.
+	 * 
+	 * @param threads
+	 * Must be positive.
+	 */
+	public void setParallelism( int threads ) {
+		setPoolSize( processingService, threads );
+		processingService.prestartAllCoreThreads();
+	}
+
+	/**
+	 * Change how many files can be read or written at once.
+	 * 
+	 * @param threads
+	 * Must be positive.
+	 */
+	public void setIOThreads( int threads ) {
+		setPoolSize( ioService, threads );
+	}
+
+	/**
+	 * Change how many chunks can wait to be processed. Anything already waiting is kept.
+	 * 
+	 * @param capacity
+	 * Must be positive.
+	 */
+	public void setCapacity( int capacity ) {
+		Validate.isTrue( capacity > 0, "Capacity must be positive!" );
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Get the pool that map files should be read and written with.
+	 * 
+	 * @return
+	 * An executor shared by every minimap.
+	 */
+	public ThreadPoolExecutor getIOService() {
+		return ioService;
+	}
+
+	public int getParallelism() {
+		return processingService.getCorePoolSize();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get how many chunks are waiting to be processed.
+	 * 
+	 * @return
+	 * The queue depth.
+	 */
+	public int getQueueSize() {
+		return processingService.getQueue().size();
+	}
+
+	public int getActiveCount() {
+		return processingService.getActiveCount();
+	}
+
+	/**
+	 * Get how long chunks have been waiting before being processed, recently.
+	 * 
+	 * @return
+	 * A moving average in milliseconds.
+	 */
+	public double getAverageWait() {
+		synchronized ( waitLock ) {
+			return averageWait / 1_000_000.0;
+		}
+	}
+
+	public long getCompletedCount() {
+		return completed.sum();
+	}
+
+	/**
+	 * Get how many chunks were dropped because the queue was full.
+	 * 
+	 * @return
+	 * The amount since the scheduler was created.
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Get how many chunks were cancelled while waiting, usually because a newer snapshot replaced them.
+	 * 
+	 * @return
+	 * The amount since the scheduler was created.
+	 */
+	public long getSupersededCount() {
+		return superseded.sum();
+	}
+
+	/**
+	 * Cancel everything waiting to be processed, and finish whatever files are being read or written.
+	 */
+	public void terminate() {
+		List< Runnable > leftover = processingService.shutdownNow();
+		for ( Runnable runnable : leftover ) {
+			( ( Task ) runnable ).cancel( false );
+		}
+
+		ioService.shutdown();
+		try {
+			ioService.awaitTermination( 1, TimeUnit.MINUTES );
+		} catch ( InterruptedException e ) {
+			e.printStackTrace();
+		}
+		ioService.shutdownNow();
+	}
+
+	/**
+	 * Get how far a chunk is from the closest player looking at a minimap.
+	 * 
+	 * @param location
+	 * Cannot be null.
+	 * @return
+	 * The squared distance in chunks, or {@link Long#MAX_VALUE} if there is nobody in the same world.
+	 */
+	public long getViewerDistance( ChunkLocation location ) {
+		Viewers viewers = this.viewers;
+		String world = location.getWorldName();
+		long closest = Long.MAX_VALUE;
+		for ( int i = 0; i < viewers.worlds.length; i++ ) {
+			if ( viewers.worlds[ i ].equals( world ) ) {
+				long x = location.getX() - viewers.x[ i ];
+				long z = location.getZ() - viewers.z[ i ];
+				closest = Math.min( closest, x * x + z * z );
+			}
+		}
+		return closest;
+	}
+
+	private void recordWait( long wait ) {
+		synchronized ( waitLock ) {
+			averageWait += ( wait - averageWait ) * WAIT_WEIGHT;
+		}
+	}
+
+	private static void setPoolSize( ThreadPoolExecutor service, int threads ) {
+		Validate.isTrue( threads > 0, "Threads must be positive!" );
+		// The max can never be below the core size
+		if ( threads > service.getMaximumPoolSize() ) {
+			service.setMaximumPoolSize( threads );
+			service.setCorePoolSize( threads );
+		} else {
+			service.setCorePoolSize( threads );
+			service.setMaximumPoolSize( threads );
+		}
+	}
+
+	protected class Task extends FutureTask< ChunkData > implements Comparable< Task > {
+		// Squared distance in chunks to the closest viewer
+		private final long priority;
+		private final long order;
+		private final long queued = System.nanoTime();
+
+		private Task( Callable< ChunkData > callable, long priority, long order ) {
+			super( callable );
+			this.priority = priority;
+			this.order = order;
+		}
+
+		@Override
+		public void run() {
+			recordWait( System.nanoTime() - queued );
+			super.run();
+		}
+
+		@Override
+		public boolean cancel( boolean interrupt ) {
+			boolean cancelled = super.cancel( interrupt );
+			if ( cancelled && processingService.remove( this ) ) {
+				superseded.increment();
+			}
+			return cancelled;
+		}
+
+		@Override
+		protected void done() {
+			if ( !isCancelled() ) {
+				completed.increment();
+			}
+		}
+
+		@Override
+		public int compareTo( Task other ) {
+			int compare = Long.compare( priority, other.priority );
+			return compare != 0 ? compare : Long.compare( order, other.order );
+		}
+	}
+
+	// Chunk coordinates of the viewers, so reading them doesn't touch Bukkit off the main thread
+	private static class Viewers {
+		private final String[] worlds;
+		private final int[] x;
+		private final int[] z;
+
+		private Viewers( Location[] locations ) {
+			worlds = new String[ locations.length ];
+			x = new int[ locations.length ];
+			z = new int[ locations.length ];
+			for ( int i = 0; i < locations.length; i++ ) {
+				worlds[ i ] = locations[ i ].getWorld().getName();
+				x[ i ] = locations[ i ].getBlockX() >> 4;
+				z[ i ] = locations[ i ].getBlockZ() >> 4;
+			}
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		private final String name;
+		private final AtomicInteger count = new AtomicInteger();
+
+		private NamedThreadFactory( String name ) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread( Runnable runnable ) {
+			Thread thread = new Thread( runnable, name + " #" + count.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package io.github.bananapuncher714.cartographer.core.map.process;
+
+/**
+ * Where a {@link MapDataCache} keeps its chunk data.
+ */
+public enum ChunkStorageType {
+	/**
+	 * Regular objects on the heap, limited by the memory limit if there is one.
+	 */
+	HEAP,
+	/**
+	 * Direct buffers outside of the heap, see {@link OffHeapChunkDataStorage}.
+	 */
+	OFF_HEAP;
+}
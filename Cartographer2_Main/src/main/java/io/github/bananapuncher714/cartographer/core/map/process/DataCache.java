@@ -7,10 +7,13 @@ import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
 import io.github.bananapuncher714.cartographer.core.file.BigChunk;
 import io.github.bananapuncher714.cartographer.core.file.BigChunkLocation;
 import io.github.bananapuncher714.cartographer.core.file.BigChunkQueue;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings;
 import io.github.bananapuncher714.cartographer.core.map.palette.MinimapPalette;
 
 public interface DataCache {
 	void setFileQueue( BigChunkQueue queue );
+	default void setTimings( MinimapTimings timings ) {
+	}
 	DataCache setNotifier( ChunkNotifier notifier );
 	ChunkNotifier getChunkNotifier();
 	void update();
@@ -22,6 +25,7 @@ public interface DataCache {
 	void unregisterSnapshot( ChunkLocation location );
 	boolean hasSnapshot( ChunkLocation location );
 	ChunkData getDataAt( ChunkLocation location );
+	ChunkData getDataAt( String world, int x, int z );
 	boolean containsDataAt( ChunkLocation location );
 	ChunkSnapshot getChunkSnapshotAt( ChunkLocation location );
 	void addToChunkLoader( ChunkLocation location );
@@ -31,6 +35,7 @@ public interface DataCache {
 	void removeScannedLocation( BigChunkLocation location );
 	void removeChunkDataAt( ChunkLocation location );
 	void updateLocation( Location location, MinimapPalette palette );
+	void updateColumns( ChunkLocation location, ChunkSnapshot snapshot, ChunkSnapshot north, long[] columns, MinimapPalette palette );
 	void updateDataAt( ChunkLocation location, ChunkData data, boolean force );
 	void updateDataAt( BigChunkLocation location, BigChunk chunk, boolean force );
 	void requestLoadFor( ChunkLocation location, boolean force );
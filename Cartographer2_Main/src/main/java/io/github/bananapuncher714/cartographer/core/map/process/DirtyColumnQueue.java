@@ -0,0 +1,147 @@
+package io.github.bananapuncher714.cartographer.core.map.process;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.bukkit.World;
+
+import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
+
+/**
+ * Collects block updates as a 256 bit mask of dirty columns per chunk, where column x, z is bit x + z * 16.
+ * Any amount of updates to the same chunk only cost one snapshot and one recalculation.
+ * <p>
+ * Not thread safe, should only be used on the main thread.
+ */
+public class DirtyColumnQueue {
+	protected final Map< ChunkLocation, long[] > dirty = new LinkedHashMap< ChunkLocation, long[] >();
+
+	// Physics events tend to come in bursts within the same chunk
+	private ChunkLocation lastLocation;
+	private long[] lastColumns;
+
+	/**
+	 * Mark a column as dirty, along with the columns north and south of it since their shading depends on it.
+	 * 
+	 * @param world
+	 * Cannot be null.
+	 * @param x
+	 * Block x coordinate.
+	 * @param z
+	 * Block z coordinate.
+	 */
+	public void mark( World world, int x, int z ) {
+		for ( int i = -1; i < 2; i++ ) {
+			set( world, x, z + i );
+		}
+	}
+
+	/**
+	 * Mark several columns of a chunk as dirty at once, such as an update that couldn't be processed.
+	 * 
+	 * @param location
+	 * The location of the chunk. Cannot be null.
+	 * @param columns
+	 * A 256 bit mask of the columns. Cannot be null, and is not changed.
+	 */
+	public void mark( ChunkLocation location, long[] columns ) {
+		long[] current = dirty.get( location );
+		if ( current == null ) {
+			dirty.put( location, columns.clone() );
+		} else {
+			for ( int i = 0; i < current.length; i++ ) {
+				current[ i ] |= columns[ i ];
+			}
+		}
+	}
+
+	/**
+	 * Take the chunk that has been waiting the longest.
+	 * 
+	 * @return
+	 * The location and its dirty columns, or null if nothing is dirty.
+	 */
+	public Entry< ChunkLocation, long[] > poll() {
+		Iterator< Entry< ChunkLocation, long[] > > iterator = dirty.entrySet().iterator();
+		if ( !iterator.hasNext() ) {
+			return null;
+		}
+		Entry< ChunkLocation, long[] > entry = iterator.next();
+		iterator.remove();
+		lastLocation = null;
+		lastColumns = null;
+		return entry;
+	}
+
+	public boolean isEmpty() {
+		return dirty.isEmpty();
+	}
+
+	/**
+	 * Get how many chunks have dirty columns.
+	 * 
+	 * @return
+	 * The amount of chunks.
+	 */
+	public int size() {
+		return dirty.size();
+	}
+
+	public void clear() {
+		dirty.clear();
+		lastLocation = null;
+		lastColumns = null;
+	}
+
+	/**
+	 * Count how many columns are set.
+	 * 
+	 * @param columns
+	 * A 256 bit mask. Cannot be null.
+	 * @return
+	 * A number from 0 to 256.
+	 */
+	public static int count( long[] columns ) {
+		int count = 0;
+		for ( long part : columns ) {
+			count += Long.bitCount( part );
+		}
+		return count;
+	}
+
+	/**
+	 * Check if a column is set.
+	 * 
+	 * @param columns
+	 * A 256 bit mask. Cannot be null.
+	 * @param index
+	 * The column, x + z * 16.
+	 * @return
+	 * If the column is set.
+	 */
+	public static boolean isSet( long[] columns, int index ) {
+		return ( columns[ index >> 6 ] & ( 1L << ( index & 63 ) ) ) != 0;
+	}
+
+	private void set( World world, int x, int z ) {
+		int chunkX = x >> 4;
+		int chunkZ = z >> 4;
+		long[] columns;
+		if ( lastLocation != null && lastLocation.getX() == chunkX && lastLocation.getZ() == chunkZ && lastLocation.getWorld() == world ) {
+			columns = lastColumns;
+		} else {
+			ChunkLocation location = new ChunkLocation( world, chunkX, chunkZ );
+			columns = dirty.get( location );
+			if ( columns == null ) {
+				columns = new long[ 4 ];
+				dirty.put( location, columns );
+			}
+			lastLocation = location;
+			lastColumns = columns;
+		}
+		int index = ( x & 0xF ) | ( ( z & 0xF ) << 4 );
+		columns[ index >> 6 ] |= 1L << ( index & 63 );
+	}
+}
@@ -21,16 +21,18 @@ public class EnormousChunkMap {
 	}
 
 	public ChunkData get( ChunkLocation location ) {
-		int x = location.getX() & 0xFF;
-		int z = location.getZ() & 0xFF;
-		
-		return data[ x + ( z << 8 ) ];
+		return get( location.getX(), location.getZ() );
+	}
+	
+	public ChunkData get( int x, int z ) {
+		return data[ ( x & 0xFF ) + ( ( z & 0xFF ) << 8 ) ];
 	}
 	
 	public void set( ChunkLocation location, ChunkData data ) {
-		int x = location.getX() & 0xFF;
-		int z = location.getZ() & 0xFF;
-		
-		this.data[ x + ( z << 8 ) ] = data;
+		set( location.getX(), location.getZ(), data );
+	}
+	
+	public void set( int x, int z, ChunkData data ) {
+		this.data[ ( x & 0xFF ) + ( ( z & 0xFF ) << 8 ) ] = data;
 	}
 }
@@ -1,19 +1,19 @@
 package io.github.bananapuncher714.cartographer.core.map.process;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChunkSnapshot;
@@ -27,22 +27,30 @@ import io.github.bananapuncher714.cartographer.core.file.BigChunk;
 import io.github.bananapuncher714.cartographer.core.file.BigChunkLocation;
 import io.github.bananapuncher714.cartographer.core.file.BigChunkQueue;
 import io.github.bananapuncher714.cartographer.core.map.MapSettings;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings.Phase;
 import io.github.bananapuncher714.cartographer.core.map.palette.MinimapPalette;
 import io.github.bananapuncher714.cartographer.core.util.BlockUtil;
 import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
 
 /**
  * A thread safe cache with chunk data.
+ * <p>
+ * Nothing here is locked. A chunk goes from requested, to snapshotted, to processing, to stored, and each step is a single atomic
+ * operation on one of the concurrent collections, so the main thread and the worker threads never wait on each other.
  * 
  * @author BananaPuncher714
  */
 public class MapDataCache implements DataCache {
-	protected final ExecutorService service = Executors.newFixedThreadPool( 2 );
-	protected final Map< ChunkLocation, Future< ChunkData > > renderers = new HashMap< ChunkLocation, Future< ChunkData > >();
+	protected final Map< ChunkLocation, Future< ChunkData > > renderers = new ConcurrentHashMap< ChunkLocation, Future< ChunkData > >();
+	// Only touched on the main thread, in the order they were submitted
+	protected final List< ColumnUpdate > columnUpdates = new ArrayList< ColumnUpdate >();
 	protected ChunkDataStorage storage;
 	protected final Map< ChunkLocation, ChunkSnapshot > chunks;
 
-	protected final Set< BigChunkLocation > scanned = new HashSet< BigChunkLocation >();
+	protected final Set< BigChunkLocation > scanned = ConcurrentHashMap.newKeySet();
+	// Evicted chunks that still need to be written to file, only used by the main thread
+	protected final Map< BigChunkLocation, BigChunk > evicted = new HashMap< BigChunkLocation, BigChunk >();
 
 	protected ChunkDataProvider provider;
 	protected ChunkNotifier notifier;
@@ -50,8 +58,7 @@ public class MapDataCache implements DataCache {
 	// Minimap specific objects
 	protected MapSettings setting;
 	protected BigChunkQueue queue;
-
-	protected final ReentrantLock lock = new ReentrantLock();
+	protected MinimapTimings timings;
 
 	public MapDataCache( ChunkDataProvider provider, MapSettings setting ) {
 		this( setting );
@@ -60,9 +67,19 @@ public class MapDataCache implements DataCache {
 
 	public MapDataCache( MapSettings setting ) {
 		this.setting = setting;
-		chunks = new HashMap< ChunkLocation, ChunkSnapshot >();
+		chunks = new ConcurrentHashMap< ChunkLocation, ChunkSnapshot >();
+		
+		if ( setting.getStorageType() == ChunkStorageType.OFF_HEAP ) {
+			storage = new OffHeapChunkDataStorage();
+		} else if ( setting.getMemoryLimit() > 0 ) {
+			storage = new BoundedChunkDataStorage( setting.getMemoryLimit() * 1024L * 1024L );
+		} else {
+			storage = new SimpleChunkDataStorage();
+		}
 		
-		storage = new SimpleChunkDataStorage();
+		if ( setting.isMipMaps() ) {
+			storage = new MipMapChunkDataStorage( storage, setting.getMipMapLevels() );
+		}
 	}
 
 	@Override
@@ -70,6 +87,11 @@ public class MapDataCache implements DataCache {
 		this.queue = queue;
 	}
 
+	@Override
+	public void setTimings( MinimapTimings timings ) {
+		this.timings = timings;
+	}
+
 	@Override
 	public MapDataCache setNotifier( ChunkNotifier notifier ) {
 		this.notifier = notifier;
@@ -83,12 +105,12 @@ public class MapDataCache implements DataCache {
 
 	@Override
 	public void update() {
-		lock.lock();
-		for ( Iterator< Entry< ChunkLocation, Future< ChunkData > > > iterator = renderers.entrySet().iterator(); iterator.hasNext(); ) {
-			Entry< ChunkLocation, Future< ChunkData > > entry = iterator.next();
-
+		for ( Entry< ChunkLocation, Future< ChunkData > > entry : renderers.entrySet() ) {
 			ChunkLocation location = entry.getKey();
-			if ( entry.getValue().isDone() ) {
+			if ( entry.getValue().isCancelled() ) {
+				// Dropped by the scheduler, so it can be requested again
+				renderers.remove( location, entry.getValue() );
+			} else if ( entry.getValue().isDone() ) {
 				ChunkData chunkData = null;
 				try {
 					// Shouldn't throw any exceptions at this point
@@ -102,7 +124,35 @@ public class MapDataCache implements DataCache {
 					updateDataAt( location, chunkData, true );
 				}
 
-				// Remove from loading
+				// Remove from loading, unless it has been replaced in the meantime
+				renderers.remove( location, entry.getValue() );
+			}
+		}
+		
+		// Merge in submission order, so an older update never overwrites a newer one
+		Set< ChunkLocation > waiting = new HashSet< ChunkLocation >();
+		for ( Iterator< ColumnUpdate > iterator = columnUpdates.iterator(); iterator.hasNext(); ) {
+			ColumnUpdate update = iterator.next();
+			if ( update.future.isCancelled() ) {
+				// Dropped by the scheduler, so try again with a fresh snapshot
+				Cartographer.getInstance().getBlockUpdateQueue().mark( update.location, update.columns );
+				iterator.remove();
+			} else if ( waiting.contains( update.location ) || !update.future.isDone() ) {
+				waiting.add( update.location );
+			} else {
+				ChunkData colors = null;
+				try {
+					colors = update.future.get();
+				} catch ( InterruptedException | ExecutionException e ) {
+					e.printStackTrace();
+				}
+				
+				if ( colors != null ) {
+					mergeColumns( update.location, update.columns, colors );
+				} else {
+					// The provider couldn't recalculate them, so leave what is stored and try again later
+					Cartographer.getInstance().getBlockUpdateQueue().mark( update.location, update.columns );
+				}
 				iterator.remove();
 			}
 		}
@@ -120,7 +170,52 @@ public class MapDataCache implements DataCache {
 				iterator.remove();
 			}
 		}
-		lock.unlock();
+		
+		saveEvicted();
+	}
+	
+	/**
+	 * Get the regions that have been evicted but not saved yet, because the same region was still being saved or loaded.
+	 * Must be called on the main thread.
+	 * 
+	 * @return
+	 * An unmodifiable map of regions, with only the chunks that still need to be saved.
+	 */
+	public Map< BigChunkLocation, BigChunk > getEvicted() {
+		return Collections.unmodifiableMap( evicted );
+	}
+	
+	/**
+	 * Write back whatever the storage has evicted, and allow it to be loaded from file again. Must be called on the main thread.
+	 */
+	protected void saveEvicted() {
+		ChunkDataStorage base = storage instanceof MipMapChunkDataStorage ? ( ( MipMapChunkDataStorage ) storage ).getBase() : storage;
+		if ( base instanceof BoundedChunkDataStorage ) {
+			for ( Entry< BigChunkLocation, BigChunk > entry : ( ( BoundedChunkDataStorage ) base ).pollEvicted().entrySet() ) {
+				BigChunk previous = evicted.get( entry.getKey() );
+				if ( previous != null ) {
+					// Keep anything from an earlier eviction that has not been saved yet
+					ChunkData[] data = entry.getValue().getData();
+					for ( int i = 0; i < data.length; i++ ) {
+						if ( data[ i ] == null ) {
+							data[ i ] = previous.getData()[ i ];
+						}
+					}
+				}
+				evicted.put( entry.getKey(), entry.getValue() );
+			}
+		}
+		
+		for ( Iterator< Entry< BigChunkLocation, BigChunk > > iterator = evicted.entrySet().iterator(); iterator.hasNext(); ) {
+			Entry< BigChunkLocation, BigChunk > entry = iterator.next();
+			// Clean chunks are already on file, so they can just be dropped
+			entry.getValue().removeClean();
+			// Without a queue there is nowhere to write it to
+			if ( queue == null || entry.getValue().isEmpty() || queue.save( entry.getKey(), entry.getValue() ) ) {
+				scanned.remove( entry.getKey() );
+				iterator.remove();
+			}
+		}
 	}
 	
 
@@ -155,40 +250,34 @@ public class MapDataCache implements DataCache {
 
 		ChunkLocation south = new ChunkLocation( location ).add( 0, 1 );
 		
-		lock.lock();
 		if ( !setting.isReloadChunks() ) {
 			// Is this chunk snapshot really necessary?
 			if ( storage.contains( location ) && storage.contains( south ) ) {
-				lock.unlock();
 				return;
 			}
 		}
 		
 		// Ignore the visible player range for now
+		long start = System.nanoTime();
 		chunks.put( location, location.getChunk().getChunkSnapshot() );
+		record( Phase.CHUNK_SNAPSHOT, start );
 
 		process( location, true );
 		process( south, true );
-		
-		lock.unlock();
 	}
 
 	@Override
 	public void unregisterSnapshot( ChunkLocation location ) {
 		ChunkLocation south = new ChunkLocation( location.getWorld(), location.getX(), location.getZ() + 1 );
-		lock.lock();
+		// Anything still processing keeps the snapshot until update cleans it up
 		if ( !( renderers.containsKey( location ) || renderers.containsKey( south ) ) ) {
 			chunks.remove( location );
 		}
-		lock.unlock();
 	}
 
 	@Override
 	public boolean hasSnapshot( ChunkLocation location ) {
-		lock.lock();
-		boolean contains = chunks.containsKey( location );
-		lock.unlock();
-		return contains;
+		return chunks.containsKey( location );
 	}
 
 	@Override
@@ -196,6 +285,12 @@ public class MapDataCache implements DataCache {
 		// No lock
 		return storage.get( location );
 	}
+	
+	@Override
+	public ChunkData getDataAt( String world, int x, int z ) {
+		// No lock
+		return storage.get( world, x, z );
+	}
 
 	@Override
 	public boolean containsDataAt( ChunkLocation location ) {
@@ -205,10 +300,7 @@ public class MapDataCache implements DataCache {
 
 	@Override
 	public ChunkSnapshot getChunkSnapshotAt( ChunkLocation location ) {
-		lock.lock();
-		ChunkSnapshot snapshot = chunks.get( location );
-		lock.unlock();
-		return snapshot;
+		return chunks.get( location );
 	}
 
 	/**
@@ -225,30 +317,42 @@ public class MapDataCache implements DataCache {
 	@Override
 	public void process( ChunkLocation location, boolean force ) {
 		ChunkLocation north = new ChunkLocation( location ).subtract( 0, 1 );
-		lock.lock();
-		if ( hasSnapshot( north ) && hasSnapshot( location ) ) {
+		ChunkSnapshot snapshot = chunks.get( location );
+		if ( snapshot != null && chunks.containsKey( north ) ) {
 			if ( !renderers.containsKey( location ) || force ) {
-				ChunkProcessor processor = new ChunkProcessor( getChunkSnapshotAt( location ), provider );
+				ChunkProcessor processor = new ChunkProcessor( snapshot, provider );
 	
 				ChunkPreProcessEvent event = new ChunkPreProcessEvent( location, processor );
 				event.callEvent();
-				processor = event.getDataProcessor();
+				ChunkProcessor task = event.getDataProcessor();
 	
-				Future< ChunkData > fut = renderers.put( location, service.submit( processor ) );
-				if ( fut != null && !fut.isDone() ) {
+				if ( force ) {
+					// Cancel the old one first so it stops taking up room in the queue
+					Future< ChunkData > fut = renderers.remove( location );
+					if ( fut != null && !fut.isDone() ) {
+						fut.cancel( true );
+					}
+				}
+				
+				Future< ChunkData > fut = Cartographer.getInstance().getChunkScheduler().submit( location, () -> {
+					long start = System.nanoTime();
+					try {
+						return task.call();
+					} finally {
+						record( Phase.CHUNK_PROCESS, start );
+					}
+				} );
+				if ( fut != null && renderers.putIfAbsent( location, fut ) != null ) {
+					// Something else started processing it first
 					fut.cancel( true );
 				}
 			}
 		}
-		lock.unlock();
 	}
 
 	@Override
 	public boolean isProcessing( ChunkLocation location ) {
-		lock.lock();
-		boolean rendering = renderers.containsKey( location );
-		lock.unlock();
-		return rendering;
+		return renderers.containsKey( location );
 	}
 
 	@Override
@@ -275,16 +379,12 @@ public class MapDataCache implements DataCache {
 
 	@Override
 	public void removeScannedLocation( BigChunkLocation location ) {
-		lock.lock();
 		scanned.remove( location );
-		lock.unlock();
 	}
 
 	@Override
 	public void removeChunkDataAt( ChunkLocation location ) {
-		lock.lock();
 		storage.remove( location );
-		lock.unlock();
 	}
 
 	@Override
@@ -305,7 +405,12 @@ public class MapDataCache implements DataCache {
 			ChunkData cData = storage.get( chunkLoc );
 			if ( cData != null ) {
 				int index = ( south.getBlockX() - ( chunkLoc.getX() << 4 ) ) + ( south.getBlockZ() - ( chunkLoc.getZ() << 4 ) ) * 16;
+				long start = System.nanoTime();
 				cData.getData()[ index ] = JetpImageUtil.getBestColorIncludingTransparent( provider.process( south, palette ) );
+				record( Phase.CHUNK_PROCESS, start );
+				cData.setDirty( true );
+				// Not every storage hands out the data it holds
+				storage.store( chunkLoc, cData );
 			} else {
 				needsUpdate.add( chunkLoc );
 			}
@@ -317,20 +422,69 @@ public class MapDataCache implements DataCache {
 		}
 	}
 
+	@Override
+	public void updateColumns( ChunkLocation location, ChunkSnapshot snapshot, ChunkSnapshot north, long[] columns, MinimapPalette palette ) {
+		if ( !setting.isAutoUpdate() ) {
+			return;
+		}
+
+		if ( !( setting.isRenderOutOfBorder() || Cartographer.getInstance().getDependencyManager().shouldChunkBeLoaded( location ) ) ) {
+			return;
+		}
+
+		// Nothing to update, so process the whole chunk instead
+		if ( !storage.contains( location ) ) {
+			addToChunkLoader( location );
+			return;
+		}
+
+		// Only the colors are computed off the main thread, the stored data is only ever changed in update
+		Future< ChunkData > future = Cartographer.getInstance().getChunkScheduler().submit( location, () -> {
+			byte[] colors = new byte[ 256 ];
+			long start = System.nanoTime();
+			boolean processed = provider.process( snapshot, north, columns, palette, colors );
+			record( Phase.CHUNK_PROCESS, start );
+			return processed ? new ChunkData( colors ) : null;
+		} );
+		
+		if ( future == null ) {
+			Cartographer.getInstance().getBlockUpdateQueue().mark( location, columns );
+		} else {
+			columnUpdates.add( new ColumnUpdate( location, columns, future ) );
+		}
+	}
+
 	@Override
 	public void updateDataAt( ChunkLocation location, ChunkData data, boolean force ) {
+		store( location, data, force, true );
+	}
+
+	/**
+	 * Store the data if it's within the borders, letting the notifier change it first.
+	 * 
+	 * @param location
+	 * Cannot be null.
+	 * @param data
+	 * Cannot be null.
+	 * @param force
+	 * Whether to replace what is already stored.
+	 * @param changed
+	 * Whether the data is new, rather than what was loaded from file.
+	 */
+	protected void store( ChunkLocation location, ChunkData data, boolean force, boolean changed ) {
 		if ( data != null ) {
 			// Check if it's within the worldborder
 			boolean withinBorders = setting.isRenderOutOfBorder() || Cartographer.getInstance().getDependencyManager().shouldChunkBeLoaded( location );
 			if ( withinBorders ) {
-				lock.lock();
+				// The storage is thread safe by itself
 				if ( force || !storage.contains( location ) ) {
 					ChunkData newData = notifier != null ? notifier.onChunkLoad( location, data ) : null;
 					newData = newData == null ? data : newData;
 					
+					// Whatever was loaded from file doesn't need to be written back unless the notifier replaced it
+					newData.setDirty( changed || newData != data );
 					storage.store( location, newData );
 				}
-				lock.unlock();
 			}
 		} else {
 			throw new IllegalArgumentException( "ChunkData cannot be null!" );
@@ -348,7 +502,7 @@ public class MapDataCache implements DataCache {
 
 				ChunkData data = chunk.getData()[ x + zIndex ];
 				if ( data != null ) {
-					updateDataAt( chunkLocation, data, force );
+					store( chunkLocation, data, force, false );
 				} else {
 					requestLoadFor( chunkLocation, force );
 				}
@@ -360,9 +514,7 @@ public class MapDataCache implements DataCache {
 	public void requestLoadFor( ChunkLocation location, boolean force ) {
 		boolean withinBorders = setting.isRenderOutOfBorder() || Cartographer.getInstance().getDependencyManager().shouldChunkBeLoaded( location );
 		if ( withinBorders ) {
-			lock.lock();
 			boolean required = !( storage.contains( location ) || renderers.containsKey( location ) );
-			lock.unlock();
 			if ( required || force ) {
 				// We need to render the chunk
 				// For that, we need the northern chunk snapshot too
@@ -376,9 +528,7 @@ public class MapDataCache implements DataCache {
 
 	@Override
 	public void requestSnapshotFor( ChunkLocation location, boolean force ) {
-		lock.lock();
 		boolean required = !chunks.containsKey( location );
-		lock.unlock();
 		if ( required || force ) {
 			ChunkLoadListener.queueChunk( location );
 		}
@@ -388,8 +538,8 @@ public class MapDataCache implements DataCache {
 	public void requestLoadFor( BigChunkLocation location ) {
 		int cx = location.getX() << 4;
 		int cz = location.getZ() << 4;
-		lock.lock();
-		if ( !scanned.contains( location ) ) {
+		// Claim it, so only one thread scans it at a time
+		if ( scanned.add( location ) ) {
 			boolean attemptToLoad = false;
 			// Scan through each ChunkLocation to see if we're currently processing it
 			for ( int z = 0; z < 16 && !attemptToLoad; z++ ) {
@@ -415,18 +565,72 @@ public class MapDataCache implements DataCache {
 					}
 				}
 			}
-			if ( attemptToLoad ) {
-				if ( queue.load( location ) ) {
-					// Only include this if we've successfully queued a load
-					scanned.add( location );
-				}
+			// Only keep it if we've successfully queued a load
+			if ( !( attemptToLoad && queue.load( location ) ) ) {
+				scanned.remove( location );
 			}
 		}
-		lock.unlock();
 	}
 	
 	@Override
 	public void terminate() {
-		service.shutdown();
+		for ( Future< ChunkData > future : renderers.values() ) {
+			future.cancel( true );
+		}
+		renderers.clear();
+		for ( ColumnUpdate update : columnUpdates ) {
+			update.future.cancel( true );
+		}
+		columnUpdates.clear();
+		// Anything that can't be queued yet is left for the minimap to save along with the rest
+		saveEvicted();
+	}
+	
+	/**
+	 * Copy the recalculated columns into whatever is currently stored. Must be called on the main thread.
+	 * 
+	 * @param location
+	 * The location of the chunk. Cannot be null.
+	 * @param columns
+	 * A 256 bit mask of the columns to copy. Cannot be null.
+	 * @param colors
+	 * The recalculated colors. Cannot be null.
+	 */
+	protected void mergeColumns( ChunkLocation location, long[] columns, ChunkData colors ) {
+		ChunkData data = storage.get( location );
+		// Removed in the meantime, so it gets processed in full the next time it's needed
+		if ( data == null ) {
+			return;
+		}
+		
+		byte[] current = data.getData();
+		byte[] updated = colors.getData();
+		for ( int i = 0; i < current.length; i++ ) {
+			if ( DirtyColumnQueue.isSet( columns, i ) ) {
+				current[ i ] = updated[ i ];
+			}
+		}
+		data.setDirty( true );
+		// Not every storage hands out the data it holds
+		storage.store( location, data );
+	}
+	
+	private void record( Phase phase, long start ) {
+		MinimapTimings timings = this.timings;
+		if ( timings != null ) {
+			timings.record( phase, start );
+		}
+	}
+	
+	protected static class ColumnUpdate {
+		protected final ChunkLocation location;
+		protected final long[] columns;
+		protected final Future< ChunkData > future;
+		
+		protected ColumnUpdate( ChunkLocation location, long[] columns, Future< ChunkData > future ) {
+			this.location = location;
+			this.columns = columns;
+			this.future = future;
+		}
 	}
 }
@@ -1,236 +1,390 @@
 package io.github.bananapuncher714.cartographer.core.map.process;
 
 import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.IntStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.commons.lang.Validate;
 import org.bukkit.Location;
 
 import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
 import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
+import io.github.bananapuncher714.cartographer.core.util.LongObjectMap;
 
+/**
+ * Keeps reduced levels of detail on top of another {@link ChunkDataStorage}, so that zoomed out maps only need a single lookup per pixel.
+ * <p>
+ * Level n has one pixel for every 2^n by 2^n blocks, and is split into tiles of 64 by 64 pixels that can be read without locking.
+ * A pixel of 0 means that nothing is known about the area yet.
+ * The levels stay when chunks are removed from the underlying storage, since they are still valid and are what allows zoomed out maps to render without loading every chunk.
+ */
 public class MipMapChunkDataStorage implements ChunkDataStorage {
-	protected static final int BLOCK_POWER = 6;
-	protected static final int BLOCK_WIDTH = 64;
-	protected static final int SECTION_POWER = 4;
-	protected static final int SECTION_WIDTH = 16;
-	
-	protected int levels;
-	protected List< Map< ChunkLocation, byte[] > > maps;
-	protected final Map< ChunkLocation, ChunkData > data;
-	protected final List< Map< ChunkLocation, int[][] > > locations = new ArrayList< Map< ChunkLocation, int[][] > >();
-	protected ReentrantReadWriteLock lock = new ReentrantReadWriteLock( true );
-	
-	protected final int chunkDataWidth = ChunkData.CHUNK_WIDTH - 1;
-	protected final int sectionWidth = SECTION_WIDTH - 1;
-	protected final int sectionsPerBlock = ( BLOCK_WIDTH >> SECTION_POWER ) - 1;
-	protected final int blockSize = BLOCK_WIDTH * BLOCK_WIDTH;
-	
-	public MipMapChunkDataStorage( int levels ) {
-		this.levels = Math.min( 22, Math.max( 0, levels ) );
-		data = new HashMap< ChunkLocation, ChunkData >();
-		maps = new ArrayList< Map< ChunkLocation, byte[] > >( levels );
-		for ( int i = 0; i <= levels; i++ ) {
-			maps.add( new HashMap< ChunkLocation, byte[] >() );
-		}
-		for ( int i = 0; i < levels; i++ ) {
-			locations.add( new HashMap< ChunkLocation, int[][] >() );
-		}
-	}
-	
+	/**
+	 * The file extension for saved levels.
+	 */
+	public static final String EXTENSION = ".c2m";
+	/**
+	 * Appended to a file while it is being written.
+	 */
+	public static final String TEMP_EXTENSION = ".tmp";
+	public static final int MAX_LEVELS = 22;
+
+	protected static final int MAGIC = 0x43324D4D;
+	protected static final int VERSION = 1;
+
+	protected static final int TILE_POWER = 6;
+	protected static final int TILE_WIDTH = 1 << TILE_POWER;
+	protected static final int TILE_MASK = TILE_WIDTH - 1;
+	protected static final int TILE_SIZE = TILE_WIDTH * TILE_WIDTH;
+
+	// The brightness of every color in the palette, for breaking ties
+	private static final float[] BRIGHTNESS = new float[ 256 ];
+
+	static {
+		for ( int i = 0; i <= JetpImageUtil.getLargestColorVal(); i++ ) {
+			int rgb = JetpImageUtil.getColorFromMinecraftPalette( ( byte ) i );
+			BRIGHTNESS[ i ] = Color.RGBtoHSB( ( rgb >> 16 ) & 0xFF, ( rgb >> 8 ) & 0xFF, rgb & 0xFF, null )[ 2 ];
+		}
+	}
+
+	protected final ChunkDataStorage base;
+	protected final int levels;
+	// Keyed by world name, with a map of tiles for each level starting from level 1
+	protected final Map< String, List< LongObjectMap< byte[] > > > pyramids = new ConcurrentHashMap< String, List< LongObjectMap< byte[] > > >();
+
+	/**
+	 * Construct a storage that keeps the levels provided on top of another storage.
+	 * 
+	 * @param base
+	 * The storage for the full detail chunk data. Cannot be null.
+	 * @param levels
+	 * How many reduced levels to keep, from 0 to {@link #MAX_LEVELS}.
+	 */
+	public MipMapChunkDataStorage( ChunkDataStorage base, int levels ) {
+		Validate.notNull( base );
+		this.base = base;
+		this.levels = Math.min( MAX_LEVELS, Math.max( 0, levels ) );
+	}
+
 	@Override
 	public void store( ChunkLocation location, ChunkData data ) {
-		lock.writeLock().lock();
-		
-		this.data.put( location, data );
-		
-		addMipMapLocation( location );
-		
-		lock.writeLock().unlock();
+		base.store( location, data );
+
+		if ( levels > 0 ) {
+			synchronized ( this ) {
+				updateLevels( getPyramid( location.getWorldName() ), location.getX(), location.getZ(), data.getData() );
+			}
+		}
 	}
 
 	@Override
 	public void remove( ChunkLocation location ) {
-		lock.writeLock().lock();
-		
-		this.data.remove( location );
-		
-		
-		lock.writeLock().unlock();
+		base.remove( location );
 	}
 
 	@Override
 	public ChunkData get( ChunkLocation location ) {
-		ChunkData data;
-		lock.readLock().lock();
-		
-		data = this.data.get( location );
-		
-		lock.readLock().unlock();
-		return data;
+		return base.get( location );
+	}
+
+	@Override
+	public ChunkData get( String world, int x, int z ) {
+		return base.get( world, x, z );
 	}
 
 	@Override
 	public Collection< ChunkLocation > getLocations() {
-		Set< ChunkLocation > chunks;
-		lock.readLock().lock();
-		
-		chunks = new HashSet< ChunkLocation >( data.keySet() );
-		
-		lock.readLock().unlock();
-		return chunks;
+		return base.getLocations();
 	}
 
 	@Override
 	public boolean contains( ChunkLocation location ) {
-		boolean contains;
-		lock.readLock().lock();
-		
-		contains = data.containsKey( location );
-		
-		lock.readLock().unlock();
-		return contains;
+		return base.contains( location );
 	}
 
 	@Override
 	public byte getColorAt( Location location ) {
-		return getColorAt( location, 1 );
+		return base.getColorAt( location );
 	}
 
 	@Override
 	public byte getColorAt( Location location, double scale ) {
-		byte color = -1;
+		int level = getLevel( scale );
+		if ( level == 0 ) {
+			return base.getColorAt( location );
+		}
+		byte color = getColorAt( location.getWorld().getName(), location.getBlockX(), location.getBlockZ(), level );
+		return color == 0 ? -1 : color;
+	}
+
+	@Override
+	public int getLevel( double scale ) {
 		int level = 0;
-		int power = 1;
-		
-		while ( power < scale && level < levels ) {
-			power <<= 1;
+		while ( level < levels && 2 << level <= scale ) {
 			level++;
 		}
-		
-		int locX = location.getBlockX() >> level;
-		int locZ = location.getBlockZ() >> level;
-		
-		lock.readLock().lock();
-
-		Map< ChunkLocation, byte[] > map = maps.get( level );
-		ChunkLocation mipLoc = new ChunkLocation( location.getWorld(), locX >> BLOCK_POWER, locZ >> BLOCK_POWER );
-		byte[] data = map.get( mipLoc );
-		if ( data != null ) {
-			int index = ( ( ( ( ( locX >> SECTION_POWER ) & sectionsPerBlock ) << SECTION_POWER ) << SECTION_POWER ) | ( locX & sectionWidth ) ) |
-					( ( ( ( ( locZ >> SECTION_POWER ) & sectionsPerBlock ) << BLOCK_POWER ) << SECTION_POWER ) | ( ( locZ & sectionWidth ) << SECTION_POWER ) );
-			color = data[ index ];
-		}
-		
-		lock.readLock().unlock();
-		return color;
-	}
-
-	private void addMipMapLocation( ChunkLocation location ) {
-		Map< ChunkLocation, byte[] > baseMap = maps.get( 0 );
-		ChunkData chunk = data.get( location );
-		
-		// Counter for the entire block
-		int[][][] mipCounts = new int[ levels ][][];
-		// The entire block
-		byte[][] mipmaps = new byte[ levels ][];
-		int chunkSize = ( 1 << ChunkData.CHUNK_POWER ) << ChunkData.CHUNK_POWER;
-		for ( int i = 0; i < levels; i++ ) {
-			// Get the block that the location is part of
-			ChunkLocation mipLoc = new ChunkLocation( location.getWorld(), location.getX() >> ( ( BLOCK_POWER - 4 ) + i + 1 ), location.getZ() >> ( ( BLOCK_POWER - 4 ) + i + 1 ) );
-			// Don't want to wipe out the previous block...
-			// But the current location should also be cleared
-			mipCounts[ i ] = locations.get( i ).get( mipLoc );
-			if ( mipCounts[ i ] == null ) {
-				mipCounts[ i ] = new int[ blockSize ][ JetpImageUtil.getLargestColorVal() ];
-				locations.get( i ).put( mipLoc, mipCounts[ i ] );
+		return level;
+	}
+
+	@Override
+	public byte getColorAt( String world, int blockX, int blockZ, int level ) {
+		if ( level <= 0 ) {
+			return base.getColorAt( world, blockX, blockZ, 0 );
+		}
+		List< LongObjectMap< byte[] > > pyramid = pyramids.get( world );
+		if ( pyramid == null ) {
+			return 0;
+		}
+		level = Math.min( level, levels );
+		int x = blockX >> level;
+		int z = blockZ >> level;
+		byte[] tile = pyramid.get( level - 1 ).get( x >> TILE_POWER, z >> TILE_POWER );
+		return tile == null ? 0 : tile[ ( x & TILE_MASK ) | ( ( z & TILE_MASK ) << TILE_POWER ) ];
+	}
+
+	public ChunkDataStorage getBase() {
+		return base;
+	}
+
+	public int getLevels() {
+		return levels;
+	}
+
+	/**
+	 * Save the levels of every world to the directory provided, one file per world.
+	 * Each file is written next to the old one first and then moved over it.
+	 * 
+	 * @param directory
+	 * Cannot be null. Will be created if it does not exist.
+	 * @throws IOException
+	 * If a file could not be written.
+	 */
+	public void save( Path directory ) throws IOException {
+		Validate.notNull( directory );
+		Files.createDirectories( directory );
+		for ( Entry< String, List< LongObjectMap< byte[] > > > entry : pyramids.entrySet() ) {
+			Path file = directory.resolve( entry.getKey() + EXTENSION );
+			Path temp = directory.resolve( entry.getKey() + EXTENSION + TEMP_EXTENSION );
+			try ( DataOutputStream output = new DataOutputStream( new GZIPOutputStream( new BufferedOutputStream( Files.newOutputStream( temp ) ) ) ) ) {
+				output.writeInt( MAGIC );
+				output.writeInt( VERSION );
+				output.writeInt( levels );
+				for ( LongObjectMap< byte[] > tiles : entry.getValue() ) {
+					long[] keys = tiles.keys();
+					output.writeInt( keys.length );
+					for ( long key : keys ) {
+						output.writeLong( key );
+						output.write( tiles.get( key ) );
+					}
+				}
 			}
 			
-			mipmaps[ i ] = maps.get( i + 1 ).get( mipLoc );
-			if ( mipmaps[ i ] == null ) {
-				mipmaps[ i ] = new byte[ blockSize ];
-				maps.get( i + 1 ).put( mipLoc, mipmaps[ i ] );
+			// Only replace the old file once the new one is fully on disk, so it is never left half written
+			try ( FileChannel channel = FileChannel.open( temp, StandardOpenOption.WRITE ) ) {
+				channel.force( true );
 			}
-			
-			// Clear this chunk's location
-			for ( int j = 0; j < chunkSize; j++ ) {
-				int locX = ( location.getX() << 4 | ( j & chunkDataWidth ) ) >> ( i + 1 ); 
-				int locZ = ( location.getZ() << 4 | ( ( j >> ChunkData.CHUNK_POWER ) & chunkDataWidth ) ) >> ( i + 1 ); 
-				int index = ( ( ( ( ( locX >> SECTION_POWER ) & sectionsPerBlock ) << SECTION_POWER ) << SECTION_POWER ) | ( locX & sectionWidth ) ) |
-						( ( ( ( ( locZ >> SECTION_POWER ) & sectionsPerBlock ) << BLOCK_POWER ) << SECTION_POWER ) | ( ( locZ & sectionWidth ) << SECTION_POWER ) );
-				mipCounts[ i ][ index ] = new int[ JetpImageUtil.getLargestColorVal() ];
-				mipmaps[ i ][ index ] = -1;
+			try {
+				Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+			} catch ( AtomicMoveNotSupportedException e ) {
+				Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING );
 			}
-			
 		}
-		
-		if ( chunk != null ) {
-			ChunkLocation mipmapLocation = new ChunkLocation( location.getWorld(), location.getX() >> ( BLOCK_POWER - 4 ), location.getZ() >> ( BLOCK_POWER - 4 ) );
-			byte[] data = baseMap.get( mipmapLocation );
-			if ( data == null ) {
-				data = new byte[ blockSize ];
-				baseMap.put( mipmapLocation, data );
-			}
-			
-			byte[] chunkData = chunk.getData();
-			for ( int arrIndex = 0; arrIndex < chunkData.length; arrIndex++ ) {
-				byte b = chunkData[ arrIndex ];
-			
-				// Find the absolute X and Z
-				int locX = ( location.getX() << ChunkData.CHUNK_POWER ) | ( arrIndex & chunkDataWidth ); 
-				int locZ = ( location.getZ() << ChunkData.CHUNK_POWER ) | ( ( arrIndex >> ChunkData.CHUNK_POWER ) & chunkDataWidth ); 
-				
-				// Convert it to a local index
-				int index = ( ( ( ( ( locX >> SECTION_POWER ) & sectionsPerBlock ) << SECTION_POWER ) << SECTION_POWER ) | ( locX & sectionWidth ) ) |
-						( ( ( ( ( locZ >> SECTION_POWER ) & sectionsPerBlock ) << BLOCK_POWER ) << SECTION_POWER ) | ( ( locZ & sectionWidth ) << SECTION_POWER ) );
-				data[ index ] = b;
-				
-				// Count the number of each color
-				for ( int i = 0; i < levels; i++ ) {
-					locX >>= 1;
-					locZ >>= 1;
-
-					index = ( ( ( ( ( locX >> SECTION_POWER ) & sectionsPerBlock ) << SECTION_POWER ) << SECTION_POWER ) | ( locX & sectionWidth ) ) |
-							( ( ( ( ( locZ >> SECTION_POWER ) & sectionsPerBlock ) << BLOCK_POWER ) << SECTION_POWER ) | ( ( locZ & sectionWidth ) << SECTION_POWER ) );
-					mipCounts[ i ][ index ][ b & 0xFF ]++;
+	}
+
+	/**
+	 * Load the levels that were saved with {@link #save(Path)}.
+	 * Files that cannot be read are deleted.
+	 * 
+	 * @param directory
+	 * Cannot be null.
+	 * @throws IOException
+	 * If the directory could not be read.
+	 */
+	public void load( Path directory ) throws IOException {
+		Validate.notNull( directory );
+		if ( levels == 0 || !Files.isDirectory( directory ) ) {
+			return;
+		}
+		try ( DirectoryStream< Path > stream = Files.newDirectoryStream( directory, "*" + EXTENSION ) ) {
+			for ( Path file : stream ) {
+				String fileName = file.getFileName().toString();
+				String world = fileName.substring( 0, fileName.length() - EXTENSION.length() );
+				try {
+					load( world, file );
+				} catch ( IOException exception ) {
+					pyramids.remove( world );
+					Files.delete( file );
 				}
 			}
 		}
-		
-		IntStream.range( 0, levels ).parallel().forEach( i -> {
-			int[][] mipCount = mipCounts[ i ];
-			byte[] mipmap = mipmaps[ i ];
-			
-			IntStream.range( 0, blockSize ).parallel().forEach( j -> {
-				int best = 0;
-				int highest = 0;
-				for ( int k = 0; k < JetpImageUtil.getLargestColorVal(); k++ ) {
-					int num = mipCount[ j ][ k ];
-					if ( num > highest ) {
-						best = k;
-						highest = num;
-					} else if ( num == highest ) {
-						int bestColor = JetpImageUtil.getColorFromMinecraftPalette( ( byte ) best );
-						int color = JetpImageUtil.getColorFromMinecraftPalette( ( byte ) k );
-						float bestBright = Color.RGBtoHSB( ( bestColor >> 16 ) & 0xFF, ( bestColor >> 8 ) & 0xFF, bestColor & 0xFF, null )[ 2 ];
-						float colorBright = Color.RGBtoHSB( ( color >> 16 ) & 0xFF, ( color >> 8 ) & 0xFF, color & 0xFF, null )[ 2 ];
-						if ( colorBright > bestBright ) {
-							best = k;
-						}
+	}
+
+	private synchronized void load( String world, Path file ) throws IOException {
+		try ( DataInputStream input = new DataInputStream( new GZIPInputStream( new BufferedInputStream( Files.newInputStream( file ) ) ) ) ) {
+			if ( input.readInt() != MAGIC || input.readInt() != VERSION ) {
+				throw new IOException( "Not a supported mipmap file!" );
+			}
+			List< LongObjectMap< byte[] > > pyramid = getPyramid( world );
+			int savedLevels = input.readInt();
+			for ( int level = 0; level < savedLevels; level++ ) {
+				int count = input.readInt();
+				for ( int i = 0; i < count; i++ ) {
+					long key = input.readLong();
+					byte[] tile = new byte[ TILE_SIZE ];
+					input.readFully( tile );
+					// Levels that are no longer kept still have to be read past
+					if ( level < levels ) {
+						pyramid.get( level ).put( key, tile );
 					}
 				}
-				if ( highest > 0 ) {
-					mipmap[ j ] = ( byte ) best;
-				}
-			} );
+			}
+		}
+	}
+
+	private List< LongObjectMap< byte[] > > getPyramid( String world ) {
+		return pyramids.computeIfAbsent( world, name -> {
+			List< LongObjectMap< byte[] > > pyramid = new ArrayList< LongObjectMap< byte[] > >( levels );
+			for ( int i = 0; i < levels; i++ ) {
+				pyramid.add( new LongObjectMap< byte[] >() );
+			}
+			return pyramid;
 		} );
 	}
+
+	/**
+	 * Recalculate the pixels that the chunk is a part of, one level at a time.
+	 * Only the parents of pixels that changed get recalculated, so a chunk costs at most 64 reductions for the first level and a handful for the rest.
+	 */
+	private void updateLevels( List< LongObjectMap< byte[] > > pyramid, int chunkX, int chunkZ, byte[] colors ) {
+		int minX = chunkX << ChunkData.CHUNK_POWER;
+		int minZ = chunkZ << ChunkData.CHUNK_POWER;
+
+		// One bit for each pixel of the chunk on the current level, which is at most 8 by 8
+		long dirty = 0;
+		int width = ChunkData.CHUNK_WIDTH >> 1;
+		LongObjectMap< byte[] > tiles = pyramid.get( 0 );
+		for ( int z = 0; z < width; z++ ) {
+			for ( int x = 0; x < width; x++ ) {
+				int index = ( x << 1 ) + ( z << 1 << ChunkData.CHUNK_POWER );
+				byte color = reduce( colors[ index ], colors[ index + 1 ], colors[ index + ChunkData.CHUNK_WIDTH ], colors[ index + ChunkData.CHUNK_WIDTH + 1 ] );
+				if ( setPixel( tiles, ( minX >> 1 ) + x, ( minZ >> 1 ) + z, color ) ) {
+					dirty |= 1L << ( x + z * width );
+				}
+			}
+		}
+
+		// Then every level after that comes from the one below it, until nothing changes
+		for ( int level = 2; level <= levels && dirty != 0; level++ ) {
+			LongObjectMap< byte[] > below = tiles;
+			tiles = pyramid.get( level - 1 );
+			int childWidth = width;
+			width = Math.max( 1, width >> 1 );
+			int originX = minX >> level;
+			int originZ = minZ >> level;
+
+			long parentDirty = 0;
+			for ( int z = 0; z < width; z++ ) {
+				for ( int x = 0; x < width; x++ ) {
+					if ( !isParentDirty( dirty, childWidth, x, z ) ) {
+						continue;
+					}
+					int childX = ( originX + x ) << 1;
+					int childZ = ( originZ + z ) << 1;
+					byte color = reduce( getPixel( below, childX, childZ ), getPixel( below, childX + 1, childZ ), getPixel( below, childX, childZ + 1 ), getPixel( below, childX + 1, childZ + 1 ) );
+					if ( setPixel( tiles, originX + x, originZ + z, color ) ) {
+						parentDirty |= 1L << ( x + z * width );
+					}
+				}
+			}
+			dirty = parentDirty;
+		}
+	}
+
+	private static boolean isParentDirty( long dirty, int childWidth, int x, int z ) {
+		if ( childWidth == 1 ) {
+			// Only one of the children belongs to the chunk
+			return dirty != 0;
+		}
+		int index = ( x << 1 ) + ( z << 1 ) * childWidth;
+		return ( dirty & ( ( 3L << index ) | ( 3L << ( index + childWidth ) ) ) ) != 0;
+	}
+
+	private static byte getPixel( LongObjectMap< byte[] > tiles, int x, int z ) {
+		byte[] tile = tiles.get( x >> TILE_POWER, z >> TILE_POWER );
+		return tile == null ? 0 : tile[ ( x & TILE_MASK ) | ( ( z & TILE_MASK ) << TILE_POWER ) ];
+	}
+
+	/**
+	 * Set a pixel, creating the tile if necessary.
+	 * 
+	 * @return
+	 * If the pixel changed.
+	 */
+	private static boolean setPixel( LongObjectMap< byte[] > tiles, int x, int z, byte color ) {
+		byte[] tile = tiles.get( x >> TILE_POWER, z >> TILE_POWER );
+		if ( tile == null ) {
+			if ( color == 0 ) {
+				return false;
+			}
+			tile = new byte[ TILE_SIZE ];
+			tiles.put( x >> TILE_POWER, z >> TILE_POWER, tile );
+		}
+		int index = ( x & TILE_MASK ) | ( ( z & TILE_MASK ) << TILE_POWER );
+		if ( tile[ index ] == color ) {
+			return false;
+		}
+		tile[ index ] = color;
+		return true;
+	}
+
+	/**
+	 * Pick the most common color out of 4, ignoring unknown pixels and preferring the brightest color for ties.
+	 */
+	private static byte reduce( byte a, byte b, byte c, byte d ) {
+		int countA = a == 0 ? 0 : 1 + ( a == b ? 1 : 0 ) + ( a == c ? 1 : 0 ) + ( a == d ? 1 : 0 );
+		int countB = b == 0 ? 0 : 1 + ( b == c ? 1 : 0 ) + ( b == d ? 1 : 0 );
+		int countC = c == 0 ? 0 : 1 + ( c == d ? 1 : 0 );
+		int countD = d == 0 ? 0 : 1;
+
+		byte best = 0;
+		int highest = 0;
+		if ( isBetter( a, countA, best, highest ) ) {
+			best = a;
+			highest = countA;
+		}
+		if ( isBetter( b, countB, best, highest ) ) {
+			best = b;
+			highest = countB;
+		}
+		if ( isBetter( c, countC, best, highest ) ) {
+			best = c;
+			highest = countC;
+		}
+		if ( isBetter( d, countD, best, highest ) ) {
+			best = d;
+		}
+		return best;
+	}
+
+	private static boolean isBetter( byte color, int count, byte best, int highest ) {
+		return count > highest || ( count == highest && count > 0 && BRIGHTNESS[ color & 0xFF ] > BRIGHTNESS[ best & 0xFF ] );
+	}
 }
@@ -0,0 +1,235 @@
+package io.github.bananapuncher714.cartographer.core.map.process;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+import org.bukkit.Location;
+
+import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
+import io.github.bananapuncher714.cartographer.core.util.LongIntMap;
+import io.github.bananapuncher714.cartographer.core.util.LongObjectMap;
+
+/**
+ * Stores the colors of every chunk outside of the heap, packed into direct buffers.
+ * <p>
+ * Each chunk takes up a 256 byte slot in a slab, found through a primitive map per world, so there are no objects per chunk for the garbage collector to scan.
+ * Since {@link ChunkData} is backed by an array, {@link #get(String, int, int)} returns a copy. Changes to it must be stored again to take effect.
+ * Reads are optimistic and only wait if a write happened at the same time.
+ */
+public class OffHeapChunkDataStorage implements ChunkDataStorage {
+	private static final int CHUNK_SIZE = ChunkData.CHUNK_WIDTH * ChunkData.CHUNK_WIDTH;
+	// 4096 chunks, or 1 MB, per slab
+	private static final int SLAB_POWER = 12;
+	private static final int SLAB_MASK = ( 1 << SLAB_POWER ) - 1;
+
+	protected final StampedLock lock = new StampedLock();
+	protected final Map< String, LongIntMap > slots = new ConcurrentHashMap< String, LongIntMap >();
+	protected ByteBuffer[] slabs = new ByteBuffer[ 0 ];
+	// One bit per slot for whether the chunk has changed since it was read from or written to file
+	protected long[] dirty = new long[ 0 ];
+
+	// Slots that have been freed and can be reused
+	protected int[] free = new int[ 16 ];
+	protected int freeCount = 0;
+	protected int nextSlot = 0;
+
+	@Override
+	public void store( ChunkLocation location, ChunkData data ) {
+		byte[] colors = data.getData();
+		long stamp = lock.writeLock();
+		try {
+			LongIntMap worldSlots = slots.computeIfAbsent( location.getWorldName(), name -> new LongIntMap() );
+			long key = LongObjectMap.key( location.getX(), location.getZ() );
+			int slot = worldSlots.get( key );
+			if ( slot == LongIntMap.MISSING ) {
+				slot = allocate();
+				worldSlots.put( key, slot );
+			}
+
+			ByteBuffer slab = slabs[ slot >>> SLAB_POWER ];
+			int offset = ( slot & SLAB_MASK ) * CHUNK_SIZE;
+			for ( int i = 0; i < CHUNK_SIZE; i++ ) {
+				slab.put( offset + i, colors[ i ] );
+			}
+			if ( data.isDirty() ) {
+				dirty[ slot >>> 6 ] |= 1L << ( slot & 63 );
+			} else {
+				dirty[ slot >>> 6 ] &= ~( 1L << ( slot & 63 ) );
+			}
+		} finally {
+			lock.unlockWrite( stamp );
+		}
+	}
+
+	@Override
+	public void remove( ChunkLocation location ) {
+		long stamp = lock.writeLock();
+		try {
+			LongIntMap worldSlots = slots.get( location.getWorldName() );
+			if ( worldSlots != null ) {
+				int slot = worldSlots.remove( LongObjectMap.key( location.getX(), location.getZ() ) );
+				if ( slot != LongIntMap.MISSING ) {
+					if ( freeCount == free.length ) {
+						free = Arrays.copyOf( free, freeCount << 1 );
+					}
+					free[ freeCount++ ] = slot;
+				}
+			}
+		} finally {
+			lock.unlockWrite( stamp );
+		}
+	}
+
+	@Override
+	public ChunkData get( ChunkLocation location ) {
+		return get( location.getWorldName(), location.getX(), location.getZ() );
+	}
+
+	@Override
+	public ChunkData get( String world, int x, int z ) {
+		LongIntMap worldSlots = slots.get( world );
+		if ( worldSlots == null ) {
+			return null;
+		}
+		long key = LongObjectMap.key( x, z );
+		byte[] colors = new byte[ CHUNK_SIZE ];
+
+		long stamp = lock.tryOptimisticRead();
+		int slot = stamp == 0 ? LongIntMap.MISSING : read( worldSlots, key, colors );
+		boolean isDirty = isDirty( slot );
+		if ( !lock.validate( stamp ) ) {
+			stamp = lock.readLock();
+			try {
+				slot = read( worldSlots, key, colors );
+				isDirty = isDirty( slot );
+			} finally {
+				lock.unlockRead( stamp );
+			}
+		}
+		if ( slot == LongIntMap.MISSING ) {
+			return null;
+		}
+		ChunkData data = new ChunkData( colors );
+		data.setDirty( isDirty );
+		return data;
+	}
+
+	@Override
+	public Collection< ChunkLocation > getLocations() {
+		List< ChunkLocation > locations = new ArrayList< ChunkLocation >();
+		long stamp = lock.readLock();
+		try {
+			for ( Entry< String, LongIntMap > entry : slots.entrySet() ) {
+				for ( long key : entry.getValue().keys() ) {
+					locations.add( new ChunkLocation( entry.getKey(), ( int ) ( key >> 32 ), ( int ) key ) );
+				}
+			}
+		} finally {
+			lock.unlockRead( stamp );
+		}
+		return locations;
+	}
+
+	@Override
+	public boolean contains( ChunkLocation location ) {
+		LongIntMap worldSlots = slots.get( location.getWorldName() );
+		if ( worldSlots == null ) {
+			return false;
+		}
+		long key = LongObjectMap.key( location.getX(), location.getZ() );
+
+		long stamp = lock.tryOptimisticRead();
+		boolean contains = stamp != 0 && worldSlots.containsKey( key );
+		if ( !lock.validate( stamp ) ) {
+			stamp = lock.readLock();
+			try {
+				contains = worldSlots.containsKey( key );
+			} finally {
+				lock.unlockRead( stamp );
+			}
+		}
+		return contains;
+	}
+
+	@Override
+	public byte getColorAt( Location location ) {
+		int blockX = location.getBlockX();
+		int blockZ = location.getBlockZ();
+		LongIntMap worldSlots = slots.get( location.getWorld().getName() );
+		if ( worldSlots == null ) {
+			return -1;
+		}
+		long key = LongObjectMap.key( blockX >> 4, blockZ >> 4 );
+		int index = ( blockX & 0xF ) + ( ( blockZ & 0xF ) << ChunkData.CHUNK_POWER );
+
+		long stamp = lock.tryOptimisticRead();
+		int color = stamp == 0 ? -1 : readColor( worldSlots, key, index );
+		if ( !lock.validate( stamp ) ) {
+			stamp = lock.readLock();
+			try {
+				color = readColor( worldSlots, key, index );
+			} finally {
+				lock.unlockRead( stamp );
+			}
+		}
+		return ( byte ) color;
+	}
+
+	@Override
+	public byte getColorAt( Location location, double scale ) {
+		return getColorAt( location );
+	}
+
+	// May see inconsistent data unless holding a lock, so it must not throw
+	private int read( LongIntMap worldSlots, long key, byte[] colors ) {
+		int slot = worldSlots.get( key );
+		ByteBuffer[] slabs = this.slabs;
+		if ( slot == LongIntMap.MISSING || slot >>> SLAB_POWER >= slabs.length ) {
+			return LongIntMap.MISSING;
+		}
+		ByteBuffer slab = slabs[ slot >>> SLAB_POWER ];
+		int offset = ( slot & SLAB_MASK ) * CHUNK_SIZE;
+		for ( int i = 0; i < CHUNK_SIZE; i++ ) {
+			colors[ i ] = slab.get( offset + i );
+		}
+		return slot;
+	}
+
+	private boolean isDirty( int slot ) {
+		long[] dirty = this.dirty;
+		if ( slot == LongIntMap.MISSING || slot >>> 6 >= dirty.length ) {
+			return false;
+		}
+		return ( dirty[ slot >>> 6 ] & ( 1L << ( slot & 63 ) ) ) != 0;
+	}
+
+	private int readColor( LongIntMap worldSlots, long key, int index ) {
+		int slot = worldSlots.get( key );
+		ByteBuffer[] slabs = this.slabs;
+		if ( slot == LongIntMap.MISSING || slot >>> SLAB_POWER >= slabs.length ) {
+			return -1;
+		}
+		return slabs[ slot >>> SLAB_POWER ].get( ( slot & SLAB_MASK ) * CHUNK_SIZE + index );
+	}
+
+	private int allocate() {
+		if ( freeCount > 0 ) {
+			return free[ --freeCount ];
+		}
+		int slot = nextSlot++;
+		if ( slot >>> SLAB_POWER >= slabs.length ) {
+			ByteBuffer[] grown = Arrays.copyOf( slabs, slabs.length + 1 );
+			grown[ slabs.length ] = ByteBuffer.allocateDirect( CHUNK_SIZE << SLAB_POWER );
+			dirty = Arrays.copyOf( dirty, grown.length << ( SLAB_POWER - 6 ) );
+			slabs = grown;
+		}
+		return slot;
+	}
+}
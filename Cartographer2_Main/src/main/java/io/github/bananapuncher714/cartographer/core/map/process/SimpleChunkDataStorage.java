@@ -7,25 +7,29 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.bukkit.Location;
 
 import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
+import io.github.bananapuncher714.cartographer.core.util.LongObjectMap;
 
 public class SimpleChunkDataStorage implements ChunkDataStorage {
-	protected final Map< EnormousChunkLocation, EnormousChunkMap > bigData;
+	// Keyed by world name, then by the EnormousChunkLocation coordinates
+	protected final Map< String, LongObjectMap< EnormousChunkMap > > bigData;
 	protected final Map< ChunkLocation, ChunkData > data;
 	
 	public SimpleChunkDataStorage() {
 		data = new ConcurrentHashMap< ChunkLocation, ChunkData >();
-		bigData = new ConcurrentHashMap< EnormousChunkLocation, EnormousChunkMap >();
+		bigData = new ConcurrentHashMap< String, LongObjectMap< EnormousChunkMap > >();
 	}
 	
 	@Override
 	public void store( ChunkLocation location, ChunkData data ) {
 		this.data.put( location, data );
 		
-		EnormousChunkLocation bigLocation = new EnormousChunkLocation( location );
-		EnormousChunkMap map = bigData.get( bigLocation );
+		LongObjectMap< EnormousChunkMap > worldData = bigData.computeIfAbsent( location.getWorldName(), name -> new LongObjectMap< EnormousChunkMap >() );
+		int bigX = location.getX() >> 8;
+		int bigZ = location.getZ() >> 8;
+		EnormousChunkMap map = worldData.get( bigX, bigZ );
 		if ( map == null ) {
-			map = new EnormousChunkMap( bigLocation );
-			bigData.put( bigLocation, map );
+			map = new EnormousChunkMap( new EnormousChunkLocation( location.getWorldName(), bigX, bigZ ) );
+			worldData.put( bigX, bigZ, map );
 		}
 		map.set( location, data );
 	}
@@ -33,16 +37,28 @@ public class SimpleChunkDataStorage implements ChunkDataStorage {
 	@Override
 	public void remove( ChunkLocation location ) {
 		data.remove( location );
-		EnormousChunkMap map = bigData.get( new EnormousChunkLocation( location ) );
-		if ( map != null ) {
-			map.set( location, null );
+		LongObjectMap< EnormousChunkMap > worldData = bigData.get( location.getWorldName() );
+		if ( worldData != null ) {
+			EnormousChunkMap map = worldData.get( location.getX() >> 8, location.getZ() >> 8 );
+			if ( map != null ) {
+				map.set( location, null );
+			}
 		}
 	}
 
 	@Override
 	public ChunkData get( ChunkLocation location ) {
-		EnormousChunkMap map = bigData.get( new EnormousChunkLocation( location ) );
-		return map == null ? null : map.get( location );
+		return get( location.getWorldName(), location.getX(), location.getZ() );
+	}
+	
+	@Override
+	public ChunkData get( String world, int x, int z ) {
+		LongObjectMap< EnormousChunkMap > worldData = bigData.get( world );
+		if ( worldData == null ) {
+			return null;
+		}
+		EnormousChunkMap map = worldData.get( x >> 8, z >> 8 );
+		return map == null ? null : map.get( x, z );
 	}
 	
 	@Override
@@ -62,11 +78,10 @@ public class SimpleChunkDataStorage implements ChunkDataStorage {
 		int chunkX = blockX >> 4;
 		int chunkZ = blockZ >> 4;
 		
-		ChunkLocation cLocation = new ChunkLocation( location.getWorld(), chunkX, chunkZ );
 		int xOffset = blockX & 0xF;
 		int zOffset = blockZ & 0xF;
 		
-		ChunkData data = get( cLocation );
+		ChunkData data = get( location.getWorld().getName(), chunkX, chunkZ );
 		return data == null ? -1 : data.getDataAt( xOffset, zOffset );
 	}
 
@@ -77,11 +92,10 @@ public class SimpleChunkDataStorage implements ChunkDataStorage {
 		int chunkX = blockX >> 4;
 		int chunkZ = blockZ >> 4;
 		
-		ChunkLocation cLocation = new ChunkLocation( location.getWorld(), chunkX, chunkZ );
 		int xOffset = blockX & 0xF;
 		int zOffset = blockZ & 0xF;
 		
-		ChunkData data = get( cLocation );
+		ChunkData data = get( location.getWorld().getName(), chunkX, chunkZ );
 		return data == null ? -1 : data.getDataAt( xOffset, zOffset, scale );
 	}
 
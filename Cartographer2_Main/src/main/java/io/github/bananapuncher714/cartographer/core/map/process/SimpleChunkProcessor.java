@@ -10,6 +10,8 @@ import org.bukkit.block.Block;
 
 import io.github.bananapuncher714.cartographer.core.Cartographer;
 import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
+import io.github.bananapuncher714.cartographer.core.api.GeneralUtil;
+import io.github.bananapuncher714.cartographer.core.map.palette.CompiledPalette;
 import io.github.bananapuncher714.cartographer.core.map.palette.MinimapPalette;
 import io.github.bananapuncher714.cartographer.core.util.BlockUtil;
 import io.github.bananapuncher714.cartographer.core.util.CrossVersionMaterial;
@@ -50,67 +52,51 @@ public class SimpleChunkProcessor implements ChunkDataProvider {
 		if ( northSnapshot == null ) {
 			return null;
 		}
+		GeneralUtil util = Cartographer.getUtil();
+		CompiledPalette compiled = palette.compile();
 		for ( int i = 0; i < 16; i++ ) {
-			buffer[ i ] = BlockUtil.getHighestYAt( northSnapshot, i, maxHeight, 15, palette.getTransparentBlocks(), minHeight );
+			buffer[ i ] = util.getHighestYAt( northSnapshot, i, maxHeight, 15, compiled, minHeight );
 		}
 		
 		byte[] data = new byte[ 256 ];
 		
 		for ( int z = 0; z < 16; z++ ) {
 			for ( int x = 0; x < 16; x++ ) {
-				int height = BlockUtil.getHighestYAt( snapshot, x, maxHeight, z, palette.getTransparentBlocks(), minHeight );
-				int prevVal = buffer[ x ];
+				int height = util.getHighestYAt( snapshot, x, maxHeight, z, compiled, minHeight );
+				data[ x + ( z << 4 ) ] = getColor( util, snapshot, compiled, x, z, height, buffer[ x ], minHeight );
 				buffer[ x ] = height;
-				Color color = palette.getDefaultColor();
-				if ( Cartographer.getUtil().isWater( snapshot, x, height, z ) ) {
-					// WATER RENDERING TIME
-					int depth = BlockUtil.getWaterDepth( snapshot, x, height, z, minHeight );
-					boolean even = ( ( x + z ) & 1 ) == 0;
-					// 1-2
-					// 3-4
-					// 5-6
-					// 7-9
-					// 10+
-					color = palette.getColor( new CrossVersionMaterial( Material.WATER ) );
-					if ( depth < 3 ) {
-						// Do nothing
-					} else if ( depth < 5 ) {
-						if ( even ) {
-							// Do nothing
-						} else {
-							color = JetpImageUtil.brightenColor( color, -10 );
-						}
-					} else if ( depth < 7 ) {
-						color = JetpImageUtil.brightenColor( color, -10 );
-					} else if ( depth < 10 ) {
-						if ( even ) {
-							color = JetpImageUtil.brightenColor( color, -10 );
-						} else {
-							color = JetpImageUtil.brightenColor( color, -30 );
-						}
-					} else {
-						color = JetpImageUtil.brightenColor( color, -30 );
-					}
-				} else {
-					// It's something on land
-					CrossVersionMaterial material = Cartographer.getUtil().getBlockType( snapshot, x, height, z );
-					color = palette.getColor( material );
-					if ( prevVal > 0 ) {
-						if ( prevVal == height ) {
-							color = JetpImageUtil.brightenColor( color, -10 );
-						} else if ( prevVal > height ) {
-							color = JetpImageUtil.brightenColor( color, -30 );
-						}
-					}
-					
-				}
-				data[ x + ( z << 4 ) ] = JetpImageUtil.getBestColorIncludingTransparent( color.getRGB() );
 			}
 		}
 		
 		return new ChunkData( data );
 	}
 	
+	@Override
+	public boolean process( ChunkSnapshot snapshot, ChunkSnapshot north, long[] columns, MinimapPalette palette, byte[] data ) {
+		ChunkLocation location = new ChunkLocation( snapshot );
+		int maxHeight = location.getWorld().getMaxHeight() - 1;
+		int minHeight = Cartographer.getUtil().getMinWorldHeight( location.getWorld() );
+		GeneralUtil util = Cartographer.getUtil();
+		CompiledPalette compiled = palette.compile();
+		for ( int z = 0; z < 16; z++ ) {
+			for ( int x = 0; x < 16; x++ ) {
+				int index = x + ( z << 4 );
+				if ( DirtyColumnQueue.isSet( columns, index ) ) {
+					int height = util.getHighestYAt( snapshot, x, maxHeight, z, compiled, minHeight );
+					// Without the chunk to the north, the first row doesn't get shaded
+					int prevVal = 0;
+					if ( z > 0 ) {
+						prevVal = util.getHighestYAt( snapshot, x, maxHeight, z - 1, compiled, minHeight );
+					} else if ( north != null ) {
+						prevVal = util.getHighestYAt( north, x, maxHeight, 15, compiled, minHeight );
+					}
+					data[ index ] = getColor( util, snapshot, compiled, x, z, height, prevVal, minHeight );
+				}
+			}
+		}
+		return true;
+	}
+	
 	@Override
 	public int process( Location location, MinimapPalette palette ) {
 		Validate.notNull( palette );
@@ -166,4 +152,49 @@ public class SimpleChunkProcessor implements ChunkDataProvider {
 		
 		return color.getRGB();
 	}
+	
+	private byte getColor( GeneralUtil util, ChunkSnapshot snapshot, CompiledPalette compiled, int x, int z, int height, int prevVal, int minHeight ) {
+		int shade = CompiledPalette.SHADE_NORMAL;
+		if ( util.isWater( snapshot, x, height, z ) ) {
+			// WATER RENDERING TIME
+			int depth = BlockUtil.getWaterDepth( snapshot, x, height, z, minHeight );
+			boolean even = ( ( x + z ) & 1 ) == 0;
+			// 1-2
+			// 3-4
+			// 5-6
+			// 7-9
+			// 10+
+			if ( depth < 3 ) {
+				// Do nothing
+			} else if ( depth < 5 ) {
+				if ( even ) {
+					// Do nothing
+				} else {
+					shade = CompiledPalette.SHADE_DARK;
+				}
+			} else if ( depth < 7 ) {
+				shade = CompiledPalette.SHADE_DARK;
+			} else if ( depth < 10 ) {
+				if ( even ) {
+					shade = CompiledPalette.SHADE_DARK;
+				} else {
+					shade = CompiledPalette.SHADE_DARKER;
+				}
+			} else {
+				shade = CompiledPalette.SHADE_DARKER;
+			}
+			return compiled.getColor( Material.WATER, 0, shade );
+		} else {
+			// It's something on land
+			CrossVersionMaterial material = util.getBlockType( snapshot, x, height, z );
+			if ( prevVal > 0 ) {
+				if ( prevVal == height ) {
+					shade = CompiledPalette.SHADE_DARK;
+				} else if ( prevVal > height ) {
+					shade = CompiledPalette.SHADE_DARKER;
+				}
+			}
+			return compiled.getColor( material.material, material.durability, shade );
+		}
+	}
 }
@@ -51,10 +51,11 @@ public class SimplerChunkDataStorage implements ChunkDataStorage {
 		return null;
 	}
 	
-	public ChunkData get( String world, int x, int y ) {
+	@Override
+	public ChunkData get( String world, int x, int z ) {
 		WorldStorage cache = caches.get( world );
 		if ( cache != null ) {
-			return cache.get( x, y );
+			return cache.get( x, z );
 		}
 		return null;
 	}
@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -39,11 +40,12 @@ import io.github.bananapuncher714.cartographer.core.api.events.renderer.Cartogra
 import io.github.bananapuncher714.cartographer.core.file.BigChunkLocation;
 import io.github.bananapuncher714.cartographer.core.map.MapViewer;
 import io.github.bananapuncher714.cartographer.core.map.Minimap;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings.Phase;
 import io.github.bananapuncher714.cartographer.core.map.menu.MapInteraction;
 import io.github.bananapuncher714.cartographer.core.map.menu.MapMenu;
 import io.github.bananapuncher714.cartographer.core.map.process.DataCache;
 import io.github.bananapuncher714.cartographer.core.util.FailSafe;
-import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
+import io.github.bananapuncher714.cartographer.core.util.MapUtil;
 
 /**
  * Render a map and send the packet
@@ -53,6 +55,9 @@ import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
 public class CartographerRenderer extends MapRenderer {
 	// Maximum number of ticks to keep updating the player after not recieving render calls for them
 	private static final int UPDATE_THRESHOLD = 5000;
+	// Maximum time in milliseconds between sending the entire frame, in case the client lost its copy
+	private static final int FULL_FRAME_INTERVAL = 10000;
+	private static final int CANVAS_SIZE = 128 * 128;
 	
 	// Async is not recommended, particularly because of the pixel and cursor providers
 	private static final boolean ASYNC_RENDER = false;
@@ -106,8 +111,8 @@ public class CartographerRenderer extends MapRenderer {
 	}
 	
 	private void update() {
-		// Each person gets their own FrameRenderTask
-		List< RecursiveTask< RenderInfo > > tasks = new LinkedList< RecursiveTask< RenderInfo > >();
+		// Each person gets their own RenderInfo, but not necessarily their own FrameRenderTask
+		List< RenderInfo > infos = new LinkedList< RenderInfo >();
 		for ( Iterator< Entry< UUID, PlayerSetting > > iterator = settings.entrySet().iterator(); iterator.hasNext(); ) {
 			Entry< UUID, PlayerSetting > entry = iterator.next();
 			PlayerSetting setting = entry.getValue();
@@ -151,7 +156,7 @@ public class CartographerRenderer extends MapRenderer {
 					MapCursor cursor = Cartographer.getInstance().getHandler().constructMapCursor( x, y, 0, type, null );
 					cursors.add( cursor );
 					
-					plugin.getHandler().sendDataTo( id, data, cursors.toArray( new MapCursor[ cursors.size() ] ), entry.getKey() );
+					sendFrame( setting, data, cursors.toArray( new MapCursor[ cursors.size() ] ) );
 				}
 				continue;
 			}
@@ -162,18 +167,11 @@ public class CartographerRenderer extends MapRenderer {
 				SimpleImage missingImage = plugin.getSettings().getMissingMapImage();
 				byte[] missingMapData;
 				if ( plugin.getSettings().isDitherMissingMapImage() ) {
-					missingMapData = JetpImageUtil.dither2Minecraft( missingImage.getImage(), missingImage.getWidth() ).array();
-					int[] imageData = missingImage.getImage();
-					// Copy over transparent pixels
-					for ( int i = 0; i < imageData.length; i++ ) {
-						if ( ( ( imageData[ i ] >>> 24 ) & 0xFF ) < 128 ) {
-							missingMapData[ i ] = 1;
-						}
-					}
+					missingMapData = missingImage.getDitheredData();
 				} else {
-					missingMapData = JetpImageUtil.simplifyTransparent( missingImage.getImage() );
+					missingMapData = missingImage.getMatchedData();
 				}
-				plugin.getHandler().sendDataTo( id, missingMapData, null, entry.getKey() );
+				sendFrame( setting, missingMapData, null );
 				continue;
 			}
 			
@@ -184,23 +182,22 @@ public class CartographerRenderer extends MapRenderer {
 				}
 				byte[] data = new byte[ 128 * 128 ];
 				if ( image != null ) {
+					// Copied, since whatever listens to the event may change it
 					if ( map.getSettings().isDitherBlacklisted() ) {
-						data = JetpImageUtil.dither2Minecraft( image.getImage(), image.getWidth() ).array();
-						int[] imageData = image.getImage();
-						for ( int i = 0; i < imageData.length; i++ ) {
-							if ( ( ( imageData[ i ] >>> 24 ) & 0xFF ) < 128 ) {
-								data[ i ] = 1;
-							}
-						}
+						long start = System.nanoTime();
+						data = image.getDitheredData().clone();
+						map.getTimings().record( Phase.DITHERING, start );
 					} else {
-						data = JetpImageUtil.simplifyTransparent( image.getImage() );
+						data = image.getMatchedData().clone();
 					}
 				}
 				CartographerRendererDisabledEvent event = new CartographerRendererDisabledEvent( this, data );
 				event.callEvent();
 				data = event.getData();
 				
-				plugin.getHandler().sendDataTo( id, data, null, entry.getKey() );
+				long start = System.nanoTime();
+				sendFrame( setting, data, null );
+				map.getTimings().record( Phase.PACKET_SEND, start );
 				continue;
 			}
 			
@@ -212,10 +209,12 @@ public class CartographerRenderer extends MapRenderer {
 			// - Free real estate
 
 			// Gather the cursors and pixels sync
+			long start = System.nanoTime();
 			Collection< MapCursor > localCursors = map.getLocalCursorsFor( player, setting );
 			Collection< WorldCursor > realWorldCursors = map.getCursorsFor( player, setting );
 			Collection< MapPixel > pixels = map.getPixelsFor( player, setting );
 			Collection< WorldPixel > worldPixels = map.getWorldPixelsFor( player, setting );
+			map.getTimings().record( Phase.PROVIDERS, start );
 			
 			DataCache cache = map.getDataCache();
 
@@ -251,20 +250,33 @@ public class CartographerRenderer extends MapRenderer {
 			renderInfo.overlayImage = overlayImage;
 			renderInfo.backgroundImage = backgroundImage;
 			
-			// Create a new task per player and run
-			RecursiveTask< RenderInfo > task;
-			if ( plugin.getSettings().isUseSubtasks() ) {
-				// This splits the task among other threads
-				task = new FrameRenderTask( renderInfo );
-			} else {
-				// This calculates the frame all at once
-				task = new FullRenderTask( renderInfo );
-			}
-			tasks.add( task );
-			
-			if ( !plugin.getSettings().isRendererMultithread() ) {
-				task.fork();
+			infos.add( renderInfo );
+		}
+		
+		// Players that would see the exact same frame only need it rendered once
+		// This has to be done before any tasks start, since they modify the world pixels
+		Map< RenderKey, RecursiveTask< RenderInfo > > frames = new HashMap< RenderKey, RecursiveTask< RenderInfo > >();
+		Map< RenderInfo, RecursiveTask< RenderInfo > > tasks = new LinkedHashMap< RenderInfo, RecursiveTask< RenderInfo > >();
+		for ( RenderInfo renderInfo : infos ) {
+			RenderKey key = new RenderKey( renderInfo );
+			RecursiveTask< RenderInfo > task = frames.get( key );
+			if ( task == null ) {
+				// Create a new task per frame and run
+				// Maps that don't rotate reuse their terrain from the last frame, which is only done by the full task
+				if ( plugin.getSettings().isUseSubtasks() && renderInfo.setting.rotating ) {
+					// This splits the task among other threads
+					task = new FrameRenderTask( renderInfo );
+				} else {
+					// This calculates the frame all at once
+					task = new FullRenderTask( renderInfo );
+				}
+				frames.put( key, task );
+				
+				if ( !plugin.getSettings().isRendererMultithread() ) {
+					task.fork();
+				}
 			}
+			tasks.put( renderInfo, task );
 		}
 		
 		// Don't forget to invoke the forks
@@ -272,7 +284,7 @@ public class CartographerRenderer extends MapRenderer {
 		// Calling RenderTask#fork() does NOT start executing it
 		// Everything was being done on one thread before
 		if ( plugin.getSettings().isRendererMultithread() ) {
-			for ( RecursiveTask< RenderInfo > task : tasks ) {
+			for ( RecursiveTask< RenderInfo > task : frames.values() ) {
 				plugin.getExecutorService().execute( task );
 			}
 		}
@@ -280,13 +292,22 @@ public class CartographerRenderer extends MapRenderer {
 		Map< DataCache, Set< BigChunkLocation > > toLoad = new HashMap< DataCache, Set< BigChunkLocation > >();
 		
 		// Once all the frames are done, then send
-		for ( RecursiveTask< RenderInfo > task : tasks ) {
+		for ( Entry< RenderInfo, RecursiveTask< RenderInfo > > entry : tasks.entrySet() ) {
+			RecursiveTask< RenderInfo > task = entry.getValue();
 			try {
-				RenderInfo info;
+				RenderInfo frame;
 				if ( plugin.getSettings().isRendererMultithread() ) {
-					info = task.get();
+					frame = task.get();
 				} else {
-					info = task.join();
+					frame = task.join();
+				}
+				
+				RenderInfo info = entry.getKey();
+				if ( info != frame ) {
+					// The frame was rendered for someone else, but the cursors are still relative to this player
+					info.data = frame.data;
+					info.cursors = FullRenderTask.getCursors( info );
+					info.needsRender = frame.needsRender;
 				}
 				
 				// Queue the locations that need loading
@@ -298,10 +319,9 @@ public class CartographerRenderer extends MapRenderer {
 				needsLoad.addAll( info.needsRender );
 				
 				// Send the packet
-				byte[] data = info.data;
-				MapCursor[] cursors = info.cursors;
-				UUID uuid = info.uuid;
-				plugin.getHandler().sendDataTo( id, data, cursors, uuid );
+				long start = System.nanoTime();
+				sendFrame( info.setting, info.data, info.cursors );
+				info.map.getTimings().record( Phase.PACKET_SEND, start );
 			} catch ( InterruptedException | ExecutionException e ) {
 				e.printStackTrace();
 			}
@@ -319,6 +339,60 @@ public class CartographerRenderer extends MapRenderer {
 		}
 	}
 
+	/**
+	 * Send a frame to a player. If partial updates are enabled, then only the rectangle that changed since the last frame gets sent.
+	 * 
+	 * @param setting
+	 * The setting of the player receiving the frame.
+	 * @param data
+	 * The complete frame.
+	 * @param cursors
+	 * The cursors to display, can be null.
+	 */
+	private void sendFrame( PlayerSetting setting, byte[] data, MapCursor[] cursors ) {
+		UUID uuid = setting.getUUID();
+		long time = System.currentTimeMillis();
+		byte[] previous = setting.lastFrame;
+		if ( !plugin.getSettings().isPartialUpdates()
+				|| data.length != CANVAS_SIZE
+				|| previous == null
+				|| time - setting.lastFullFrame > FULL_FRAME_INTERVAL ) {
+			plugin.getHandler().sendDataTo( id, data, cursors, uuid );
+			
+			if ( data.length == CANVAS_SIZE ) {
+				if ( previous == null ) {
+					previous = new byte[ CANVAS_SIZE ];
+					setting.lastFrame = previous;
+				}
+				System.arraycopy( data, 0, previous, 0, CANVAS_SIZE );
+			} else {
+				setting.lastFrame = null;
+			}
+			setting.lastCursors = cursors;
+			setting.lastFullFrame = time;
+			return;
+		}
+		
+		int[] bounds = MapUtil.getChangedBounds( previous, data );
+		if ( bounds == null ) {
+			// Nothing on the map changed, so only update the cursors if they moved
+			if ( !MapUtil.isSameCursors( setting.lastCursors, cursors ) ) {
+				plugin.getHandler().sendDataTo( id, null, cursors, 0, 0, 0, 0, uuid );
+				setting.lastCursors = cursors;
+			}
+			return;
+		}
+		
+		int x = bounds[ 0 ];
+		int y = bounds[ 1 ];
+		int width = bounds[ 2 ];
+		int height = bounds[ 3 ];
+		plugin.getHandler().sendDataTo( id, MapUtil.getSubFrame( data, x, y, width, height ), cursors, x, y, width, height, uuid );
+		
+		System.arraycopy( data, 0, previous, 0, CANVAS_SIZE );
+		setting.lastCursors = cursors;
+	}
+
 	public boolean setPlayerMap( Player player, Minimap map ) {
 		PlayerSetting setting = settings.get( player.getUniqueId() );
 		if ( setting != null ) {
@@ -535,6 +609,10 @@ public class CartographerRenderer extends MapRenderer {
 			}
 			
 			setting.rotating = rotating;
+			if ( setting.location.getWorld() != location.getWorld() ) {
+				// The client forgets the map contents when switching worlds
+				setting.lastFrame = null;
+			}
 			setting.location = location;
 			if ( setting.mainhand != mainHand ) {
 				new CartographerRendererDeactivateEvent( entry.getKey(), this ).callEvent();
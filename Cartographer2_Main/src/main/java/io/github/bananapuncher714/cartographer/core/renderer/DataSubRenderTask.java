@@ -5,10 +5,9 @@ import java.util.concurrent.RecursiveTask;
 
 import org.bukkit.Location;
 
-import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
-import io.github.bananapuncher714.cartographer.core.api.WorldPixel;
 import io.github.bananapuncher714.cartographer.core.file.BigChunkLocation;
 import io.github.bananapuncher714.cartographer.core.map.process.ChunkData;
+import io.github.bananapuncher714.cartographer.core.map.process.ChunkDataStorage;
 import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
 import io.github.bananapuncher714.cartographer.core.util.RivenMath;
 
@@ -42,43 +41,12 @@ public class DataSubRenderTask extends RecursiveTask< SubRenderInfo > {
 		
 		int subIndex;
 		
-		// Get the highest pixels
+		// Get the map pixels and the global overlay
 		for ( int i = 0; i < length; i++ ) {
-			if ( !bitset.get( i ) ) {
-				subIndex = i + index;
-				
-				// Get the custom map pixel
-				int mapColor = info.upperPixelInfo[ subIndex ];
-				rawData[ i ] = mapColor;
-				// If the pixel is opaque, then set the bit to true
-				bitset.set( i, mapColor >>> 24 == 0xFF );
-			}
-		}
-		
-		// Get the overlay
-		for ( int i = 0; i < length; i++ ) {
-			if ( !bitset.get( i ) ) {
-				subIndex = i + index;
-				
-				// Get the custom map pixel
-				int mapColor = JetpImageUtil.overwriteColor( info.globalOverlay[ subIndex ], rawData[ i ] );
-				rawData[ i ] = mapColor;
-				// If the pixel is opaque, then set the bit to true
-				bitset.set( i, mapColor >>> 24 == 0xFF );
-			}
-		}
-		
-		// Get the lower pixels
-		for ( int i = 0; i < length; i++ ) {
-			if ( !bitset.get( i ) ) {
-				subIndex = i + index;
-				
-				// Get the custom map pixel
-				int mapColor = JetpImageUtil.overwriteColor( info.lowerPixelInfo[ subIndex ], rawData[ i ] );
-				rawData[ i ] = mapColor;
-				// If the pixel is opaque, then set the bit to true
-				bitset.set( i, mapColor >>> 24 == 0xFF );
-			}
+			int mapColor = info.foreground[ i + index ];
+			rawData[ i ] = mapColor;
+			// If the pixel is opaque, then set the bit to true
+			bitset.set( i, mapColor >>> 24 == 0xFF );
 		}
 		
 		String world = loc.getWorld().getName();
@@ -86,6 +54,10 @@ public class DataSubRenderTask extends RecursiveTask< SubRenderInfo > {
 		int lastChunkX = 0;
 		int lastChunkZ = 0;
 		
+		// Zoomed out maps may be able to use a reduced level of detail
+		final ChunkDataStorage storage = info.cache.getStorage();
+		final int level = storage.getLevel( info.setting.zoomscale );
+		
 		// Get the actual data, and background color
 		for ( int i = 0; i < length; i++ ) {
 			if ( !bitset.get( i ) ) {
@@ -106,33 +78,40 @@ public class DataSubRenderTask extends RecursiveTask< SubRenderInfo > {
 				final int chunkX = blockX >> 4;
 				final int chunkZ = blockZ >> 4;
 				
-				ChunkData chunkData = lastChunkData;
-				if ( chunkData == null || chunkX != lastChunkX || chunkZ != lastChunkZ ) {
-					chunkData = info.cache.getDataAt( new ChunkLocation( world, chunkX, chunkZ ) );
-				}
-				
 				int localColor = 0;
-				if ( chunkData != null ) {
-					lastChunkData = chunkData;
-					lastChunkX = chunkX;
-					lastChunkZ = chunkZ;
-					
-					final int xOffset = blockX & 0xF;
-					final int zOffset = blockZ & 0xF;
-					
-					localColor = JetpImageUtil.getColorFromMinecraftPalette( chunkData.getDataAt( xOffset, zOffset ) );
+				if ( level > 0 ) {
+					byte color = storage.getColorAt( world, blockX, blockZ, level );
+					if ( color != 0 ) {
+						localColor = JetpImageUtil.getColorFromMinecraftPalette( color );
+					} else {
+						subRenderInfo.requiresRender.add( new BigChunkLocation( world, chunkX >> 4, chunkZ >> 4 ) );
+						
+						localColor = loading;
+					}
 				} else {
-					subRenderInfo.requiresRender.add( new BigChunkLocation( world, chunkX >> 4, chunkZ >> 4 ) );
-
-					localColor = loading;
+					ChunkData chunkData = lastChunkData;
+					if ( chunkData == null || chunkX != lastChunkX || chunkZ != lastChunkZ ) {
+						chunkData = info.cache.getDataAt( world, chunkX, chunkZ );
+					}
+					
+					if ( chunkData != null ) {
+						lastChunkData = chunkData;
+						lastChunkX = chunkX;
+						lastChunkZ = chunkZ;
+						
+						final int xOffset = blockX & 0xF;
+						final int zOffset = blockZ & 0xF;
+						
+						localColor = JetpImageUtil.getColorFromMinecraftPalette( chunkData.getDataAt( xOffset, zOffset ) );
+					} else {
+						subRenderInfo.requiresRender.add( new BigChunkLocation( world, chunkX >> 4, chunkZ >> 4 ) );
+	
+						localColor = loading;
+					}
 				}
 
 				// First, insert any WorldPixels that may be present
-				for ( WorldPixel pixel : info.worldPixels ) {
-					if ( pixel.intersects( xVal, zVal ) ) {
-						localColor = JetpImageUtil.overwriteColor( localColor, pixel.getColor().getRGB() );
-					}
-				}
+				localColor = info.worldPixelLayer.apply( subIndex, localColor );
 
 				// Then, get the color and mix it under the current overlay color
 				int mapColor = rawData[ i ];
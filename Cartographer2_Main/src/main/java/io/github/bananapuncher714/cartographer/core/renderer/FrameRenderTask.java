@@ -9,13 +9,12 @@ import java.util.concurrent.Future;
 import java.util.concurrent.RecursiveTask;
 
 import org.bukkit.Location;
-import org.bukkit.map.MapCursor;
 
 import io.github.bananapuncher714.cartographer.core.Cartographer;
 import io.github.bananapuncher714.cartographer.core.api.MapPixel;
-import io.github.bananapuncher714.cartographer.core.api.WorldCursor;
 import io.github.bananapuncher714.cartographer.core.api.WorldPixel;
-import io.github.bananapuncher714.cartographer.core.util.IcecoreMath;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings.Phase;
 import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
 import io.github.bananapuncher714.cartographer.core.util.RivenMath;
 
@@ -33,6 +32,8 @@ public class FrameRenderTask extends RecursiveTask< RenderInfo > {
 	
 	@Override
 	protected RenderInfo compute() {
+		MinimapTimings timings = info.map.getTimings();
+		
 		// Set up the arrays needed
 		byte[] data = new byte[ CANVAS_SIZE ];
 		int[] higherMapPixels = new int[ CANVAS_SIZE ];
@@ -40,10 +41,13 @@ public class FrameRenderTask extends RecursiveTask< RenderInfo > {
 		// Make sure it's not null
 		int[] globalOverlay;
 		if ( info.overlayImage != null ) {
-			globalOverlay = info.overlayImage.getImage();
 			if ( info.map.getSettings().isDitherOverlay() ) {
-				globalOverlay = globalOverlay.clone();
-				JetpImageUtil.dither( globalOverlay, 128 );
+				// Only dithered the first time each frame is shown
+				long start = System.nanoTime();
+				globalOverlay = info.overlayImage.getDitheredImage();
+				timings.record( Phase.DITHERING, start );
+			} else {
+				globalOverlay = info.overlayImage.getImage();
 			}
 		} else {
 			globalOverlay = new int[ CANVAS_SIZE ];
@@ -51,10 +55,13 @@ public class FrameRenderTask extends RecursiveTask< RenderInfo > {
 		
 		int[] loadingBackground;
 		if ( info.backgroundImage != null ) {
-			loadingBackground = info.backgroundImage.getImage();
 			if ( info.map.getSettings().isDitherBackground() ) {
-				loadingBackground = loadingBackground.clone();
-				JetpImageUtil.dither( loadingBackground, 128 );
+				// Only dithered the first time each frame is shown
+				long start = System.nanoTime();
+				loadingBackground = info.backgroundImage.getDitheredImage();
+				timings.record( Phase.DITHERING, start );
+			} else {
+				loadingBackground = info.backgroundImage.getImage();
 			}
 		} else {
 			loadingBackground = new int[ CANVAS_SIZE ];
@@ -68,6 +75,7 @@ public class FrameRenderTask extends RecursiveTask< RenderInfo > {
 		info.background = loadingBackground;
 		
 		// Construct lowerMapPixels and higherMapPixels
+		long compositingStart = System.nanoTime();
 		for ( Iterator< MapPixel > pixelIterator = info.mapPixels.iterator(); pixelIterator.hasNext(); ) {
 			MapPixel pixel = pixelIterator.next();
 			int x = pixel.getX();
@@ -91,6 +99,12 @@ public class FrameRenderTask extends RecursiveTask< RenderInfo > {
 			}
 		}
 		
+		// Everything above the terrain can be composited in bulk, since it doesn't depend on where the player is
+		int[] foreground = new int[ CANVAS_SIZE ];
+		JetpImageUtil.overwriteColors( globalOverlay, higherMapPixels, foreground );
+		JetpImageUtil.overwriteColors( lowerMapPixels, foreground, foreground );
+		info.foreground = foreground;
+		
 		Location loc = info.setting.location;
 		
 		// Trim any redundant world pixels
@@ -105,7 +119,15 @@ public class FrameRenderTask extends RecursiveTask< RenderInfo > {
 			}
 		}
 		
+		// Rasterize the WorldPixels once for all of the sub tasks, with the same rotation that they use
+		final double radians = info.setting.rotating ? Math.toRadians( loc.getYaw() + 540 ) : 0;
+		final double cos = RivenMath.cos( ( float ) radians );
+		final double sin = RivenMath.sin( ( float ) radians );
+		info.worldPixelLayer = new WorldPixelLayer( info.worldPixels, loc.getX(), loc.getZ(), info.setting.zoomscale, cos, sin );
+		timings.record( Phase.COMPOSITING, compositingStart );
+		
 		// Construct the fork join pools required for the interval below and run
+		long terrainStart = System.nanoTime();
 		List< Future< SubRenderInfo > > tasks = new ArrayList< Future< SubRenderInfo > >();
 		for ( int subTaskIndex = 0; subTaskIndex < 16_384; subTaskIndex += SUBTASK_INTERVAL ) {
 			DataSubRenderTask task = new DataSubRenderTask( info, subTaskIndex, SUBTASK_INTERVAL );
@@ -113,34 +135,7 @@ public class FrameRenderTask extends RecursiveTask< RenderInfo > {
 		}
 		
 		// Calculate the cursor info while the sub render tasks are running
-		double yawOffset = info.setting.rotating ? loc.getYaw() + 180 : 0;
-		
-		List< MapCursor > cursorList = new ArrayList< MapCursor >( info.mapCursors );
-		for ( WorldCursor cursor : info.worldCursors ) {
-			Location cursorLoc = cursor.getLocation();
-			double yaw = cursorLoc.getYaw() - yawOffset + 720;
-			double relX = cursorLoc.getX() - loc.getX();
-			double relZ = cursorLoc.getZ() - loc.getZ();
-			double distance = Math.sqrt( relX * relX + relZ * relZ );
-
-			double radians = IcecoreMath.atan2_Op_2( ( float ) relZ, ( float ) relX ) - Math.toRadians( yawOffset );
-			double newRelX = 2 * distance * RivenMath.cos( ( float ) radians );
-			double newRelZ = 2 * distance * RivenMath.sin( ( float ) radians );
-
-			double scaledX = newRelX / info.setting.zoomscale;
-			double scaledZ = newRelZ / info.setting.zoomscale;
-			
-			// The range may range from -127 to 127. Not sure about -128
-			if ( cursor.isGlobal() ||
-					( scaledX > -128 && scaledX < 128 &&
-					  scaledZ > -128 && scaledZ < 128 ) ) {
-				int normalizedX = ( int ) Math.min( 127, Math.max( -128, scaledX ) );
-				int normalizedZ = ( int ) Math.min( 127, Math.max( -128, scaledZ ) );
-				
-				cursorList.add( Cartographer.getInstance().getHandler().constructMapCursor( normalizedX, normalizedZ, yaw, cursor.getType(), cursor.getName() ) );
-			}
-		}
-		info.cursors = cursorList.toArray( new MapCursor[ cursorList.size() ] );
+		info.cursors = FullRenderTask.getCursors( info );
 		
 		// Once they have been run, join them together
 		for ( Future< SubRenderInfo > task : tasks ) {
@@ -154,6 +149,7 @@ public class FrameRenderTask extends RecursiveTask< RenderInfo > {
 				e.printStackTrace();
 			}
 		}
+		timings.record( Phase.TERRAIN, terrainStart );
 		
 		return info;
 	}
@@ -10,12 +10,14 @@ import org.bukkit.Location;
 import org.bukkit.map.MapCursor;
 
 import io.github.bananapuncher714.cartographer.core.Cartographer;
-import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
 import io.github.bananapuncher714.cartographer.core.api.MapPixel;
 import io.github.bananapuncher714.cartographer.core.api.WorldCursor;
 import io.github.bananapuncher714.cartographer.core.api.WorldPixel;
 import io.github.bananapuncher714.cartographer.core.file.BigChunkLocation;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings;
+import io.github.bananapuncher714.cartographer.core.map.MinimapTimings.Phase;
 import io.github.bananapuncher714.cartographer.core.map.process.ChunkData;
+import io.github.bananapuncher714.cartographer.core.map.process.ChunkDataStorage;
 import io.github.bananapuncher714.cartographer.core.util.IcecoreMath;
 import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
 import io.github.bananapuncher714.cartographer.core.util.RivenMath;
@@ -23,6 +25,10 @@ import io.github.bananapuncher714.cartographer.core.util.RivenMath;
 // Test rendering the full thing with one thread
 public class FullRenderTask extends RecursiveTask< RenderInfo > {
 	private static final int CANVAS_SIZE = 128 * 128;
+	// Maximum time in milliseconds to reuse the terrain before sampling everything again, so block updates still show up
+	private static final int TERRAIN_REFRESH_INTERVAL = 1000;
+	// Not a color in the palette, so it can represent missing terrain
+	private static final int TERRAIN_MISSING = 0x00FF00FF;
 	
 	protected RenderInfo info;
 	
@@ -32,6 +38,8 @@ public class FullRenderTask extends RecursiveTask< RenderInfo > {
 	
 	@Override
 	protected RenderInfo compute() {
+		MinimapTimings timings = info.map.getTimings();
+		
 		// Set up the arrays needed
 		byte[] data = new byte[ CANVAS_SIZE ];
 		int[] higherMapPixels = new int[ CANVAS_SIZE ];
@@ -39,10 +47,13 @@ public class FullRenderTask extends RecursiveTask< RenderInfo > {
 		// Make sure it's not null
 		int[] globalOverlay;
 		if ( info.overlayImage != null ) {
-			globalOverlay = info.overlayImage.getImage();
 			if ( info.map.getSettings().isDitherOverlay() ) {
-				globalOverlay = globalOverlay.clone();
-				JetpImageUtil.dither( globalOverlay, 128 );
+				// Only dithered the first time each frame is shown
+				long start = System.nanoTime();
+				globalOverlay = info.overlayImage.getDitheredImage();
+				timings.record( Phase.DITHERING, start );
+			} else {
+				globalOverlay = info.overlayImage.getImage();
 			}
 		} else {
 			globalOverlay = new int[ CANVAS_SIZE ];
@@ -50,10 +61,13 @@ public class FullRenderTask extends RecursiveTask< RenderInfo > {
 		
 		int[] loadingBackground;
 		if ( info.backgroundImage != null ) {
-			loadingBackground = info.backgroundImage.getImage();
 			if ( info.map.getSettings().isDitherBackground() ) {
-				loadingBackground = loadingBackground.clone();
-				JetpImageUtil.dither( loadingBackground, 128 );
+				// Only dithered the first time each frame is shown
+				long start = System.nanoTime();
+				loadingBackground = info.backgroundImage.getDitheredImage();
+				timings.record( Phase.DITHERING, start );
+			} else {
+				loadingBackground = info.backgroundImage.getImage();
 			}
 		} else {
 			loadingBackground = new int[ CANVAS_SIZE ];
@@ -67,6 +81,7 @@ public class FullRenderTask extends RecursiveTask< RenderInfo > {
 		info.background = loadingBackground;
 		
 		// Construct lowerMapPixels and higherMapPixels
+		long compositingStart = System.nanoTime();
 		for ( Iterator< MapPixel > pixelIterator = info.mapPixels.iterator(); pixelIterator.hasNext(); ) {
 			MapPixel pixel = pixelIterator.next();
 			int x = pixel.getX();
@@ -90,36 +105,15 @@ public class FullRenderTask extends RecursiveTask< RenderInfo > {
 			}
 		}
 		
-		// Calculate the cursor info while the sub render tasks are running
-		Location loc = info.setting.location;
-		double yawOffset = info.setting.rotating ? loc.getYaw() + 180 : 0;
+		// Everything above the terrain can be composited in bulk, since it doesn't depend on where the player is
+		int[] foreground = new int[ CANVAS_SIZE ];
+		JetpImageUtil.overwriteColors( globalOverlay, higherMapPixels, foreground );
+		JetpImageUtil.overwriteColors( lowerMapPixels, foreground, foreground );
+		info.foreground = foreground;
 		
-		List< MapCursor > cursorList = new ArrayList< MapCursor >( info.mapCursors );
-		for ( WorldCursor cursor : info.worldCursors ) {
-			Location cursorLoc = cursor.getLocation();
-			double yaw = cursorLoc.getYaw() - yawOffset + 720;
-			double relX = cursorLoc.getX() - loc.getX();
-			double relZ = cursorLoc.getZ() - loc.getZ();
-			double distance = Math.sqrt( relX * relX + relZ * relZ );
-
-			double radians = IcecoreMath.atan2_Op_2( ( float ) relZ, ( float ) relX ) - Math.toRadians( yawOffset );
-			double newRelX = 2 * distance * RivenMath.cos( ( float ) radians );
-			double newRelZ = 2 * distance * RivenMath.sin( ( float ) radians );
-
-			double scaledX = newRelX / info.setting.zoomscale;
-			double scaledZ = newRelZ / info.setting.zoomscale;
-			
-			// The range may range from -127 to 127. Not sure about -128
-			if ( cursor.isGlobal() ||
-					( scaledX > -128 && scaledX < 128 &&
-					  scaledZ > -128 && scaledZ < 128 ) ) {
-				int normalizedX = ( int ) Math.min( 127, Math.max( -128, scaledX ) );
-				int normalizedZ = ( int ) Math.min( 127, Math.max( -128, scaledZ ) );
-				
-				cursorList.add( Cartographer.getInstance().getHandler().constructMapCursor( normalizedX, normalizedZ, yaw, cursor.getType(), cursor.getName() ) );
-			}
-		}
-		info.cursors = cursorList.toArray( new MapCursor[ cursorList.size() ] );
+		// Calculate the cursor info
+		Location loc = info.setting.location;
+		info.cursors = getCursors( info );
 		
 		// Trim any redundant world pixels
 		double rad = info.setting.zoomscale * 91;
@@ -135,16 +129,34 @@ public class FullRenderTask extends RecursiveTask< RenderInfo > {
 		
 		// Calculate the information for the rotations and whatever we can right now
 		final double radians = info.setting.rotating ? Math.toRadians( loc.getYaw() + 540 ) : 0;
-		final double cos = RivenMath.cos( ( float ) radians );
-		final double sin = RivenMath.sin( ( float ) radians );
-		final double oriX = info.setting.location.getX();
-		final double oriZ = info.setting.location.getZ();
+		final double cos = info.setting.rotating ? RivenMath.cos( ( float ) radians ) : 1;
+		final double sin = info.setting.rotating ? RivenMath.sin( ( float ) radians ) : 0;
 		
 		String world = loc.getWorld().getName();
 		ChunkData lastChunkData = null;
 		int lastChunkX = 0;
 		int lastChunkZ = 0;
 		
+		// Zoomed out maps may be able to use a reduced level of detail
+		final ChunkDataStorage storage = info.cache.getStorage();
+		final int level = storage.getLevel( info.setting.zoomscale );
+		
+		// If the map doesn't rotate, then the terrain from the last frame can be reused by shifting it
+		// The origin gets snapped to the pixel grid so that it always shifts by whole pixels
+		final boolean scroll = !info.setting.rotating;
+		final long pixelX = ( long ) Math.floor( loc.getX() / info.setting.zoomscale );
+		final long pixelZ = ( long ) Math.floor( loc.getZ() / info.setting.zoomscale );
+		final double oriX = scroll ? pixelX * info.setting.zoomscale : loc.getX();
+		final double oriZ = scroll ? pixelZ * info.setting.zoomscale : loc.getZ();
+		
+		// Rasterize the WorldPixels once instead of checking every one of them for each pixel
+		final WorldPixelLayer worldPixelLayer = new WorldPixelLayer( info.worldPixels, oriX, oriZ, info.setting.zoomscale, cos, sin );
+		info.worldPixelLayer = worldPixelLayer;
+		timings.record( Phase.COMPOSITING, compositingStart );
+		
+		long terrainStart = System.nanoTime();
+		final int[] terrain = scroll ? scrollTerrain( pixelX, pixelZ, storage, level ) : null;
+		
 		int index = -1;
 		for ( int y = 0; y < 128; y++ ) {
 			final double b = y - 64;
@@ -153,33 +165,14 @@ public class FullRenderTask extends RecursiveTask< RenderInfo > {
 				
 				index++;
 				
-				// Get the custom map pixel
-				int mapColor = info.upperPixelInfo[ index ];
+				// Get the map pixels and the global overlay
+				int mapColor = info.foreground[ index ];
 				// Continue if the pixel is opaque, since we know that nothing else be above this
 				if ( mapColor >>> 24 == 0xFF ) {
 					data[ index ] = JetpImageUtil.getBestColor( mapColor );
 					continue;
 				}
 
-				// Then the global overlay
-				// The global overlay is still the background to the foreground
-				mapColor = JetpImageUtil.overwriteColor( info.globalOverlay[ index ], mapColor );
-
-				// See if the global overlay is opaque
-				if ( mapColor >>> 24 == 0xFF ) {
-					data[ index ] = JetpImageUtil.getBestColor( mapColor );
-					continue;
-				}
-
-				int lowerColor = info.lowerPixelInfo[ index ];
-				mapColor = JetpImageUtil.overwriteColor( lowerColor, mapColor );
-
-				// See if the pixels are opaque
-				if ( mapColor >>> 24 == 0xFF ) {
-					data[ index ] = JetpImageUtil.getBestColor( mapColor );
-					continue;
-				}
-
 				// Then get the loading background
 				int loading = info.background[ index ];
 
@@ -196,36 +189,51 @@ public class FullRenderTask extends RecursiveTask< RenderInfo > {
 				
 				int localColor = 0;
 
-				ChunkData chunkData = lastChunkData;
-				if ( chunkData == null || chunkX != lastChunkX || chunkZ != lastChunkZ ) {
-					chunkData = info.cache.getDataAt( new ChunkLocation( world, chunkX, chunkZ ) );
-				}
-				
-				if ( chunkData != null ) {
-					lastChunkData = chunkData;
-					lastChunkX = chunkX;
-					lastChunkZ = chunkZ;
-					
-					final int xOffset = blockX & 0xF;
-					final int zOffset = blockZ & 0xF;
-					
-					// TODO make this configurable per player or something. Make a player preference thing or whatnot.
-					// This is for static colors
-//	  				localColor = JetpImageUtil.getColorFromMinecraftPalette( chunkData.getDataAt( xOffset, zOffset, setting.getScale() ) );
-					// This is for dynamic colors
-					localColor = JetpImageUtil.getColorFromMinecraftPalette( chunkData.getDataAt( xOffset, zOffset ) );
+				if ( terrain != null ) {
+					// The terrain has already been sampled
+					localColor = terrain[ index ];
+					if ( localColor == TERRAIN_MISSING ) {
+						info.needsRender.add( new BigChunkLocation( world, chunkX >> 4, chunkZ >> 4 ) );
+						
+						localColor = loading;
+					}
+				} else if ( level > 0 ) {
+					byte color = storage.getColorAt( world, blockX, blockZ, level );
+					if ( color != 0 ) {
+						localColor = JetpImageUtil.getColorFromMinecraftPalette( color );
+					} else {
+						info.needsRender.add( new BigChunkLocation( world, chunkX >> 4, chunkZ >> 4 ) );
+						
+						localColor = loading;
+					}
 				} else {
-					info.needsRender.add( new BigChunkLocation( world, chunkX >> 4, chunkZ >> 4 ) );
-
-					localColor = loading;
+					ChunkData chunkData = lastChunkData;
+					if ( chunkData == null || chunkX != lastChunkX || chunkZ != lastChunkZ ) {
+						chunkData = info.cache.getDataAt( world, chunkX, chunkZ );
+					}
+					
+					if ( chunkData != null ) {
+						lastChunkData = chunkData;
+						lastChunkX = chunkX;
+						lastChunkZ = chunkZ;
+						
+						final int xOffset = blockX & 0xF;
+						final int zOffset = blockZ & 0xF;
+						
+						// TODO make this configurable per player or something. Make a player preference thing or whatnot.
+						// This is for static colors
+//	  					localColor = JetpImageUtil.getColorFromMinecraftPalette( chunkData.getDataAt( xOffset, zOffset, setting.getScale() ) );
+						// This is for dynamic colors
+						localColor = JetpImageUtil.getColorFromMinecraftPalette( chunkData.getDataAt( xOffset, zOffset ) );
+					} else {
+						info.needsRender.add( new BigChunkLocation( world, chunkX >> 4, chunkZ >> 4 ) );
+	
+						localColor = loading;
+					}
 				}
 				
 				// First, insert any WorldPixels that may be present
-				for ( WorldPixel pixel : info.worldPixels ) {
-					if ( pixel.intersects( xVal, zVal ) ) {
-						localColor = JetpImageUtil.overwriteColor( localColor, pixel.getColor().getRGB() );
-					}
-				}
+				localColor = worldPixelLayer.apply( index, localColor );
 
 				// Then, get the color and mix it under the current overlay color
 				mapColor = JetpImageUtil.overwriteColor( localColor, mapColor );
@@ -234,7 +242,146 @@ public class FullRenderTask extends RecursiveTask< RenderInfo > {
 				data[ index ] = JetpImageUtil.getBestColorIncludingTransparent( mapColor );
 			}
 		}
+		timings.record( Phase.TERRAIN, terrainStart );
 
 		return info;
 	}
+	
+	/**
+	 * Shift the terrain of the last frame by the amount of pixels that the player moved, and sample whatever is newly exposed or missing.
+	 * 
+	 * @param pixelX
+	 * The x coordinate of the player, in pixels.
+	 * @param pixelZ
+	 * The z coordinate of the player, in pixels.
+	 * @param storage
+	 * The storage to sample from.
+	 * @param level
+	 * The level of detail to sample at.
+	 * @return
+	 * The terrain colors for this frame, or TERRAIN_MISSING where there is no chunk data.
+	 */
+	private int[] scrollTerrain( long pixelX, long pixelZ, ChunkDataStorage storage, int level ) {
+		PlayerSetting setting = info.setting;
+		String world = setting.location.getWorld().getName();
+		double scale = setting.zoomscale;
+		long time = System.currentTimeMillis();
+		
+		int[] previous = setting.terrain;
+		boolean reuse = previous != null
+				&& world.equals( setting.terrainWorld )
+				&& info.map.getId().equals( setting.terrainMap )
+				&& scale == setting.terrainScale
+				&& time - setting.terrainTime < TERRAIN_REFRESH_INTERVAL;
+		long dx = pixelX - setting.terrainX;
+		long dz = pixelZ - setting.terrainZ;
+		if ( Math.abs( dx ) >= 128 || Math.abs( dz ) >= 128 ) {
+			reuse = false;
+		}
+		
+		int[] terrain = setting.terrainBuffer;
+		if ( terrain == null ) {
+			terrain = new int[ CANVAS_SIZE ];
+		}
+		
+		ChunkData lastChunkData = null;
+		int lastChunkX = 0;
+		int lastChunkZ = 0;
+		int index = -1;
+		for ( int y = 0; y < 128; y++ ) {
+			final int oldY = ( int ) ( y + dz );
+			for ( int x = 0; x < 128; x++ ) {
+				index++;
+				
+				if ( reuse ) {
+					final int oldX = ( int ) ( x + dx );
+					if ( oldX >= 0 && oldX < 128 && oldY >= 0 && oldY < 128 ) {
+						int color = previous[ oldX + ( oldY << 7 ) ];
+						if ( color != TERRAIN_MISSING ) {
+							terrain[ index ] = color;
+							continue;
+						}
+					}
+				}
+				
+				final int blockX = ( int ) Math.floor( ( pixelX + x - 64 ) * scale );
+				final int blockZ = ( int ) Math.floor( ( pixelZ + y - 64 ) * scale );
+				
+				if ( level > 0 ) {
+					byte color = storage.getColorAt( world, blockX, blockZ, level );
+					terrain[ index ] = color != 0 ? JetpImageUtil.getColorFromMinecraftPalette( color ) : TERRAIN_MISSING;
+					continue;
+				}
+				
+				final int chunkX = blockX >> 4;
+				final int chunkZ = blockZ >> 4;
+				
+				if ( lastChunkData == null || chunkX != lastChunkX || chunkZ != lastChunkZ ) {
+					lastChunkData = info.cache.getDataAt( world, chunkX, chunkZ );
+					lastChunkX = chunkX;
+					lastChunkZ = chunkZ;
+				}
+				
+				if ( lastChunkData != null ) {
+					terrain[ index ] = JetpImageUtil.getColorFromMinecraftPalette( lastChunkData.getDataAt( blockX & 0xF, blockZ & 0xF ) );
+				} else {
+					terrain[ index ] = TERRAIN_MISSING;
+				}
+			}
+		}
+		
+		// Swap the buffers
+		setting.terrainBuffer = previous;
+		setting.terrain = terrain;
+		setting.terrainX = pixelX;
+		setting.terrainZ = pixelZ;
+		if ( !reuse ) {
+			setting.terrainWorld = world;
+			setting.terrainMap = info.map.getId();
+			setting.terrainScale = scale;
+			setting.terrainTime = time;
+		}
+		
+		return terrain;
+	}
+
+	/**
+	 * Convert the map and world cursors of a frame into the cursors the player will see.
+	 * 
+	 * @param info
+	 * The render info of the player.
+	 * @return
+	 * The cursors relative to the player's location, rotation and zoom.
+	 */
+	protected static MapCursor[] getCursors( RenderInfo info ) {
+		Location loc = info.setting.location;
+		double yawOffset = info.setting.rotating ? loc.getYaw() + 180 : 0;
+		
+		List< MapCursor > cursorList = new ArrayList< MapCursor >( info.mapCursors );
+		for ( WorldCursor cursor : info.worldCursors ) {
+			Location cursorLoc = cursor.getLocation();
+			double yaw = cursorLoc.getYaw() - yawOffset + 720;
+			double relX = cursorLoc.getX() - loc.getX();
+			double relZ = cursorLoc.getZ() - loc.getZ();
+			double distance = Math.sqrt( relX * relX + relZ * relZ );
+
+			double radians = IcecoreMath.atan2_Op_2( ( float ) relZ, ( float ) relX ) - Math.toRadians( yawOffset );
+			double newRelX = 2 * distance * RivenMath.cos( ( float ) radians );
+			double newRelZ = 2 * distance * RivenMath.sin( ( float ) radians );
+
+			double scaledX = newRelX / info.setting.zoomscale;
+			double scaledZ = newRelZ / info.setting.zoomscale;
+			
+			// The range may range from -127 to 127. Not sure about -128
+			if ( cursor.isGlobal() ||
+					( scaledX > -128 && scaledX < 128 &&
+					  scaledZ > -128 && scaledZ < 128 ) ) {
+				int normalizedX = ( int ) Math.min( 127, Math.max( -128, scaledX ) );
+				int normalizedZ = ( int ) Math.min( 127, Math.max( -128, scaledZ ) );
+				
+				cursorList.add( Cartographer.getInstance().getHandler().constructMapCursor( normalizedX, normalizedZ, yaw, cursor.getType(), cursor.getName() ) );
+			}
+		}
+		return cursorList.toArray( new MapCursor[ cursorList.size() ] );
+	}
 }
@@ -3,6 +3,7 @@ package io.github.bananapuncher714.cartographer.core.renderer;
 import java.util.UUID;
 
 import org.bukkit.Location;
+import org.bukkit.map.MapCursor;
 
 import io.github.bananapuncher714.cartographer.core.Cartographer;
 import io.github.bananapuncher714.cartographer.core.map.menu.MapInteraction;
@@ -26,6 +27,21 @@ public class PlayerSetting {
 	protected MapInteraction interaction;
 	protected MapMenu menu;
 	
+	// What the client was last sent, so that only the changes need to be sent
+	protected byte[] lastFrame;
+	protected MapCursor[] lastCursors;
+	protected long lastFullFrame;
+	
+	// The terrain of the last frame, for maps that don't rotate
+	protected int[] terrain;
+	protected int[] terrainBuffer;
+	protected long terrainX;
+	protected long terrainZ;
+	protected double terrainScale;
+	protected String terrainWorld;
+	protected String terrainMap;
+	protected long terrainTime;
+	
 	protected PlayerSetting( CartographerRenderer renderer, UUID uuid, String map, Location location ) {
 		this.renderer = renderer;
 		this.playerUUID = uuid;
@@ -100,6 +116,10 @@ public class PlayerSetting {
 	
 	protected void deactivate() {
 		renderer.setScale( playerUUID, zoomscale );
+		lastFrame = null;
+		lastCursors = null;
+		terrain = null;
+		terrainBuffer = null;
 		if ( menu != null ) {
 			menu.onClose( playerUUID );
 			menu = null;
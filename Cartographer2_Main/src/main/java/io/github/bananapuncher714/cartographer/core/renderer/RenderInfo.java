@@ -22,7 +22,10 @@ public class RenderInfo {
 	protected int[] lowerPixelInfo;
 	protected int[] globalOverlay;
 	protected int[] background;
+	// The higher map pixels over the overlay over the lower map pixels
+	protected int[] foreground;
 	protected MapCursor[] cursors;
+	protected WorldPixelLayer worldPixelLayer;
 	
 	// This is just there
 	protected Set< BigChunkLocation > needsRender = new HashSet< BigChunkLocation >();
@@ -0,0 +1,139 @@
+package io.github.bananapuncher714.cartographer.core.renderer;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import io.github.bananapuncher714.cartographer.core.api.MapPixel;
+import io.github.bananapuncher714.cartographer.core.api.SimpleImage;
+import io.github.bananapuncher714.cartographer.core.api.WorldPixel;
+
+/**
+ * Everything that determines what a frame looks like, excluding the cursors.
+ * Viewers with equal keys in the same update can share the same frame.
+ */
+public class RenderKey {
+	private final String map;
+	private final World world;
+	private final long x;
+	private final long z;
+	private final int yaw;
+	private final double zoom;
+	private final boolean rotating;
+
+	private final SimpleImage overlay;
+	private final SimpleImage background;
+
+	private final Collection< MapPixel > mapPixels;
+	private final Collection< WorldPixel > worldPixels;
+
+	private final int hash;
+
+	protected RenderKey( RenderInfo info ) {
+		Location location = info.setting.location;
+
+		map = info.map.getId();
+		world = location.getWorld();
+		zoom = info.setting.zoomscale;
+		rotating = info.setting.rotating;
+		// Anything closer than a pixel or a degree apart looks the same
+		x = ( long ) Math.floor( location.getX() / zoom );
+		z = ( long ) Math.floor( location.getZ() / zoom );
+		yaw = rotating ? ( int ) Math.round( location.getYaw() ) : 0;
+
+		overlay = info.overlayImage;
+		background = info.backgroundImage;
+
+		mapPixels = info.mapPixels;
+		worldPixels = info.worldPixels;
+
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + map.hashCode();
+		result = prime * result + ( world == null ? 0 : world.hashCode() );
+		result = prime * result + Long.hashCode( x );
+		result = prime * result + Long.hashCode( z );
+		result = prime * result + yaw;
+		result = prime * result + Double.hashCode( zoom );
+		result = prime * result + ( rotating ? 1231 : 1237 );
+		result = prime * result + System.identityHashCode( overlay );
+		result = prime * result + System.identityHashCode( background );
+		for ( MapPixel pixel : mapPixels ) {
+			result = prime * result + pixel.getX();
+			result = prime * result + pixel.getZ();
+			result = prime * result + pixel.getColor().getRGB();
+		}
+		for ( WorldPixel pixel : worldPixels ) {
+			result = prime * result + Double.hashCode( pixel.getX() );
+			result = prime * result + Double.hashCode( pixel.getZ() );
+			result = prime * result + pixel.getColor().getRGB();
+		}
+		hash = result;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals( Object obj ) {
+		if ( this == obj )
+			return true;
+		if ( obj == null )
+			return false;
+		if ( getClass() != obj.getClass() )
+			return false;
+		RenderKey other = ( RenderKey ) obj;
+		if ( hash != other.hash )
+			return false;
+		if ( x != other.x || z != other.z || yaw != other.yaw || rotating != other.rotating )
+			return false;
+		if ( Double.compare( zoom, other.zoom ) != 0 )
+			return false;
+		if ( world != other.world || overlay != other.overlay || background != other.background )
+			return false;
+		if ( !map.equals( other.map ) )
+			return false;
+		return isSameMapPixels( mapPixels, other.mapPixels ) && isSameWorldPixels( worldPixels, other.worldPixels );
+	}
+
+	private static boolean isSameMapPixels( Collection< MapPixel > first, Collection< MapPixel > second ) {
+		if ( first.size() != second.size() ) {
+			return false;
+		}
+		Iterator< MapPixel > it = second.iterator();
+		for ( MapPixel a : first ) {
+			MapPixel b = it.next();
+			if ( a.getX() != b.getX() ||
+					a.getZ() != b.getZ() ||
+					a.getPriority() != b.getPriority() ||
+					a.getColor().getRGB() != b.getColor().getRGB() ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isSameWorldPixels( Collection< WorldPixel > first, Collection< WorldPixel > second ) {
+		if ( first.size() != second.size() ) {
+			return false;
+		}
+		Iterator< WorldPixel > it = second.iterator();
+		for ( WorldPixel a : first ) {
+			WorldPixel b = it.next();
+			if ( a.getWorld() != b.getWorld() ||
+					a.getX() != b.getX() ||
+					a.getZ() != b.getZ() ||
+					a.getWidth() != b.getWidth() ||
+					a.getHeight() != b.getHeight() ||
+					a.getPriority() != b.getPriority() ||
+					a.getColor().getRGB() != b.getColor().getRGB() ) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
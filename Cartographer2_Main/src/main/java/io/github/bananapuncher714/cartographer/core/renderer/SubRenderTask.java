@@ -4,9 +4,9 @@ import java.util.concurrent.RecursiveTask;
 
 import org.bukkit.Location;
 
-import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
 import io.github.bananapuncher714.cartographer.core.api.WorldPixel;
 import io.github.bananapuncher714.cartographer.core.file.BigChunkLocation;
+import io.github.bananapuncher714.cartographer.core.map.process.ChunkData;
 import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
 import io.github.bananapuncher714.cartographer.core.util.RivenMath;
 
@@ -36,6 +36,11 @@ public class SubRenderTask extends RecursiveTask< SubRenderInfo > {
 		final double oriX = info.setting.location.getX();
 		final double oriZ = info.setting.location.getZ();
 		
+		String world = loc.getWorld().getName();
+		ChunkData lastChunkData = null;
+		int lastChunkX = 0;
+		int lastChunkZ = 0;
+		
 		for ( int i = 0; i < length; i++ ) {
 			int subIndex = i + index;
 			
@@ -80,23 +85,26 @@ public class SubRenderTask extends RecursiveTask< SubRenderInfo > {
 			final int blockX = ( int ) Math.floor( xVal );
 			final int blockZ = ( int ) Math.floor( zVal );
 
-			byte chunkColor = info.cache.getStorage().getColorAt( new Location( loc.getWorld(), xVal, 0, zVal ), info.setting.getScale() );
-			// Check if chunkColor is -1 or something
+			final int chunkX = blockX >> 4;
+			final int chunkZ = blockZ >> 4;
+
+			ChunkData chunkData = lastChunkData;
+			if ( chunkData == null || chunkX != lastChunkX || chunkZ != lastChunkZ ) {
+				chunkData = info.cache.getStorage().get( world, chunkX, chunkZ );
+			}
 			
 			int localColor = 0;
-			if ( chunkColor != -1 ) {
-				localColor = JetpImageUtil.getColorFromMinecraftPalette( chunkColor );
-			} else {
-				int chunkX = blockX >> 4;
-				int chunkZ = blockZ >> 4;
+			if ( chunkData != null ) {
+				lastChunkData = chunkData;
+				lastChunkX = chunkX;
+				lastChunkZ = chunkZ;
 				
-				ChunkLocation cLocation = new ChunkLocation( loc.getWorld(), chunkX, chunkZ );
+				localColor = JetpImageUtil.getColorFromMinecraftPalette( chunkData.getDataAt( blockX & 0xF, blockZ & 0xF, info.setting.getScale() ) );
+			} else {
 				// Don't check if it requires generation, or if the chunk is being loaded here
 				// It should be done somewhere else
 				// Just add it to the collection and check it later
-//				if ( info.cache.requiresGeneration( cLocation ) && !ChunkLoadListener.isLoading( cLocation ) ) {
-					subRenderInfo.requiresRender.add( new BigChunkLocation( cLocation ) );
-//				}
+				subRenderInfo.requiresRender.add( new BigChunkLocation( world, chunkX >> 4, chunkZ >> 4 ) );
 
 				localColor = loading;
 			}
@@ -0,0 +1,142 @@
+package io.github.bananapuncher714.cartographer.core.renderer;
+
+import java.util.Collection;
+
+import io.github.bananapuncher714.cartographer.core.api.WorldPixel;
+import io.github.bananapuncher714.cartographer.core.util.JetpImageUtil;
+
+/**
+ * WorldPixels rasterized once per frame into map space, so each map pixel only visits the WorldPixels that cover it.
+ * The colors are kept per pixel in their original order, since blending them together beforehand would not give the same result.
+ */
+public class WorldPixelLayer {
+	private static final int CANVAS_SIZE = 128 * 128;
+
+	// The colors for map pixel i are from offsets[ i ] to offsets[ i + 1 ]
+	private final int[] offsets = new int[ CANVAS_SIZE + 1 ];
+	private final int[] colors;
+
+	/**
+	 * Rasterize the WorldPixels with the same transform that the render tasks use.
+	 * 
+	 * @param pixels
+	 * The WorldPixels, in the order they should be drawn.
+	 * @param oriX
+	 * The x coordinate of the center of the map.
+	 * @param oriZ
+	 * The z coordinate of the center of the map.
+	 * @param scale
+	 * The amount of blocks per pixel.
+	 * @param cos
+	 * The cosine of the rotation.
+	 * @param sin
+	 * The sine of the rotation.
+	 */
+	protected WorldPixelLayer( Collection< WorldPixel > pixels, double oriX, double oriZ, double scale, double cos, double sin ) {
+		int[][] bounds = new int[ pixels.size() ][];
+		int[] counts = new int[ CANVAS_SIZE ];
+
+		// First count how many WorldPixels cover each map pixel
+		int pixelIndex = 0;
+		for ( WorldPixel pixel : pixels ) {
+			int[] box = getBounds( pixel, oriX, oriZ, scale, cos, sin );
+			bounds[ pixelIndex++ ] = box;
+			if ( box == null ) {
+				continue;
+			}
+			for ( int y = box[ 1 ]; y <= box[ 3 ]; y++ ) {
+				for ( int x = box[ 0 ]; x <= box[ 2 ]; x++ ) {
+					if ( covers( pixel, x, y, oriX, oriZ, scale, cos, sin ) ) {
+						counts[ x + ( y << 7 ) ]++;
+					}
+				}
+			}
+		}
+
+		for ( int i = 0; i < CANVAS_SIZE; i++ ) {
+			offsets[ i + 1 ] = offsets[ i ] + counts[ i ];
+		}
+		colors = new int[ offsets[ CANVAS_SIZE ] ];
+
+		// Then fill in the colors, reusing the counts as write positions
+		System.arraycopy( offsets, 0, counts, 0, CANVAS_SIZE );
+		pixelIndex = 0;
+		for ( WorldPixel pixel : pixels ) {
+			int[] box = bounds[ pixelIndex++ ];
+			if ( box == null ) {
+				continue;
+			}
+			int color = pixel.getColor().getRGB();
+			for ( int y = box[ 1 ]; y <= box[ 3 ]; y++ ) {
+				for ( int x = box[ 0 ]; x <= box[ 2 ]; x++ ) {
+					if ( covers( pixel, x, y, oriX, oriZ, scale, cos, sin ) ) {
+						colors[ counts[ x + ( y << 7 ) ]++ ] = color;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Draw the WorldPixels that cover a map pixel over the color provided.
+	 * 
+	 * @param index
+	 * The index of the map pixel.
+	 * @param color
+	 * The ARGB color underneath.
+	 * @return
+	 * The resulting ARGB color.
+	 */
+	public int apply( int index, int color ) {
+		final int end = offsets[ index + 1 ];
+		for ( int i = offsets[ index ]; i < end; i++ ) {
+			color = JetpImageUtil.overwriteColor( color, colors[ i ] );
+		}
+		return color;
+	}
+
+	// Must match the calculations in the render tasks exactly
+	private static boolean covers( WorldPixel pixel, int x, int y, double oriX, double oriZ, double scale, double cos, double sin ) {
+		final double a = x - 64;
+		final double b = y - 64;
+		final double xx = a * cos - b * sin;
+		final double yy = a * sin + b * cos;
+		final double xVal = oriX + ( scale * xx );
+		final double zVal = oriZ + ( scale * yy );
+		return pixel.intersects( xVal, zVal );
+	}
+
+	/**
+	 * Get the map pixels that a WorldPixel may cover.
+	 * 
+	 * @return
+	 * The minimum x, minimum y, maximum x and maximum y, or null if it is not on the map.
+	 */
+	private static int[] getBounds( WorldPixel pixel, double oriX, double oriZ, double scale, double cos, double sin ) {
+		double minA = Double.POSITIVE_INFINITY;
+		double minB = Double.POSITIVE_INFINITY;
+		double maxA = Double.NEGATIVE_INFINITY;
+		double maxB = Double.NEGATIVE_INFINITY;
+		for ( int corner = 0; corner < 4; corner++ ) {
+			double dx = ( pixel.getX() + ( ( corner & 1 ) == 0 ? 0 : pixel.getWidth() ) - oriX ) / scale;
+			double dz = ( pixel.getZ() + ( ( corner & 2 ) == 0 ? 0 : pixel.getHeight() ) - oriZ ) / scale;
+			// The inverse of the rotation done by the render tasks
+			double a = dx * cos + dz * sin;
+			double b = dz * cos - dx * sin;
+			minA = Math.min( minA, a );
+			minB = Math.min( minB, b );
+			maxA = Math.max( maxA, a );
+			maxB = Math.max( maxB, b );
+		}
+
+		// Pad by a pixel since the sine and cosine are approximations
+		int minX = Math.max( 0, ( int ) Math.floor( minA ) + 64 - 1 );
+		int minY = Math.max( 0, ( int ) Math.floor( minB ) + 64 - 1 );
+		int maxX = Math.min( 127, ( int ) Math.ceil( maxA ) + 64 + 1 );
+		int maxY = Math.min( 127, ( int ) Math.ceil( maxB ) + 64 + 1 );
+		if ( minX > maxX || minY > maxY ) {
+			return null;
+		}
+		return new int[] { minX, minY, maxX, maxY };
+	}
+}
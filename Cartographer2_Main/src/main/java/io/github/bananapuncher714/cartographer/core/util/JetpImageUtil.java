@@ -4,8 +4,18 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.RecursiveTask;
@@ -49,17 +59,89 @@ public final class JetpImageUtil {
 		}
 	}
 
+	// Bumped whenever the layout of the cached lookup table changes
+	private static final int LOOKUP_TABLE_VERSION = 1;
+	private static final int LOOKUP_TABLE_SIZE = 128 * 128 * 128;
+
 	private static final int[] PALETTE;
-	private static final byte[] COLOR_MAP = new byte[ 128 * 128 * 128 ];
-	private static final int[] FULL_COLOR_MAP = new int[ 128 * 128 * 128 ];
+	// Null until the lookup table has been loaded or built, colors are matched against the palette directly until then
+	private static volatile byte[] COLOR_MAP;
+	private static volatile int[] FULL_COLOR_MAP;
+	// Only read or written while synchronized on this class
+	private static boolean loading = false;
 
-	public final static void init() {
+	/**
+	 * Build the lookup table on the current thread, if it isn't ready already.
+	 * If it is already being built in the background, wait for that instead.
+	 */
+	public static synchronized void init() {
+		while ( loading ) {
+			try {
+				JetpImageUtil.class.wait();
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		
+		if ( COLOR_MAP == null ) {
+			setColorMap( buildColorMap() );
+		}
+	}
+
+	/**
+	 * Load the lookup table from the folder provided, or build it in the background and save it there if it hasn't been saved yet.
+	 * The file is named after the palette, so a version of Minecraft with different colors gets its own table.
+	 * Until the table is ready, colors are matched against the palette directly, which is slower but gives the same colors.
+	 * 
+	 * @param cacheDir
+	 * The folder to keep the lookup table in. Cannot be null.
+	 */
+	public static synchronized void init( File cacheDir ) {
+		if ( COLOR_MAP != null || loading ) {
+			return;
+		}
+		
+		Path file = cacheDir.toPath().resolve( "colors-" + Integer.toHexString( Arrays.hashCode( PALETTE ) ) + ".bin" );
+		try {
+			long start = System.nanoTime();
+			byte[] map = readColorMap( file );
+			if ( map != null ) {
+				setColorMap( map );
+				System.out.println( "Lookup table loaded in " + ( System.nanoTime() - start ) / 1_000_000.0 + " ms" );
+				return;
+			}
+		} catch ( IOException e ) {
+			e.printStackTrace();
+		}
+		
+		loading = true;
+		Thread thread = new Thread( () -> {
+			byte[] map;
+			try {
+				map = buildColorMap();
+				setColorMap( map );
+			} finally {
+				// Even if building failed, so it can be tried again
+				synchronized ( JetpImageUtil.class ) {
+					loading = false;
+					JetpImageUtil.class.notifyAll();
+				}
+			}
+			
+			try {
+				writeColorMap( map, file );
+			} catch ( IOException e ) {
+				e.printStackTrace();
+			}
+		}, "Cartographer Lookup Table" );
+		thread.setDaemon( true );
+		thread.start();
 	}
 
 	static {
 		List< Integer > colors = new ArrayList< Integer >();
 
-		long start = System.nanoTime();
 		for ( int i = 0; i < 256; ++i ) {
 			try {
 				Color color = MapPalette.getColor( ( byte ) i );
@@ -76,6 +158,10 @@ public final class JetpImageUtil {
 			PALETTE[ index++ ] = color;
 		}
 		PALETTE[ 0 ] = 0;
+	}
+	
+	private static byte[] buildColorMap() {
+		long start = System.nanoTime();
 		
 		// ForkJoinPool'd the loading of colors
 		List< LoadRed > tasks = new ArrayList< LoadRed >( 128 );
@@ -87,13 +173,9 @@ public final class JetpImageUtil {
 			red.fork();
 		}
 		
+		byte[] map = new byte[ LOOKUP_TABLE_SIZE ];
 		for ( int i = 0; i < 128; i++ ) {
-			byte[] sub = tasks.get( i ).join();
-			int ci = i << 14;
-			for ( int si = 0; si < 16384; si++ ) {
-				COLOR_MAP[ ci + si ] = sub[ si ];
-				FULL_COLOR_MAP[ ci + si ] = PALETTE[ Byte.toUnsignedInt( sub[ si ] ) ];
-			}
+			System.arraycopy( tasks.get( i ).join(), 0, map, i << 14, 16384 );
 		}
 		
 		// Original method
@@ -133,6 +215,76 @@ public final class JetpImageUtil {
 
 		long end = System.nanoTime();
 		System.out.println( "Initial lookup table initialized in " + ( end - start ) / 1_000_000.0 + " ms" );
+		
+		return map;
+	}
+	
+	private static void setColorMap( byte[] map ) {
+		int[] fullMap = new int[ map.length ];
+		for ( int i = 0; i < map.length; i++ ) {
+			fullMap[ i ] = PALETTE[ Byte.toUnsignedInt( map[ i ] ) ];
+		}
+		FULL_COLOR_MAP = fullMap;
+		COLOR_MAP = map;
+	}
+	
+	// The version and the palette the table was built for, followed by the table itself
+	private static byte[] readColorMap( Path file ) throws IOException {
+		if ( !Files.isRegularFile( file ) || Files.size( file ) != 8 + PALETTE.length * 4 + LOOKUP_TABLE_SIZE ) {
+			return null;
+		}
+		
+		try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+			ByteBuffer header = ByteBuffer.allocate( 8 + PALETTE.length * 4 );
+			readFully( channel, header );
+			header.flip();
+			if ( header.getInt() != LOOKUP_TABLE_VERSION || header.getInt() != PALETTE.length ) {
+				return null;
+			}
+			for ( int color : PALETTE ) {
+				if ( header.getInt() != color ) {
+					return null;
+				}
+			}
+			
+			byte[] map = new byte[ LOOKUP_TABLE_SIZE ];
+			readFully( channel, ByteBuffer.wrap( map ) );
+			return map;
+		}
+	}
+	
+	private static void readFully( FileChannel channel, ByteBuffer buffer ) throws IOException {
+		while ( buffer.hasRemaining() ) {
+			if ( channel.read( buffer ) < 0 ) {
+				throw new EOFException();
+			}
+		}
+	}
+	
+	private static void writeColorMap( byte[] map, Path file ) throws IOException {
+		Files.createDirectories( file.toAbsolutePath().getParent() );
+		Path temp = file.resolveSibling( file.getFileName() + ".tmp" );
+		try ( FileChannel channel = FileChannel.open( temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) ) {
+			ByteBuffer header = ByteBuffer.allocate( 8 + PALETTE.length * 4 );
+			header.putInt( LOOKUP_TABLE_VERSION );
+			header.putInt( PALETTE.length );
+			for ( int color : PALETTE ) {
+				header.putInt( color );
+			}
+			header.flip();
+			
+			ByteBuffer[] buffers = { header, ByteBuffer.wrap( map ) };
+			while ( buffers[ 1 ].hasRemaining() ) {
+				channel.write( buffers );
+			}
+			channel.force( true );
+		}
+		
+		try {
+			Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+		} catch ( AtomicMoveNotSupportedException e ) {
+			Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING );
+		}
 	}
 
 	public static int getLargestColorVal() {
@@ -148,15 +300,28 @@ public final class JetpImageUtil {
 	}
 	
 	public static byte getBestColor( int rgb ) {
-		return COLOR_MAP[ ( rgb >> 17 & 0x7F ) << 14 | ( rgb >> 9 & 0x7F ) << 7 | ( rgb >> 1 & 0x7F ) ];
+		byte[] map = COLOR_MAP;
+		if ( map == null ) {
+			// The lookup table only has even values, so round down the same way
+			return computeNearest( PALETTE, rgb >> 16 & 0xFE, rgb >> 8 & 0xFE, rgb & 0xFE );
+		}
+		return map[ ( rgb >> 17 & 0x7F ) << 14 | ( rgb >> 9 & 0x7F ) << 7 | ( rgb >> 1 & 0x7F ) ];
 	}
 
 	public static byte getBestColor( int red, int green, int blue ) {
-		return COLOR_MAP[ red >> 1 << 14 | green >> 1 << 7 | blue >> 1 ];
+		byte[] map = COLOR_MAP;
+		if ( map == null ) {
+			return computeNearest( PALETTE, red & 0xFE, green & 0xFE, blue & 0xFE );
+		}
+		return map[ red >> 1 << 14 | green >> 1 << 7 | blue >> 1 ];
 	}
 	
 	public static int getBestFullColor( int red, int green, int blue ) {
-		return FULL_COLOR_MAP[ red >> 1 << 14 | green >> 1 << 7 | blue >> 1 ];
+		int[] map = FULL_COLOR_MAP;
+		if ( map == null ) {
+			return PALETTE[ Byte.toUnsignedInt( computeNearest( PALETTE, red & 0xFE, green & 0xFE, blue & 0xFE ) ) ];
+		}
+		return map[ red >> 1 << 14 | green >> 1 << 7 | blue >> 1 ];
 	}
 	
 	private static byte computeNearest( int[] palette, int red, int green, int blue ) {
@@ -680,29 +845,46 @@ public final class JetpImageUtil {
 	 * The colors combined, if the foreground is not opaque
 	 */
 	public static int overwriteColor( int baseColor, int overlay ) {
-		int a2 = overlay >>> 24 & 0xFF;
-		if ( a2 == 0 ) {
+		int alpha = overlay >>> 24;
+		if ( alpha == 0 ) {
 			return baseColor;
-		} else if ( a2 == 0xFF ) {
+		} else if ( alpha == 0xFF ) {
 			return overlay;
 		}
-		int r2 = overlay >>> 16 & 0xFF;
-	    int g2 = overlay >>> 8  & 0xFF;
-	    int b2 = overlay        & 0xFF;
+		return blend( baseColor, overlay );
+	}
+	
+	/**
+	 * Overwrite every color of one layer with the same color of another, like {@link #overwriteColor(int, int)}.
+	 * Doesn't branch for each color, so the whole loop can be vectorized.
+	 * 
+	 * @param base
+	 * The colors underneath. Cannot be null.
+	 * @param overlay
+	 * The colors on top. Cannot be null, and must be at least as long as the result.
+	 * @param result
+	 * Where the colors are put. Cannot be null, and can be the same array as the base or the overlay.
+	 */
+	public static void overwriteColors( int[] base, int[] overlay, int[] result ) {
+		for ( int i = 0; i < result.length; i++ ) {
+			result[ i ] = blend( base[ i ], overlay[ i ] );
+		}
+	}
+	
+	// Exact for fully transparent and fully opaque overlays, so it doesn't need to check for them
+	private static int blend( int baseColor, int overlay ) {
+		int alpha = overlay >>> 24;
+		int inverse = 0xFF - alpha;
 		
-	    int a1 = Math.max( baseColor >>> 24 & 0xFF, a2 );
-		int r1 = baseColor >>> 16 & 0xFF;
-	    int g1 = baseColor >>> 8  & 0xFF;
-	    int b1 = baseColor        & 0xFF;
-	    
-	    double percent = a2 / 255.0;
-	    double unPercent = 1 - percent;
-	    
-	    int r = ( int ) ( r1 * unPercent + r2 * percent );
-	    int g = ( int ) ( g1 * unPercent + g2 * percent );
-	    int b = ( int ) ( b1 * unPercent + b2 * percent );
-	    
-	    return a1 << 24 | r << 16 | g << 8 | b;
+		// Red and blue can be blended at the same time, since each product fits in 16 bits
+		int rb = ( baseColor & 0xFF00FF ) * inverse + ( overlay & 0xFF00FF ) * alpha;
+		int g = ( baseColor >>> 8 & 0xFF ) * inverse + ( overlay >>> 8 & 0xFF ) * alpha;
+		
+		// ( x + ( x >> 8 ) + 1 ) >> 8 is the same as x / 255 for anything up to 255 * 255
+		rb = ( rb + ( rb >>> 8 & 0xFF00FF ) + 0x10001 ) >>> 8 & 0xFF00FF;
+		g = ( g + ( g >>> 8 ) + 1 ) >>> 8;
+		
+		return Math.max( baseColor >>> 24, alpha ) << 24 | rb | g << 8;
 	}
 	
 	public static int mixColors( int color1, int color2 ) {
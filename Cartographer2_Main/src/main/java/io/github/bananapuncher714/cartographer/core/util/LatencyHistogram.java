@@ -0,0 +1,131 @@
+package io.github.bananapuncher714.cartographer.core.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size histogram of durations in nanoseconds, with log-linear buckets like an HDR histogram.
+ * Every power of two is split into 16 buckets, so percentiles are within about 6% of the real value.
+ * <p>
+ * Thread safe and lock free, recording a value is a few atomic increments.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// About 18 minutes, anything longer is counted as this
+	private static final long MAX_VALUE = ( 1L << 40 ) - 1;
+	private static final int BUCKETS = getIndex( MAX_VALUE ) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a duration.
+	 * 
+	 * @param nanos
+	 * The duration in nanoseconds. Negative values are counted as 0.
+	 */
+	public void record( long nanos ) {
+		long value = Math.max( 0, Math.min( MAX_VALUE, nanos ) );
+		counts.incrementAndGet( getIndex( value ) );
+		count.increment();
+		total.add( value );
+
+		long current;
+		while ( value > ( current = max.get() ) && !max.compareAndSet( current, value ) );
+	}
+
+	/**
+	 * Get how many durations have been recorded.
+	 * 
+	 * @return
+	 * The amount since created or last reset.
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Get the average duration.
+	 * 
+	 * @return
+	 * The mean in nanoseconds, or 0 if nothing has been recorded.
+	 */
+	public double getMean() {
+		long amount = count.sum();
+		return amount == 0 ? 0 : total.sum() / ( double ) amount;
+	}
+
+	/**
+	 * Get the longest duration.
+	 * 
+	 * @return
+	 * The maximum in nanoseconds.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Get the duration that a percentage of the recorded durations are at or below.
+	 * 
+	 * @param percentile
+	 * From 0 to 100.
+	 * @return
+	 * The upper bound of the bucket the percentile falls in, in nanoseconds, or 0 if nothing has been recorded.
+	 */
+	public long getPercentile( double percentile ) {
+		long[] snapshot = new long[ BUCKETS ];
+		long amount = 0;
+		for ( int i = 0; i < BUCKETS; i++ ) {
+			snapshot[ i ] = counts.get( i );
+			amount += snapshot[ i ];
+		}
+		if ( amount == 0 ) {
+			return 0;
+		}
+
+		long target = Math.max( 1, ( long ) Math.ceil( amount * Math.max( 0, Math.min( 100, percentile ) ) / 100.0 ) );
+		long seen = 0;
+		for ( int i = 0; i < BUCKETS; i++ ) {
+			seen += snapshot[ i ];
+			if ( seen >= target ) {
+				return Math.min( getUpperBound( i ), max.get() );
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Clear everything that has been recorded. Durations recorded at the same time may or may not be kept.
+	 */
+	public void reset() {
+		for ( int i = 0; i < BUCKETS; i++ ) {
+			counts.set( i, 0 );
+		}
+		count.reset();
+		total.reset();
+		max.set( 0 );
+	}
+
+	private static int getIndex( long value ) {
+		if ( value < SUB_BUCKETS ) {
+			return ( int ) value;
+		}
+		// Keep the highest 5 bits, the leading one picks the power of two and the rest pick the bucket within it
+		int shift = 63 - Long.numberOfLeadingZeros( value ) - SUB_BUCKET_BITS;
+		return ( ( shift + 1 ) << SUB_BUCKET_BITS ) + ( int ) ( ( value >>> shift ) & ( SUB_BUCKETS - 1 ) );
+	}
+
+	private static long getUpperBound( int index ) {
+		if ( index < SUB_BUCKETS ) {
+			return index;
+		}
+		int shift = ( index >> SUB_BUCKET_BITS ) - 1;
+		long sub = index & ( SUB_BUCKETS - 1 );
+		return ( ( SUB_BUCKETS + sub + 1 ) << shift ) - 1;
+	}
+}
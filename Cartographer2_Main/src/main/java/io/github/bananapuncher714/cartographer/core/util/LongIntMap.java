@@ -0,0 +1,190 @@
+package io.github.bananapuncher714.cartographer.core.util;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from primitive long keys to non-negative int values.
+ * Not thread safe.
+ */
+public class LongIntMap {
+	/**
+	 * Returned when a key is not present.
+	 */
+	public static final int MISSING = -1;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	// MISSING marks an empty slot
+	private int[] values;
+	private int size;
+
+	public LongIntMap() {
+		allocate( MIN_CAPACITY );
+	}
+
+	/**
+	 * Get the value for the key.
+	 * 
+	 * @param key
+	 * The key.
+	 * @return
+	 * The value, or {@link #MISSING} if there is none.
+	 */
+	public int get( long key ) {
+		long[] keys = this.keys;
+		int[] values = this.values;
+		// Bounded in case this is read while being written to
+		int mask = Math.min( keys.length, values.length ) - 1;
+		for ( int slot = mix( key ) & mask, probes = 0; values[ slot ] != MISSING && probes <= mask; slot = ( slot + 1 ) & mask, probes++ ) {
+			if ( keys[ slot ] == key ) {
+				return values[ slot ];
+			}
+		}
+		return MISSING;
+	}
+
+	public boolean containsKey( long key ) {
+		return get( key ) != MISSING;
+	}
+
+	/**
+	 * Associate a value with the key.
+	 * 
+	 * @param key
+	 * The key.
+	 * @param value
+	 * Cannot be negative.
+	 * @return
+	 * The previous value, or {@link #MISSING} if there was none.
+	 */
+	public int put( long key, int value ) {
+		if ( value < 0 ) {
+			throw new IllegalArgumentException( "Value cannot be negative!" );
+		}
+
+		int mask = keys.length - 1;
+		int slot = mix( key ) & mask;
+		while ( values[ slot ] != MISSING ) {
+			if ( keys[ slot ] == key ) {
+				int previous = values[ slot ];
+				values[ slot ] = value;
+				return previous;
+			}
+			slot = ( slot + 1 ) & mask;
+		}
+
+		keys[ slot ] = key;
+		values[ slot ] = value;
+		// Keep the load at or below one half so probes stay short
+		if ( ++size << 1 > keys.length ) {
+			resize( keys.length << 1 );
+		}
+		return MISSING;
+	}
+
+	/**
+	 * Remove the key.
+	 * 
+	 * @param key
+	 * The key.
+	 * @return
+	 * The previous value, or {@link #MISSING} if there was none.
+	 */
+	public int remove( long key ) {
+		int mask = keys.length - 1;
+		int slot = mix( key ) & mask;
+		while ( values[ slot ] != MISSING ) {
+			if ( keys[ slot ] == key ) {
+				int previous = values[ slot ];
+				shiftBack( slot );
+				size--;
+				return previous;
+			}
+			slot = ( slot + 1 ) & mask;
+		}
+		return MISSING;
+	}
+
+	/**
+	 * Get a copy of every key.
+	 * 
+	 * @return
+	 * The keys, in no particular order.
+	 */
+	public long[] keys() {
+		long[] copy = new long[ size ];
+		int index = 0;
+		for ( int i = 0; i < keys.length; i++ ) {
+			if ( values[ i ] != MISSING ) {
+				copy[ index++ ] = keys[ i ];
+			}
+		}
+		return copy;
+	}
+
+	public void clear() {
+		allocate( MIN_CAPACITY );
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	// Move later entries back into the removed slot so no tombstones are needed
+	private void shiftBack( int slot ) {
+		int mask = keys.length - 1;
+		int next = ( slot + 1 ) & mask;
+		while ( values[ next ] != MISSING ) {
+			int ideal = mix( keys[ next ] ) & mask;
+			// Only move the entry if the empty slot is between where it wants to be and where it is
+			if ( ( ( next - ideal ) & mask ) >= ( ( next - slot ) & mask ) ) {
+				keys[ slot ] = keys[ next ];
+				values[ slot ] = values[ next ];
+				slot = next;
+			}
+			next = ( next + 1 ) & mask;
+		}
+		values[ slot ] = MISSING;
+	}
+
+	private void resize( int capacity ) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		long[] newKeys = new long[ capacity ];
+		int[] newValues = new int[ capacity ];
+		Arrays.fill( newValues, MISSING );
+
+		int mask = capacity - 1;
+		for ( int i = 0; i < oldKeys.length; i++ ) {
+			if ( oldValues[ i ] != MISSING ) {
+				int slot = mix( oldKeys[ i ] ) & mask;
+				while ( newValues[ slot ] != MISSING ) {
+					slot = ( slot + 1 ) & mask;
+				}
+				newKeys[ slot ] = oldKeys[ i ];
+				newValues[ slot ] = oldValues[ i ];
+			}
+		}
+
+		keys = newKeys;
+		values = newValues;
+	}
+
+	private void allocate( int capacity ) {
+		int[] newValues = new int[ capacity ];
+		Arrays.fill( newValues, MISSING );
+		keys = new long[ capacity ];
+		values = newValues;
+		size = 0;
+	}
+
+	private static int mix( long key ) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return ( int ) ( hash ^ ( hash >>> 32 ) );
+	}
+}
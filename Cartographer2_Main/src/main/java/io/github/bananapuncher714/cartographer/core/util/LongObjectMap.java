@@ -0,0 +1,159 @@
+package io.github.bananapuncher714.cartographer.core.util;
+
+/**
+ * An open addressing hash map with primitive long keys.
+ * Reads are lock free and don't allocate anything. Writes copy the table, so it is meant for maps that are read far more often than they change.
+ *
+ * @param <T>
+ * The value type.
+ */
+public class LongObjectMap< T > {
+	private static final int MIN_CAPACITY = 16;
+
+	private volatile Table table = new Table( MIN_CAPACITY );
+
+	/**
+	 * Combine two ints into a single key.
+	 *
+	 * @param x
+	 * The upper 32 bits.
+	 * @param z
+	 * The lower 32 bits.
+	 * @return
+	 * A key unique to x and z.
+	 */
+	public static long key( int x, int z ) {
+		return ( ( long ) x << 32 ) | ( z & 0xFFFFFFFFL );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public T get( long key ) {
+		Table table = this.table;
+		long[] keys = table.keys;
+		Object[] values = table.values;
+		int mask = keys.length - 1;
+		for ( int slot = mix( key ) & mask; values[ slot ] != null; slot = ( slot + 1 ) & mask ) {
+			if ( keys[ slot ] == key ) {
+				return ( T ) values[ slot ];
+			}
+		}
+		return null;
+	}
+
+	public T get( int x, int z ) {
+		return get( key( x, z ) );
+	}
+
+	public boolean containsKey( long key ) {
+		return get( key ) != null;
+	}
+
+	/**
+	 * Associate a value with the key.
+	 *
+	 * @param key
+	 * The key.
+	 * @param value
+	 * Null to remove the key.
+	 * @return
+	 * The previous value, or null if there was none.
+	 */
+	public synchronized T put( long key, T value ) {
+		T previous = get( key );
+		if ( previous == value ) {
+			return previous;
+		}
+
+		Table current = table;
+		int size = current.size;
+		if ( previous == null ) {
+			size++;
+		} else if ( value == null ) {
+			size--;
+		}
+
+		// Keep the load at or below one half so probes stay short
+		int capacity = MIN_CAPACITY;
+		while ( capacity < size << 1 ) {
+			capacity <<= 1;
+		}
+
+		Table replacement = new Table( capacity );
+		for ( int i = 0; i < current.keys.length; i++ ) {
+			if ( current.values[ i ] != null && current.keys[ i ] != key ) {
+				replacement.insert( current.keys[ i ], current.values[ i ] );
+			}
+		}
+		if ( value != null ) {
+			replacement.insert( key, value );
+		}
+		table = replacement;
+
+		return previous;
+	}
+
+	public T put( int x, int z, T value ) {
+		return put( key( x, z ), value );
+	}
+
+	public T remove( long key ) {
+		return put( key, null );
+	}
+
+	public synchronized void clear() {
+		table = new Table( MIN_CAPACITY );
+	}
+
+	public int size() {
+		return table.size;
+	}
+
+	public boolean isEmpty() {
+		return table.size == 0;
+	}
+
+	/**
+	 * Get a copy of every key.
+	 *
+	 * @return
+	 * The keys, in no particular order.
+	 */
+	public long[] keys() {
+		Table table = this.table;
+		long[] copy = new long[ table.size ];
+		int index = 0;
+		for ( int i = 0; i < table.keys.length; i++ ) {
+			if ( table.values[ i ] != null ) {
+				copy[ index++ ] = table.keys[ i ];
+			}
+		}
+		return copy;
+	}
+
+	private static int mix( long key ) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return ( int ) ( hash ^ ( hash >>> 32 ) );
+	}
+
+	private static class Table {
+		private final long[] keys;
+		private final Object[] values;
+		private int size;
+
+		private Table( int capacity ) {
+			keys = new long[ capacity ];
+			values = new Object[ capacity ];
+		}
+
+		private void insert( long key, Object value ) {
+			int mask = keys.length - 1;
+			int slot = mix( key ) & mask;
+			while ( values[ slot ] != null ) {
+				slot = ( slot + 1 ) & mask;
+			}
+			keys[ slot ] = key;
+			values[ slot ] = value;
+			size++;
+		}
+	}
+}
@@ -7,6 +7,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.bukkit.Location;
+import org.bukkit.map.MapCursor;
 
 import io.github.bananapuncher714.cartographer.core.api.MapPixel;
 
@@ -90,6 +91,101 @@ public class MapUtil {
 		return ( byte ) Math.min( 15, Math.max( 0, ( ( ( degree + 371.25 ) % 360 ) / 22.5 ) ) );
 	}
 	
+	/**
+	 * Get the smallest rectangle that contains every pixel that differs between two frames.
+	 * 
+	 * @param previous
+	 * The previous frame, 128 * 128.
+	 * @param current
+	 * The current frame, 128 * 128.
+	 * @return
+	 * An array of { x, y, width, height }, or null if the frames are identical.
+	 */
+	public static int[] getChangedBounds( byte[] previous, byte[] current ) {
+		int minX = 128;
+		int minY = 128;
+		int maxX = -1;
+		int maxY = -1;
+		
+		int index = 0;
+		for ( int y = 0; y < 128; y++ ) {
+			for ( int x = 0; x < 128; x++, index++ ) {
+				if ( previous[ index ] != current[ index ] ) {
+					if ( x < minX ) {
+						minX = x;
+					}
+					if ( x > maxX ) {
+						maxX = x;
+					}
+					if ( minY == 128 ) {
+						minY = y;
+					}
+					maxY = y;
+				}
+			}
+		}
+		
+		if ( maxX == -1 ) {
+			return null;
+		}
+		return new int[] { minX, minY, maxX - minX + 1, maxY - minY + 1 };
+	}
+	
+	/**
+	 * Copy a rectangle out of a 128 * 128 frame.
+	 * 
+	 * @param data
+	 * The frame, 128 * 128.
+	 * @param x
+	 * The left column.
+	 * @param y
+	 * The top row.
+	 * @param width
+	 * The width of the rectangle.
+	 * @param height
+	 * The height of the rectangle.
+	 * @return
+	 * An array of width * height, in rows.
+	 */
+	public static byte[] getSubFrame( byte[] data, int x, int y, int width, int height ) {
+		byte[] patch = new byte[ width * height ];
+		for ( int row = 0; row < height; row++ ) {
+			System.arraycopy( data, x + ( ( y + row ) << 7 ), patch, row * width, width );
+		}
+		return patch;
+	}
+	
+	/**
+	 * Check if two arrays of cursors would look the same to the client. Captions are not compared.
+	 * 
+	 * @param first
+	 * Can be null.
+	 * @param second
+	 * Can be null.
+	 * @return
+	 * If each cursor has the same position, direction, type and visibility.
+	 */
+	public static boolean isSameCursors( MapCursor[] first, MapCursor[] second ) {
+		if ( first == second ) {
+			return true;
+		}
+		if ( first == null || second == null || first.length != second.length ) {
+			return false;
+		}
+		for ( int i = 0; i < first.length; i++ ) {
+			MapCursor a = first[ i ];
+			MapCursor b = second[ i ];
+			if ( a.getX() != b.getX() ||
+					a.getY() != b.getY() ||
+					a.getDirection() != b.getDirection() ||
+					a.getType() != b.getType() ||
+					a.isVisible() != b.isVisible() ) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	//TODO add dithering in some way?
 	public static Set< MapPixel > getPixelsFor( Image image, int x, int y ) {
 		BufferedImage bImage = JetpImageUtil.toBufferedImage( image );
@@ -0,0 +1,105 @@
+package io.github.bananapuncher714.cartographer.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Compares the integer blending against the floating point version it replaced, for every alpha and every pair of channel values.
+ */
+public class JetpImageUtilTest {
+	@Test
+	public void overwriteColorMatchesDoubleBlend() {
+		for ( int alpha = 0; alpha < 256; alpha++ ) {
+			for ( int first = 0; first < 256; first++ ) {
+				for ( int second = 0; second < 256; second++ ) {
+					int base = getBase( first, second );
+					int overlay = getOverlay( alpha, first, second );
+					check( base, overlay, JetpImageUtil.overwriteColor( base, overlay ) );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void overwriteColorsMatchesDoubleBlend() {
+		int[] base = new int[ 256 * 256 ];
+		int[] overlay = new int[ base.length ];
+		int[] result = new int[ base.length ];
+		for ( int alpha = 0; alpha < 256; alpha++ ) {
+			for ( int i = 0; i < base.length; i++ ) {
+				base[ i ] = getBase( i >> 8, i & 0xFF );
+				overlay[ i ] = getOverlay( alpha, i >> 8, i & 0xFF );
+			}
+			JetpImageUtil.overwriteColors( base, overlay, result );
+			for ( int i = 0; i < base.length; i++ ) {
+				check( base[ i ], overlay[ i ], result[ i ] );
+			}
+		}
+	}
+
+	@Test
+	public void overwriteColorsWorksInPlace() {
+		int[] base = { 0xFF102030, 0x80405060, 0x00708090 };
+		int[] overlay = { 0x80FFFFFF, 0x00000000, 0xFF010203 };
+		int[] expected = new int[ base.length ];
+		for ( int i = 0; i < base.length; i++ ) {
+			expected[ i ] = JetpImageUtil.overwriteColor( base[ i ], overlay[ i ] );
+		}
+		JetpImageUtil.overwriteColors( base, overlay, base );
+		for ( int i = 0; i < base.length; i++ ) {
+			assertEquals( expected[ i ], base[ i ] );
+		}
+	}
+
+	// Every channel sees every pair of values, and the base alpha varies so the larger alpha is kept
+	private static int getBase( int first, int second ) {
+		return first << 24 | first << 16 | second << 8 | ( 0xFF - first );
+	}
+
+	private static int getOverlay( int alpha, int first, int second ) {
+		return alpha << 24 | second << 16 | first << 8 | ( 0xFF - second );
+	}
+
+	private static void check( int base, int overlay, int actual ) {
+		int expected = doubleBlend( base, overlay );
+		int alpha = overlay >>> 24;
+		// Fully transparent and fully opaque overlays shouldn't be rounded at all
+		int tolerance = alpha == 0 || alpha == 0xFF ? 0 : 1;
+		for ( int shift = 0; shift < 32; shift += 8 ) {
+			int difference = Math.abs( ( expected >>> shift & 0xFF ) - ( actual >>> shift & 0xFF ) );
+			if ( difference > tolerance ) {
+				fail( String.format( "Blending %08X over %08X gave %08X, expected %08X", overlay, base, actual, expected ) );
+			}
+		}
+	}
+
+	// The original implementation of JetpImageUtil#overwriteColor
+	private static int doubleBlend( int baseColor, int overlay ) {
+		int a2 = overlay >>> 24 & 0xFF;
+		if ( a2 == 0 ) {
+			return baseColor;
+		} else if ( a2 == 0xFF ) {
+			return overlay;
+		}
+
+		int r2 = overlay >>> 16 & 0xFF;
+		int g2 = overlay >>> 8 & 0xFF;
+		int b2 = overlay & 0xFF;
+
+		int a1 = Math.max( baseColor >>> 24 & 0xFF, a2 );
+		int r1 = baseColor >>> 16 & 0xFF;
+		int g1 = baseColor >>> 8 & 0xFF;
+		int b1 = baseColor & 0xFF;
+
+		double percent = a2 / 255.0;
+		double unPercent = 1 - percent;
+
+		int r = ( int ) ( r1 * unPercent + r2 * percent );
+		int g = ( int ) ( g1 * unPercent + g2 * percent );
+		int b = ( int ) ( b1 * unPercent + b2 * percent );
+
+		return a1 << 24 | r << 16 | g << 8 | b;
+	}
+}
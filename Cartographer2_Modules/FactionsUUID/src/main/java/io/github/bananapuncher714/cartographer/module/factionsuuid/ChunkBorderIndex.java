@@ -0,0 +1,194 @@
+package io.github.bananapuncher714.cartographer.module.factionsuuid;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.bukkit.block.BlockFace;
+
+import io.github.bananapuncher714.cartographer.core.api.ChunkLocation;
+
+/**
+ * Keeps the borders of every owner's claims, grouped into buckets per world so that only the borders near a viewer need to be looked at.
+ * Borders only get recalculated for owners whose claims actually changed.
+ * 
+ * @param <K>
+ * The type that identifies an owner.
+ */
+public class ChunkBorderIndex< K > {
+	// Each bucket is 16 by 16 chunks
+	private static final int BUCKET_POWER = 4;
+
+	private final Map< K, Set< ChunkLocation > > claims = new HashMap< K, Set< ChunkLocation > >();
+	private final Map< K, List< Border< K > > > borders = new HashMap< K, List< Border< K > > >();
+	private final Map< String, Map< Long, List< Border< K > > > > buckets = new HashMap< String, Map< Long, List< Border< K > > > >();
+
+	/**
+	 * Set the claims of an owner, and update the borders if they are different.
+	 * 
+	 * @param owner
+	 * The owner of the claims.
+	 * @param chunks
+	 * Every chunk that the owner has claimed. Empty to remove the owner.
+	 * @return
+	 * If the borders changed.
+	 */
+	public boolean update( K owner, Set< ChunkLocation > chunks ) {
+		if ( chunks.isEmpty() ) {
+			return remove( owner );
+		}
+
+		Set< ChunkLocation > previous = claims.get( owner );
+		if ( previous != null && previous.equals( chunks ) ) {
+			return false;
+		}
+
+		remove( owner );
+		claims.put( owner, chunks );
+
+		List< Border< K > > ownerBorders = new ArrayList< Border< K > >();
+		for ( Entry< ChunkLocation, Set< BlockFace > > entry : ChunkBorderShader.getBorders( chunks ).entrySet() ) {
+			if ( entry.getValue().isEmpty() ) {
+				continue;
+			}
+
+			Border< K > border = new Border< K >( owner, entry.getKey(), entry.getValue() );
+			ownerBorders.add( border );
+
+			ChunkLocation location = border.location;
+			buckets.computeIfAbsent( location.getWorldName(), name -> new HashMap< Long, List< Border< K > > >() )
+				.computeIfAbsent( getBucket( location.getX() >> BUCKET_POWER, location.getZ() >> BUCKET_POWER ), bucket -> new ArrayList< Border< K > >() )
+				.add( border );
+		}
+		borders.put( owner, ownerBorders );
+
+		return true;
+	}
+
+	/**
+	 * Remove all the borders of an owner.
+	 * 
+	 * @param owner
+	 * The owner to remove.
+	 * @return
+	 * If the owner had any claims.
+	 */
+	public boolean remove( K owner ) {
+		claims.remove( owner );
+		List< Border< K > > ownerBorders = borders.remove( owner );
+		if ( ownerBorders == null ) {
+			return false;
+		}
+
+		for ( Border< K > border : ownerBorders ) {
+			ChunkLocation location = border.location;
+			Map< Long, List< Border< K > > > worldBuckets = buckets.get( location.getWorldName() );
+			if ( worldBuckets == null ) {
+				continue;
+			}
+			long key = getBucket( location.getX() >> BUCKET_POWER, location.getZ() >> BUCKET_POWER );
+			List< Border< K > > bucket = worldBuckets.get( key );
+			if ( bucket != null ) {
+				bucket.remove( border );
+				if ( bucket.isEmpty() ) {
+					worldBuckets.remove( key );
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Remove every owner that is not in the collection provided.
+	 * 
+	 * @param owners
+	 * The owners to keep.
+	 */
+	public void retain( Collection< K > owners ) {
+		Set< K > keep = new HashSet< K >( owners );
+		for ( K owner : new ArrayList< K >( borders.keySet() ) ) {
+			if ( !keep.contains( owner ) ) {
+				remove( owner );
+			}
+		}
+	}
+
+	public void clear() {
+		claims.clear();
+		borders.clear();
+		buckets.clear();
+	}
+
+	public Set< K > getOwners() {
+		return borders.keySet();
+	}
+
+	/**
+	 * Get the borders in a region of chunks.
+	 * 
+	 * @param world
+	 * The name of the world.
+	 * @param minX
+	 * The minimum chunk x, inclusive.
+	 * @param minZ
+	 * The minimum chunk z, inclusive.
+	 * @param maxX
+	 * The maximum chunk x, inclusive.
+	 * @param maxZ
+	 * The maximum chunk z, inclusive.
+	 * @return
+	 * The borders in and possibly slightly around the region.
+	 */
+	public Collection< Border< K > > getBorders( String world, int minX, int minZ, int maxX, int maxZ ) {
+		List< Border< K > > found = new ArrayList< Border< K > >();
+		Map< Long, List< Border< K > > > worldBuckets = buckets.get( world );
+		if ( worldBuckets == null ) {
+			return found;
+		}
+
+		int maxBucketX = maxX >> BUCKET_POWER;
+		int maxBucketZ = maxZ >> BUCKET_POWER;
+		for ( int x = minX >> BUCKET_POWER; x <= maxBucketX; x++ ) {
+			for ( int z = minZ >> BUCKET_POWER; z <= maxBucketZ; z++ ) {
+				List< Border< K > > bucket = worldBuckets.get( getBucket( x, z ) );
+				if ( bucket != null ) {
+					found.addAll( bucket );
+				}
+			}
+		}
+		return found;
+	}
+
+	private static long getBucket( int x, int z ) {
+		return ( ( long ) x << 32 ) | ( z & 0xFFFFFFFFL );
+	}
+
+	public static class Border< K > {
+		protected final K owner;
+		protected final ChunkLocation location;
+		protected final Set< BlockFace > faces;
+
+		protected Border( K owner, ChunkLocation location, Set< BlockFace > faces ) {
+			this.owner = owner;
+			this.location = location;
+			this.faces = faces;
+		}
+
+		public K getOwner() {
+			return owner;
+		}
+
+		public ChunkLocation getLocation() {
+			return location;
+		}
+
+		public Set< BlockFace > getFaces() {
+			return faces;
+		}
+	}
+}
@@ -6,12 +6,11 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.regex.Matcher;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.bukkit.block.BlockFace;
+import org.bukkit.Location;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
@@ -36,6 +35,7 @@ import io.github.bananapuncher714.cartographer.core.module.Module;
 import io.github.bananapuncher714.cartographer.core.renderer.PlayerSetting;
 import io.github.bananapuncher714.cartographer.core.util.FailSafe;
 import io.github.bananapuncher714.cartographer.core.util.FileUtil;
+import io.github.bananapuncher714.cartographer.module.factionsuuid.ChunkBorderIndex.Border;
 import io.github.bananapuncher714.cartographer.module.factionsuuid.ChunkBorderShader.ChunkBorderData;
 
 public class FactionsUUIDModule extends Module implements Listener {
@@ -43,7 +43,7 @@ public class FactionsUUIDModule extends Module implements Listener {
 	public static final SettingStateBoolean FACTION_PLAYERS = SettingStateBoolean.of( "factions_show_players", false, true );
 	public static final SettingStateBoolean FACTION_HOME = SettingStateBoolean.of( "factions_show_fhome", false, true );
 
-	private Map< String, Map< ChunkLocation, Set< BlockFace > > > claims = new HashMap< String, Map< ChunkLocation, Set< BlockFace > > >();
+	private ChunkBorderIndex< String > claims = new ChunkBorderIndex< String >();
 	private Map< FactionStatus, Color > colors = new HashMap< FactionStatus, Color >();
 	private Map< Relation, Type > icons = new HashMap< Relation, Type >();
 
@@ -119,15 +119,18 @@ public class FactionsUUIDModule extends Module implements Listener {
 	}
 
 	private void tick() {
-		claims.clear();
+		// Only the factions whose claims changed get their borders recalculated
+		Set< String > ids = new HashSet< String >();
 		for ( Faction faction : Factions.getInstance().getAllFactions() ) {
 			Set< ChunkLocation > chunks = faction
 					.getAllClaims()
 					.stream()
 					.map( loc -> { return new ChunkLocation( loc.getWorld(), ( int ) loc.getX(), ( int ) loc.getZ() ); } )
 					.collect( Collectors.toSet() );
-			claims.put( faction.getId(), ChunkBorderShader.getBorders( chunks ) );
+			ids.add( faction.getId() );
+			claims.update( faction.getId(), chunks );
 		}
+		claims.retain( ids );
 	}
 
 	private Type getType( Player viewer, Player target ) {
@@ -143,31 +146,47 @@ public class FactionsUUIDModule extends Module implements Listener {
 		if ( viewer.getSetting( FACTION_CLAIMS ) ) {
 			FPlayer fPlayer = FPlayers.getInstance().getByPlayer( player );
 			Faction playerFaction = fPlayer.getFaction();
-			for ( Entry< String, Map< ChunkLocation, Set< BlockFace > > > entry : claims.entrySet() ) {
-				Faction faction = Factions.getInstance().getFactionById( entry.getKey() );
-				Color color = colors.get( FactionStatus.NEUTRAL );
-				Relation relation = faction.getRelationTo( fPlayer );
-				if ( playerFaction == faction ) {
-					color = colors.get( FactionStatus.SELF );
-				} else if ( faction.isSafeZone() ) {
-					color = colors.get( FactionStatus.SAFEZONE );
-				} else if ( faction.isWarZone() ) {
-					color = colors.get( FactionStatus.WARZONE );
-				} else if ( relation == Relation.ALLY ) {
-					color = colors.get( FactionStatus.ALLY );
-				} else if ( relation == Relation.ENEMY ) {
-					color = colors.get( FactionStatus.ENEMY );
-				} else if ( relation == Relation.TRUCE ) {
-					color = colors.get( FactionStatus.TRUCE );
-				} else if ( relation == Relation.NEUTRAL ) {
+			
+			// Only look at the claims that could be visible on the map
+			Location location = setting.getLocation();
+			double radius = setting.getScale() * 91;
+			int minX = ( int ) Math.floor( location.getX() - radius ) >> 4;
+			int minZ = ( int ) Math.floor( location.getZ() - radius ) >> 4;
+			int maxX = ( int ) Math.floor( location.getX() + radius ) >> 4;
+			int maxZ = ( int ) Math.floor( location.getZ() + radius ) >> 4;
+			
+			Map< String, Color > factionColors = new HashMap< String, Color >();
+			for ( Border< String > border : claims.getBorders( location.getWorld().getName(), minX, minZ, maxX, maxZ ) ) {
+				Color color = factionColors.get( border.getOwner() );
+				if ( color == null ) {
+					Faction faction = Factions.getInstance().getFactionById( border.getOwner() );
+					if ( faction == null ) {
+						continue;
+					}
+					
 					color = colors.get( FactionStatus.NEUTRAL );
+					Relation relation = faction.getRelationTo( fPlayer );
+					if ( playerFaction == faction ) {
+						color = colors.get( FactionStatus.SELF );
+					} else if ( faction.isSafeZone() ) {
+						color = colors.get( FactionStatus.SAFEZONE );
+					} else if ( faction.isWarZone() ) {
+						color = colors.get( FactionStatus.WARZONE );
+					} else if ( relation == Relation.ALLY ) {
+						color = colors.get( FactionStatus.ALLY );
+					} else if ( relation == Relation.ENEMY ) {
+						color = colors.get( FactionStatus.ENEMY );
+					} else if ( relation == Relation.TRUCE ) {
+						color = colors.get( FactionStatus.TRUCE );
+					} else if ( relation == Relation.NEUTRAL ) {
+						color = colors.get( FactionStatus.NEUTRAL );
+					}
+					factionColors.put( border.getOwner(), color );
 				}
 
-				for ( Entry< ChunkLocation, Set< BlockFace > > borderEntry : entry.getValue().entrySet() ) {
-					ChunkBorderData borderData = new ChunkBorderData( borderEntry.getKey(), color );
-					borderData.getFaces().addAll( borderEntry.getValue() );
-					data.add( borderData );
-				}
+				ChunkBorderData borderData = new ChunkBorderData( border.getLocation(), color );
+				borderData.getFaces().addAll( border.getFaces() );
+				data.add( borderData );
 			}
 		}
 
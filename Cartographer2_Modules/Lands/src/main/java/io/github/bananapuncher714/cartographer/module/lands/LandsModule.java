@@ -6,14 +6,13 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Supplier;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.block.BlockFace;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
@@ -32,6 +31,7 @@ import io.github.bananapuncher714.cartographer.core.module.Module;
 import io.github.bananapuncher714.cartographer.core.renderer.PlayerSetting;
 import io.github.bananapuncher714.cartographer.core.util.FailSafe;
 import io.github.bananapuncher714.cartographer.core.util.FileUtil;
+import io.github.bananapuncher714.cartographer.module.lands.ChunkBorderIndex.Border;
 import io.github.bananapuncher714.cartographer.module.lands.ChunkBorderShader.ChunkBorderData;
 import io.github.bananapuncher714.cartographer.module.lands.settings.SettingStateLandVisibility;
 import io.github.bananapuncher714.cartographer.module.lands.visibility.CursorVisibility;
@@ -48,7 +48,7 @@ public class LandsModule extends Module implements Listener {
 	
 	private LandsIntegration integration;
 	
-	protected Map< Integer, Map< ChunkLocation, Set< BlockFace > > > data;
+	protected ChunkBorderIndex< Integer > data;
 
 	protected Color landOwner;
 	protected Color landTrusted;
@@ -73,7 +73,7 @@ public class LandsModule extends Module implements Listener {
 			init( minimap );
 		}
 
-		data = new HashMap< Integer, Map< ChunkLocation, Set< BlockFace > > >();
+		data = new ChunkBorderIndex< Integer >();
 		
 		integration = new LandsIntegration( getCartographer() );
 		
@@ -120,7 +120,8 @@ public class LandsModule extends Module implements Listener {
 	}
 	
 	private void update() {
-		data.clear();
+		// Only the lands whose claims changed get their borders recalculated
+		Set< Integer > ids = new HashSet< Integer >();
 		for ( Land land : integration.getLands() ) {
 			Set< ChunkLocation > locations = new HashSet< ChunkLocation >();
 			for ( World world : Bukkit.getWorlds() ) {
@@ -132,10 +133,10 @@ public class LandsModule extends Module implements Listener {
 				}
 			}
 			
-			if ( !locations.isEmpty() ) {
-				data.put( land.getId(), ChunkBorderShader.getBorders( locations ) );
-			}
+			ids.add( land.getId() );
+			data.update( land.getId(), locations );
 		}
+		data.retain( ids );
 	}
 
 	private Collection< ChunkBorderData > getData( Player player, PlayerSetting setting ) {
@@ -146,29 +147,45 @@ public class LandsModule extends Module implements Listener {
 		LandVisibility landVis = viewer.getSetting( LandsModule.LANDS_SHOW_LANDS );
 		if ( landVis != LandVisibility.NONE ) {
 			UUID uuid = setting.getUUID();
-			Collection< Land > lands = integration.getLands();
-			for ( Land land : lands ) {
-				UUID owner = land.getOwnerUID();
-				if ( uuid.equals( owner ) || landVis == LandVisibility.ALL || ( landVis == LandVisibility.TRUSTED && land.getTrustedPlayer( uuid ).isTrustedWholeLand() ) ) {
-					Map< ChunkLocation, Set< BlockFace > > locations = data.get( land.getId() );
-					
-					if ( locations != null ) {
-						Color color = landUntrusted;
-						if ( uuid.equals( owner ) ) {
-							color = landOwner;
-						} else if ( land.getTrustedPlayer( uuid ).isTrustedWholeLand() ) {
-							color = landTrusted;
-						}
-						
-						for ( Entry< ChunkLocation, Set< BlockFace > > entry : locations.entrySet() ) {
-							ChunkLocation chunkLoc = entry.getKey();
-							if ( chunkLoc.getWorld() == setting.getLocation().getWorld() ) {
-								ChunkBorderData chunkData = new ChunkBorderData( chunkLoc, color );
-								chunkData.getFaces().addAll( entry.getValue() );
-								chunks.add( chunkData );
+			Map< Integer, Land > lands = new HashMap< Integer, Land >();
+			for ( Land land : integration.getLands() ) {
+				lands.put( land.getId(), land );
+			}
+			
+			// Only look at the claims that could be visible on the map
+			Location location = setting.getLocation();
+			double radius = setting.getScale() * 91;
+			int minX = ( int ) Math.floor( location.getX() - radius ) >> 4;
+			int minZ = ( int ) Math.floor( location.getZ() - radius ) >> 4;
+			int maxX = ( int ) Math.floor( location.getX() + radius ) >> 4;
+			int maxZ = ( int ) Math.floor( location.getZ() + radius ) >> 4;
+			
+			Map< Integer, Color > landColors = new HashMap< Integer, Color >();
+			for ( Border< Integer > border : data.getBorders( location.getWorld().getName(), minX, minZ, maxX, maxZ ) ) {
+				Integer id = border.getOwner();
+				if ( !landColors.containsKey( id ) ) {
+					Land land = lands.get( id );
+					Color color = null;
+					if ( land != null ) {
+						UUID owner = land.getOwnerUID();
+						if ( uuid.equals( owner ) || landVis == LandVisibility.ALL || ( landVis == LandVisibility.TRUSTED && land.getTrustedPlayer( uuid ).isTrustedWholeLand() ) ) {
+							color = landUntrusted;
+							if ( uuid.equals( owner ) ) {
+								color = landOwner;
+							} else if ( land.getTrustedPlayer( uuid ).isTrustedWholeLand() ) {
+								color = landTrusted;
 							}
 						}
 					}
+					// Null means that this land isn't visible to the player
+					landColors.put( id, color );
+				}
+				
+				Color color = landColors.get( id );
+				if ( color != null ) {
+					ChunkBorderData chunkData = new ChunkBorderData( border.getLocation(), color );
+					chunkData.getFaces().addAll( border.getFaces() );
+					chunks.add( chunkData );
 				}
 			}
 		}
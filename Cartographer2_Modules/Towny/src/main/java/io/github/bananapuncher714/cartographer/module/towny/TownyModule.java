@@ -7,7 +7,6 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -15,7 +14,6 @@ import java.util.regex.Matcher;
 
 import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.block.BlockFace;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -26,6 +24,11 @@ import org.bukkit.map.MapCursor.Type;
 
 import com.palmergames.bukkit.towny.TownyAPI;
 import com.palmergames.bukkit.towny.TownyUniverse;
+import com.palmergames.bukkit.towny.event.DeleteTownEvent;
+import com.palmergames.bukkit.towny.event.NewTownEvent;
+import com.palmergames.bukkit.towny.event.RenameTownEvent;
+import com.palmergames.bukkit.towny.event.TownClaimEvent;
+import com.palmergames.bukkit.towny.event.town.TownUnclaimEvent;
 import com.palmergames.bukkit.towny.exceptions.NotRegisteredException;
 import com.palmergames.bukkit.towny.object.Coord;
 import com.palmergames.bukkit.towny.object.Nation;
@@ -46,6 +49,7 @@ import io.github.bananapuncher714.cartographer.core.module.Module;
 import io.github.bananapuncher714.cartographer.core.renderer.PlayerSetting;
 import io.github.bananapuncher714.cartographer.core.util.FailSafe;
 import io.github.bananapuncher714.cartographer.core.util.FileUtil;
+import io.github.bananapuncher714.cartographer.module.towny.ChunkBorderIndex.Border;
 import io.github.bananapuncher714.cartographer.module.towny.ChunkBorderShader.ChunkBorderData;
 
 public class TownyModule extends Module implements Listener {
@@ -53,7 +57,12 @@ public class TownyModule extends Module implements Listener {
 	public static final SettingStateBoolean TOWNY_PLAYERS = SettingStateBoolean.of( "towny_show_players", false, true );
 	public static final SettingStateBoolean TOWNY_SPAWN = SettingStateBoolean.of( "towny_show_spawn", false, true );
 	
-	private Map< String, Map< ChunkLocation, Set< BlockFace > > > claims = new HashMap< String, Map< ChunkLocation, Set< BlockFace > > >();
+	// Check every town for changes at this interval, in case an event was missed
+	private static final int RESYNC_INTERVAL = 600;
+	
+	private ChunkBorderIndex< String > claims = new ChunkBorderIndex< String >();
+	private Set< String > dirtyTowns = new HashSet< String >();
+	private int ticksUntilResync = 0;
 	private Map< TownyRelation, Color > colors = new HashMap< TownyRelation, Color >();
 	private Map< TownyRelation, CursorProperties > icons = new HashMap< TownyRelation, CursorProperties >();
 
@@ -157,17 +166,72 @@ public class TownyModule extends Module implements Listener {
 		minimap.register( new PlayerMarkerProvider( showName, this::getType ) );
 	}
 
+	@EventHandler
+	private void onEvent( TownClaimEvent event ) {
+		Town town = event.getTownBlock().getTownOrNull();
+		if ( town != null ) {
+			dirtyTowns.add( town.getName() );
+		}
+	}
+	
+	@EventHandler
+	private void onEvent( TownUnclaimEvent event ) {
+		if ( event.getTown() != null ) {
+			dirtyTowns.add( event.getTown().getName() );
+		}
+	}
+	
+	@EventHandler
+	private void onEvent( NewTownEvent event ) {
+		dirtyTowns.add( event.getTown().getName() );
+	}
+	
+	@EventHandler
+	private void onEvent( DeleteTownEvent event ) {
+		dirtyTowns.add( event.getTownName() );
+	}
+	
+	@EventHandler
+	private void onEvent( RenameTownEvent event ) {
+		dirtyTowns.add( event.getOldName() );
+		dirtyTowns.add( event.getTown().getName() );
+	}
+
 	private void tick() {
-		claims.clear();
-		for ( Town town : TownyUniverse.getInstance().getTowns() ) {
-			Set< ChunkLocation > chunks = new HashSet< ChunkLocation >();
-			for ( TownBlock block : town.getTownBlocks() ) {
-				Coord coord = block.getCoord();
-				World world = block.getWorldCoord().getBukkitWorld();
-				chunks.add( new ChunkLocation( world, coord.getX(), coord.getZ() ) );
+		if ( ticksUntilResync <= 0 ) {
+			// Check every town, but only the ones whose claims changed get their borders recalculated
+			ticksUntilResync = RESYNC_INTERVAL;
+			dirtyTowns.clear();
+			
+			Set< String > names = new HashSet< String >();
+			for ( Town town : TownyUniverse.getInstance().getTowns() ) {
+				names.add( town.getName() );
+				claims.update( town.getName(), getChunks( town ) );
 			}
-			claims.put( town.getName(), ChunkBorderShader.getBorders( chunks ) );
+			claims.retain( names );
+		} else {
+			ticksUntilResync -= 10;
+			
+			for ( String name : dirtyTowns ) {
+				Town town = TownyUniverse.getInstance().getTown( name );
+				if ( town == null ) {
+					claims.remove( name );
+				} else {
+					claims.update( name, getChunks( town ) );
+				}
+			}
+			dirtyTowns.clear();
+		}
+	}
+	
+	private Set< ChunkLocation > getChunks( Town town ) {
+		Set< ChunkLocation > chunks = new HashSet< ChunkLocation >();
+		for ( TownBlock block : town.getTownBlocks() ) {
+			Coord coord = block.getCoord();
+			World world = block.getWorldCoord().getBukkitWorld();
+			chunks.add( new ChunkLocation( world, coord.getX(), coord.getZ() ) );
 		}
+		return chunks;
 	}
 
 	private Optional< Type > getType( Player viewer, Player target, double scale ) {
@@ -243,35 +307,47 @@ public class TownyModule extends Module implements Listener {
 					resNation = resTown.getNation();
 				}
 
-				for ( Entry< String, Map< ChunkLocation, Set< BlockFace > > > entry : claims.entrySet() ) {
-					Town town = TownyUniverse.getInstance().getTown( entry.getKey() );
-					if ( town == null ) {
-						continue;
-					}
-					
-					Nation nation = null;
-					if ( town.hasNation() ) {
-						nation = town.getNation();
-					}
-
-					Color color = colors.get( TownyRelation.NEUTRAL );
-					if ( resTown != null && town == resTown ) {
-						color = colors.get( TownyRelation.MEMBER_TOWN );
-					} else if ( nation != null && nation == resNation ) {
-						color = colors.get( TownyRelation.MEMBER_NATION );
-					} else if ( resTown != null && town!= null && town.isAlliedWith( resTown ) ) {
-						color = colors.get( TownyRelation.ALLIED_TOWN );
-					} else if ( nation != null && resNation != null && nation.isAlliedWith( resNation ) ) {
-						color = colors.get( TownyRelation.ALLIED_NATION );
-					} else if ( nation != null && resNation != null && resNation.getEnemies().contains( nation ) ) {
-						color = colors.get( TownyRelation.ENEMY_NATION );
+				// Only look at the claims that could be visible on the map
+				Location location = setting.getLocation();
+				int cellSize = Coord.getCellSize();
+				double radius = setting.getScale() * 91;
+				int minX = ( int ) Math.floor( ( location.getX() - radius ) / cellSize );
+				int minZ = ( int ) Math.floor( ( location.getZ() - radius ) / cellSize );
+				int maxX = ( int ) Math.floor( ( location.getX() + radius ) / cellSize );
+				int maxZ = ( int ) Math.floor( ( location.getZ() + radius ) / cellSize );
+				
+				Map< String, Color > townColors = new HashMap< String, Color >();
+				for ( Border< String > border : claims.getBorders( location.getWorld().getName(), minX, minZ, maxX, maxZ ) ) {
+					Color color = townColors.get( border.getOwner() );
+					if ( color == null ) {
+						Town town = TownyUniverse.getInstance().getTown( border.getOwner() );
+						if ( town == null ) {
+							continue;
+						}
+						
+						Nation nation = null;
+						if ( town.hasNation() ) {
+							nation = town.getNation();
+						}
+	
+						color = colors.get( TownyRelation.NEUTRAL );
+						if ( resTown != null && town == resTown ) {
+							color = colors.get( TownyRelation.MEMBER_TOWN );
+						} else if ( nation != null && nation == resNation ) {
+							color = colors.get( TownyRelation.MEMBER_NATION );
+						} else if ( resTown != null && town!= null && town.isAlliedWith( resTown ) ) {
+							color = colors.get( TownyRelation.ALLIED_TOWN );
+						} else if ( nation != null && resNation != null && nation.isAlliedWith( resNation ) ) {
+							color = colors.get( TownyRelation.ALLIED_NATION );
+						} else if ( nation != null && resNation != null && resNation.getEnemies().contains( nation ) ) {
+							color = colors.get( TownyRelation.ENEMY_NATION );
+						}
+						townColors.put( border.getOwner(), color );
 					}
 
-					for ( Entry< ChunkLocation, Set< BlockFace > > borderEntry : entry.getValue().entrySet() ) {
-						ChunkBorderData borderData = new ChunkBorderData( borderEntry.getKey(), color );
-						borderData.getFaces().addAll( borderEntry.getValue() );
-						data.add( borderData );
-					}
+					ChunkBorderData borderData = new ChunkBorderData( border.getLocation(), color );
+					borderData.getFaces().addAll( border.getFaces() );
+					data.add( borderData );
 				}
 			} catch ( NotRegisteredException e ) {
 				e.printStackTrace();
@@ -164,7 +164,7 @@ public class NMSHandler implements PacketHandler {
 	}
 	
 	@Override
-	public void sendDataTo( int id, byte[] data, @Nullable MapCursor[] cursors, UUID... uuids ) {
+	public void sendDataTo( int id, @Nullable byte[] data, @Nullable MapCursor[] cursors, int x, int y, int width, int height, UUID... uuids ) {
 		List< MapIcon > icons = null;
 		if ( cursors != null ) {
 			icons = new LinkedList< MapIcon >();
@@ -176,7 +176,7 @@ public class NMSHandler implements PacketHandler {
 			}
 		}
 		
-		PacketPlayOutMap packet = new PacketPlayOutMap( id, ( byte ) 0, false, icons, new WorldMap.b( 0, 0, 128, 128, data ) );
+		PacketPlayOutMap packet = new PacketPlayOutMap( id, ( byte ) 0, false, icons, width > 0 && height > 0 ? new WorldMap.b( x, y, width, height, data ) : null );
 		
 		whitelisted.add( packet );
 		
@@ -274,8 +274,8 @@ public class NMSHandler implements PacketHandler {
 				}
 			}
 		}
-		palette.getTransparentBlocks().remove( new CrossVersionMaterial( org.bukkit.Material.WATER ) );
-		palette.getTransparentBlocks().remove( new CrossVersionMaterial( org.bukkit.Material.LAVA ) );
+		palette.removeTransparentMaterial( new CrossVersionMaterial( org.bukkit.Material.WATER ) );
+		palette.removeTransparentMaterial( new CrossVersionMaterial( org.bukkit.Material.LAVA ) );
 		palette.setColor( new CrossVersionMaterial( org.bukkit.Material.WATER ), new Color( 64, 64, 255 ) );
 		palette.setColor( new CrossVersionMaterial( org.bukkit.Material.LAVA ), new Color( 255, 0, 0 ) );
 		
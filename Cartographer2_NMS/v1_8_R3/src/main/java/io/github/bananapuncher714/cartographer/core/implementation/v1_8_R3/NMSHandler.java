@@ -121,7 +121,7 @@ public class NMSHandler implements PacketHandler {
 	}
 	
 	@Override
-	public void sendDataTo( int id, byte[] data, @Nullable MapCursor[] cursors, UUID... uuids ) {
+	public void sendDataTo( int id, @Nullable byte[] data, @Nullable MapCursor[] cursors, int x, int y, int width, int height, UUID... uuids ) {
 		MapIcon[] icons;
 		if ( cursors == null ) {
 			icons = new MapIcon[ 0 ];
@@ -141,10 +141,10 @@ public class NMSHandler implements PacketHandler {
 			MAP_FIELDS[ 0 ].set( packet, id );
 			MAP_FIELDS[ 1 ].set( packet, ( byte ) 0 );
 			MAP_FIELDS[ 2 ].set( packet, icons );
-			MAP_FIELDS[ 3 ].set( packet, 0 );
-			MAP_FIELDS[ 4 ].set( packet, 0 );
-			MAP_FIELDS[ 5 ].set( packet, 128 );
-			MAP_FIELDS[ 6 ].set( packet, 128 );
+			MAP_FIELDS[ 3 ].set( packet, x );
+			MAP_FIELDS[ 4 ].set( packet, y );
+			MAP_FIELDS[ 5 ].set( packet, width );
+			MAP_FIELDS[ 6 ].set( packet, height );
 			MAP_FIELDS[ 7 ].set( packet, data );
 		} catch ( Exception exception ) {
 			exception.printStackTrace();